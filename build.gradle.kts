@@ -31,6 +31,10 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-web")
     implementation("org.springframework.boot:spring-boot-starter-websocket")
     implementation("org.springframework.boot:spring-boot-starter-oauth2-resource-server")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
+    implementation("io.micrometer:micrometer-registry-prometheus")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-smile")
 
     implementation("org.keycloak:keycloak-spring-boot-starter:23.0.4")
     implementation("org.keycloak:keycloak-admin-client:23.0.4")
@@ -39,12 +43,15 @@ dependencies {
 
     implementation("commons-io:commons-io:2.15.1")
 
+    implementation(platform("software.amazon.awssdk:bom:2.39.6"))
+    implementation("software.amazon.awssdk:s3")
+
     compileOnly("org.projectlombok:lombok")
     annotationProcessor("org.projectlombok:lombok")
 
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testImplementation("org.springframework.security:spring-security-test")
-    testImplementation("de.flapdoodle.embed:de.flapdoodle.embed.mongo")
+    testImplementation("de.flapdoodle.embed:de.flapdoodle.embed.mongo:4.20.0")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
@@ -0,0 +1,16 @@
+package com.github.superz97.chat.changestream;
+
+import com.github.superz97.chat.enums.WebSocketMessageType;
+
+/**
+ * A WebSocket event derived from a database change, addressed to one channel, group or user.
+ */
+public record ChangeEvent(Target target, String targetId, WebSocketMessageType type, Object payload) {
+
+    public enum Target {
+        CHANNEL,
+        GROUP,
+        USER
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.github.superz97.chat.changestream;
+
+import com.github.superz97.chat.dto.response.MessageDTO;
+import com.github.superz97.chat.entity.Channel;
+import com.github.superz97.chat.entity.Group;
+import com.github.superz97.chat.entity.Message;
+import com.github.superz97.chat.enums.WebSocketMessageType;
+import com.github.superz97.chat.service.ChannelService;
+import com.github.superz97.chat.service.GroupService;
+import com.github.superz97.chat.service.MessageService;
+import com.mongodb.client.model.changestream.OperationType;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns raw change stream entries on the messages, channels and groups collections into typed
+ * {@link ChangeEvent}s. Returns an empty list for changes clients don't need to hear about
+ * (read receipts, attachment links, hard deletes of messages we can no longer route).
+ *
+ * <p>Channel and group updates go out as a compact {@link ConversationPayload}, never the member
+ * list, and only when a field it carries changed. Repository saves replace the whole document and
+ * report no changed fields, so those are compared against the last payload sent for the conversation.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChangeEventMapper {
+
+    public static final String MESSAGES = "messages";
+    public static final String CHANNELS = "channels";
+    public static final String GROUPS = "groups";
+
+    // Every edit sets editedAt; long edits write compressedContent and unset content instead
+    private static final Set<String> EDIT_FIELDS = Set.of("editedAt", "content", "compressedContent");
+    // Message updates worth a document lookup: edits and deletes clients see, attachment links the tail keeps
+    private static final Set<String> MESSAGE_LOOKUP_FIELDS = Set.of(
+            "content", "compressedContent", "edited", "editedAt", "deleted", "attachmentIds");
+    // Channel and group fields behind ConversationPayload, plus active for deactivation
+    private static final Set<String> CONVERSATION_VISIBLE_FIELDS = Set.of(
+            "name", "description", "avatarUrl", "memberIds", "active");
+
+    private final MongoConverter mongoConverter;
+    private final MessageService messageService;
+    private final ChannelService channelService;
+    private final GroupService groupService;
+
+    // Last update payload sent per conversation, to drop saves that changed nothing clients see
+    private final Map<String, ConversationPayload> lastSent = new ConcurrentHashMap<>();
+
+    /**
+     * Whether an update touching these top-level fields needs the current document to be mapped;
+     * anything else maps to no events.
+     */
+    // Tag for the fan-out timer, from a raw message document
+    public static String conversationType(Document message) {
+        return message.get("channelId") != null ? "channel" : message.get("groupId") != null ? "group" : "private";
+    }
+
+    public static boolean needsDocument(String collection, Set<String> changedFields) {
+        Set<String> relevant = MESSAGES.equals(collection) ? MESSAGE_LOOKUP_FIELDS : CONVERSATION_VISIBLE_FIELDS;
+        return changedFields.stream().anyMatch(relevant::contains);
+    }
+
+    public List<ChangeEvent> map(String collection, OperationType operationType, String documentId,
+                                 Document fullDocument, Set<String> updatedFields) {
+        return switch (collection) {
+            case MESSAGES -> mapMessage(operationType, fullDocument, updatedFields);
+            case CHANNELS -> mapChannel(operationType, documentId, fullDocument, updatedFields);
+            case GROUPS -> mapGroup(operationType, documentId, fullDocument, updatedFields);
+            default -> List.of();
+        };
+    }
+
+    private List<ChangeEvent> mapMessage(OperationType operationType, Document fullDocument,
+                                         Set<String> updatedFields) {
+        // Hard deletes only carry the key, so there is nothing to route by
+        if (fullDocument == null) {
+            return List.of();
+        }
+        Message message = mongoConverter.read(Message.class, fullDocument);
+
+        WebSocketMessageType type = switch (operationType) {
+            case INSERT -> WebSocketMessageType.MESSAGE;
+            case UPDATE -> updatedFields.contains("deleted") && message.isDeleted()
+                    ? WebSocketMessageType.MESSAGE_DELETE
+                    : isEdit(updatedFields) ? WebSocketMessageType.MESSAGE_EDIT : null;
+            // Whole-document writes from other clients: best effort from the resulting state
+            case REPLACE -> message.isDeleted()
+                    ? WebSocketMessageType.MESSAGE_DELETE
+                    : message.isEdited() ? WebSocketMessageType.MESSAGE_EDIT : null;
+            default -> null;
+        };
+        if (type == null) {
+            return List.of();
+        }
+
+        // Broadcast to the whole room, so no viewer flag and no reader list
+        MessageDTO dto = messageService.toDTO(message, null, false);
+        if (type == WebSocketMessageType.MESSAGE_DELETE) {
+            dto.setContent(null);
+        }
+
+        if (message.getChannelId() != null) {
+            return List.of(new ChangeEvent(ChangeEvent.Target.CHANNEL, message.getChannelId(), type, dto));
+        } else if (message.getGroupId() != null) {
+            return List.of(new ChangeEvent(ChangeEvent.Target.GROUP, message.getGroupId(), type, dto));
+        } else if (message.getRecipientId() != null) {
+            return List.of(
+                    new ChangeEvent(ChangeEvent.Target.USER, message.getRecipientId(), type, dto),
+                    new ChangeEvent(ChangeEvent.Target.USER, message.getSenderId(), type, dto));
+        }
+        return List.of();
+    }
+
+    private static boolean isEdit(Set<String> updatedFields) {
+        return updatedFields.stream().anyMatch(EDIT_FIELDS::contains);
+    }
+
+    private List<ChangeEvent> mapChannel(OperationType operationType, String channelId, Document fullDocument,
+                                         Set<String> updatedFields) {
+        if (operationType == OperationType.DELETE || fullDocument == null) {
+            return deleted(ChangeEvent.Target.CHANNEL, channelId, WebSocketMessageType.CHANNEL_DELETED);
+        }
+        Channel channel = mongoConverter.read(Channel.class, fullDocument);
+        if (operationType == OperationType.INSERT) {
+            return List.of(new ChangeEvent(ChangeEvent.Target.CHANNEL, channelId,
+                    WebSocketMessageType.CHANNEL_CREATED, channelService.toDTO(channel)));
+        }
+        if (!channel.isActive()) {
+            return deleted(ChangeEvent.Target.CHANNEL, channelId, WebSocketMessageType.CHANNEL_DELETED);
+        }
+        return updated(ChangeEvent.Target.CHANNEL, WebSocketMessageType.CHANNEL_UPDATED, operationType, updatedFields,
+                new ConversationPayload(channelId, channel.getName(), channel.getDescription(), channel.getAvatarUrl(),
+                        channel.getMemberIds().size()));
+    }
+
+    private List<ChangeEvent> mapGroup(OperationType operationType, String groupId, Document fullDocument,
+                                       Set<String> updatedFields) {
+        if (operationType == OperationType.DELETE || fullDocument == null) {
+            return deleted(ChangeEvent.Target.GROUP, groupId, WebSocketMessageType.GROUP_DELETED);
+        }
+        Group group = mongoConverter.read(Group.class, fullDocument);
+        if (operationType == OperationType.INSERT) {
+            return List.of(new ChangeEvent(ChangeEvent.Target.GROUP, groupId,
+                    WebSocketMessageType.GROUP_CREATED, groupService.toDTO(group)));
+        }
+        if (!group.isActive()) {
+            return deleted(ChangeEvent.Target.GROUP, groupId, WebSocketMessageType.GROUP_DELETED);
+        }
+        return updated(ChangeEvent.Target.GROUP, WebSocketMessageType.GROUP_UPDATED, operationType, updatedFields,
+                new ConversationPayload(groupId, group.getName(), group.getDescription(), group.getAvatarUrl(),
+                        group.getMemberIds().size()));
+    }
+
+    private List<ChangeEvent> updated(ChangeEvent.Target target, WebSocketMessageType type,
+                                      OperationType operationType, Set<String> updatedFields,
+                                      ConversationPayload payload) {
+        if (operationType == OperationType.UPDATE && !updatedFields.isEmpty()
+                && updatedFields.stream().noneMatch(CONVERSATION_VISIBLE_FIELDS::contains)) {
+            return List.of();
+        }
+        if (payload.equals(lastSent.put(payload.id(), payload))) {
+            return List.of();
+        }
+        return List.of(new ChangeEvent(target, payload.id(), type, payload));
+    }
+
+    private List<ChangeEvent> deleted(ChangeEvent.Target target, String id, WebSocketMessageType type) {
+        lastSent.remove(id);
+        return List.of(new ChangeEvent(target, id, type, new DeletedPayload(id)));
+    }
+
+    // What subscribers need to redraw a conversation header; members are fetched on demand
+    public record ConversationPayload(String id, String name, String description, String avatarUrl,
+                                      int memberCount) {}
+
+    public record DeletedPayload(String id) {}
+
+}
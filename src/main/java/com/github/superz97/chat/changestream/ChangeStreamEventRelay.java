@@ -0,0 +1,356 @@
+package com.github.superz97.chat.changestream;
+
+import com.github.superz97.chat.dto.response.WebSocketMessageDTO;
+import com.github.superz97.chat.entity.ChangeStreamCheckpoint;
+import com.github.superz97.chat.entity.Message;
+import com.github.superz97.chat.metrics.ChatMetrics;
+import com.github.superz97.chat.repository.ChangeStreamCheckpointRepository;
+import com.github.superz97.chat.service.HistoryTailCache;
+import com.github.superz97.chat.service.WebSocketService;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tails a database-level change stream over messages, channels and groups and delivers the
+ * resulting events to this node's subscribers. Every node runs its own relay, so events are never
+ * forwarded on the cluster bus. The resume token is checkpointed so a restarted node picks up where
+ * it stopped; a node with no checkpoint yet starts from the moment it began starting up, before the
+ * web server takes traffic, so nothing written in between is missed. Change streams require MongoDB to run as a replica set; when the server turns out not
+ * to be one, or the relay is disabled, {@link DirectChangePublisher} publishes this node's writes instead.
+ *
+ * <p>Updates don't carry the full document. Read receipts are filtered out on the server, and the
+ * current document is only looked up for changes clients or the history cache care about.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ChangeStreamEventRelay implements SmartLifecycle {
+
+    // ChangeStreamHistoryLost / ChangeStreamFatalError: the token can no longer be resumed from
+    private static final Set<Integer> UNRESUMABLE_ERROR_CODES = Set.of(280, 286);
+    // "The $changeStream stage is only supported on replica sets"
+    private static final int CHANGE_STREAMS_UNSUPPORTED = 40573;
+    private static final long MIN_BACKOFF_MS = 1_000;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final ChangeEventMapper changeEventMapper;
+    private final WebSocketService webSocketService;
+    private final ChangeStreamCheckpointRepository checkpointRepository;
+    private final HistoryTailCache historyTailCache;
+    private final ChatMetrics chatMetrics;
+
+    @Value("${chat.change-events.enabled}")
+    private boolean enabled;
+
+    @Value("${chat.change-events.consumer-id:}")
+    private String consumerId;
+
+    @Value("${spring.application.name}")
+    private String applicationName;
+
+    @Value("${chat.change-events.checkpoint-interval-ms}")
+    private long checkpointIntervalMs;
+
+    private volatile boolean running;
+    private volatile boolean unsupported;
+    private Thread watcher;
+    // Where a node without a checkpoint starts; cleared once the stream had to restart from now
+    private volatile BsonTimestamp startAt;
+    private BsonDocument lastCheckpointed;
+    private long lastCheckpointAt;
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            log.info("Change stream event relay disabled");
+            return;
+        }
+        if (!StringUtils.hasText(consumerId)) {
+            consumerId = applicationName + "@" + hostName();
+        }
+        // A few seconds early to absorb clock skew against the primary; nothing subscribes this early anyway
+        startAt = new BsonTimestamp((int) (System.currentTimeMillis() / 1000) - 5, 0);
+        running = true;
+        watcher = new Thread(this::watch, "chat-change-stream");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (watcher != null) {
+            watcher.interrupt();
+            try {
+                watcher.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Before the web server (phase DEFAULT_PHASE - 2048) starts taking traffic
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    /**
+     * Whether this relay delivers change events. Stays true through transient errors and while the
+     * first cursor opens, since a resumed stream replays what was written in between.
+     */
+    public boolean isStreaming() {
+        return enabled && !unsupported;
+    }
+
+    private void watch() {
+        List<Bson> pipeline = List.of(Aggregates.match(Filters.and(
+                Filters.in("ns.coll", ChangeEventMapper.MESSAGES, ChangeEventMapper.CHANNELS, ChangeEventMapper.GROUPS),
+                Filters.in("operationType", "insert", "update", "replace", "delete"),
+                notReadReceiptOnly())));
+
+        BsonDocument resumeToken = null;
+        boolean tokenLoaded = false;
+        long backoff = MIN_BACKOFF_MS;
+
+        while (running) {
+            try {
+                if (!tokenLoaded) {
+                    resumeToken = loadResumeToken();
+                    lastCheckpointed = resumeToken;
+                    tokenLoaded = true;
+                }
+
+                ChangeStreamIterable<Document> stream = mongoTemplate.getDb()
+                        .watch(pipeline)
+                        .maxAwaitTime(1, TimeUnit.SECONDS);
+                if (resumeToken != null) {
+                    stream = stream.resumeAfter(resumeToken);
+                } else if (startAt != null) {
+                    stream = stream.startAtOperationTime(startAt);
+                }
+
+                try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+                    backoff = MIN_BACKOFF_MS;
+                    while (running) {
+                        ChangeStreamDocument<Document> change = cursor.tryNext();
+                        if (change != null) {
+                            dispatch(change);
+                        }
+                        // Also advances on empty batches, so idle periods don't leave a stale token
+                        BsonDocument token = cursor.getResumeToken();
+                        if (token != null) {
+                            resumeToken = token;
+                            checkpoint(token, false);
+                        }
+                    }
+                }
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() == CHANGE_STREAMS_UNSUPPORTED) {
+                    log.error("MongoDB is not running as a replica set, so change streams are unavailable; "
+                            + "publishing writes made through this node directly instead");
+                    unsupported = true;
+                    return;
+                }
+                if (UNRESUMABLE_ERROR_CODES.contains(e.getErrorCode())) {
+                    log.warn("Change stream resume token is no longer valid, restarting from now", e);
+                    resumeToken = null;
+                    startAt = null;
+                    checkpointRepository.deleteById(consumerId);
+                    continue;
+                }
+                backoff = backOff(backoff, e);
+            } catch (Exception e) {
+                backoff = backOff(backoff, e);
+            }
+        }
+
+        if (resumeToken != null) {
+            checkpoint(resumeToken, true);
+        }
+    }
+
+    private long backOff(long backoff, Exception e) {
+        if (!running) {
+            return backoff;
+        }
+        log.warn("Change stream interrupted, retrying in {} ms: {}", backoff, e.getMessage());
+        try {
+            Thread.sleep(backoff);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        return Math.min(backoff * 2, MAX_BACKOFF_MS);
+    }
+
+    private void dispatch(ChangeStreamDocument<Document> change) {
+        try {
+            Set<String> updatedFields = changedFields(change);
+
+            String collection = change.getNamespace().getCollectionName();
+            Document fullDocument = change.getFullDocument();
+            if (change.getOperationType() == OperationType.UPDATE) {
+                if (!ChangeEventMapper.needsDocument(collection, updatedFields)) {
+                    return;
+                }
+                fullDocument = lookup(collection, change.getDocumentKey());
+            }
+            if (ChangeEventMapper.MESSAGES.equals(collection) && fullDocument != null) {
+                updateHistoryCache(change.getOperationType(), fullDocument);
+            }
+
+            List<ChangeEvent> events = changeEventMapper.map(
+                    collection,
+                    change.getOperationType(),
+                    documentId(change.getDocumentKey()),
+                    fullDocument,
+                    updatedFields);
+
+            for (ChangeEvent event : events) {
+                WebSocketMessageDTO message = WebSocketMessageDTO.typed(event.type(), event.payload());
+                switch (event.target()) {
+                    case CHANNEL -> webSocketService.deliverToChannel(event.targetId(), message);
+                    case GROUP -> webSocketService.deliverToGroup(event.targetId(), message);
+                    case USER -> webSocketService.deliverToUser(event.targetId(), message);
+                }
+            }
+            if (change.getOperationType() == OperationType.INSERT && ChangeEventMapper.MESSAGES.equals(collection)
+                    && !events.isEmpty()) {
+                chatMetrics.recordMessageFanOut(ChangeEventMapper.conversationType(fullDocument),
+                        fullDocument.getDate("timestamp"));
+            }
+        } catch (Exception e) {
+            log.error("Error relaying change event {}", change.getOperationType(), e);
+        }
+    }
+
+    // Edits, deletes and attachment links made elsewhere; read receipts from other nodes are not applied
+    private void updateHistoryCache(OperationType operationType, Document fullDocument) {
+        Message message = mongoTemplate.getConverter().read(Message.class, fullDocument);
+        if (operationType == OperationType.INSERT) {
+            historyTailCache.applyInsert(message);
+        } else {
+            historyTailCache.applyUpdate(message);
+        }
+    }
+
+    // Drops message updates that only add to readBy, whether reported as the whole array or one element
+    private static Bson notReadReceiptOnly() {
+        Document otherFields = new Document("$filter", new Document("input",
+                new Document("$objectToArray", new Document("$ifNull", List.of("$updateDescription.updatedFields",
+                        new Document()))))
+                .append("cond", new Document("$ne", List.of(topLevelField("$$this.k"), "readBy"))));
+        return Filters.or(
+                Filters.ne("operationType", "update"),
+                Filters.ne("ns.coll", ChangeEventMapper.MESSAGES),
+                Filters.exists("updateDescription.removedFields.0"),
+                Filters.expr(new Document("$gt", List.of(new Document("$size", otherFields), 0))));
+    }
+
+    private static Document topLevelField(String path) {
+        return new Document("$arrayElemAt", List.of(new Document("$split", List.of(path, ".")), 0));
+    }
+
+    // Top-level names of set and unset fields, so "readBy.3" and "attachmentIds" compare alike
+    private static Set<String> changedFields(ChangeStreamDocument<Document> change) {
+        Set<String> changed = new HashSet<>();
+        if (change.getUpdateDescription() != null) {
+            if (change.getUpdateDescription().getUpdatedFields() != null) {
+                change.getUpdateDescription().getUpdatedFields().keySet().forEach(field -> changed.add(topLevel(field)));
+            }
+            if (change.getUpdateDescription().getRemovedFields() != null) {
+                change.getUpdateDescription().getRemovedFields().forEach(field -> changed.add(topLevel(field)));
+            }
+        }
+        return changed;
+    }
+
+    private static String topLevel(String field) {
+        int dot = field.indexOf('.');
+        return dot < 0 ? field : field.substring(0, dot);
+    }
+
+    private Document lookup(String collection, BsonDocument documentKey) {
+        if (documentKey == null || documentKey.get("_id") == null) {
+            return null;
+        }
+        return mongoTemplate.getCollection(collection).find(Filters.eq("_id", documentKey.get("_id"))).first();
+    }
+
+    private static String documentId(BsonDocument documentKey) {
+        if (documentKey == null) {
+            return null;
+        }
+        BsonValue id = documentKey.get("_id");
+        if (id == null) {
+            return null;
+        }
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString()
+                : id.isString() ? id.asString().getValue() : id.toString();
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+
+    private BsonDocument loadResumeToken() {
+        return checkpointRepository.findById(consumerId)
+                .map(checkpoint -> BsonDocument.parse(checkpoint.getResumeToken()))
+                .orElse(null);
+    }
+
+    // Throttled so a busy stream doesn't turn every event into an extra write
+    private void checkpoint(BsonDocument token, boolean force) {
+        long now = System.currentTimeMillis();
+        if (token.equals(lastCheckpointed) || (!force && now - lastCheckpointAt < checkpointIntervalMs)) {
+            return;
+        }
+        try {
+            checkpointRepository.save(ChangeStreamCheckpoint.builder()
+                    .consumerId(consumerId)
+                    .resumeToken(token.toJson())
+                    .updatedAt(LocalDateTime.now())
+                    .build());
+            lastCheckpointed = token;
+            lastCheckpointAt = now;
+        } catch (Exception e) {
+            log.warn("Could not checkpoint change stream resume token: {}", e.getMessage());
+        }
+    }
+
+}
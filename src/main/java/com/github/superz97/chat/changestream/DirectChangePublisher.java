@@ -0,0 +1,97 @@
+package com.github.superz97.chat.changestream;
+
+import com.github.superz97.chat.dto.response.WebSocketMessageDTO;
+import com.github.superz97.chat.entity.Channel;
+import com.github.superz97.chat.entity.Group;
+import com.github.superz97.chat.entity.Message;
+import com.github.superz97.chat.metrics.ChatMetrics;
+import com.github.superz97.chat.service.WebSocketService;
+import com.mongodb.client.model.changestream.OperationType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stands in for {@link ChangeStreamEventRelay} when it isn't streaming (disabled, or MongoDB is a
+ * standalone server): writes made through this node are mapped the way their change stream entries
+ * would be and published directly, over the cluster bus too. Writes made outside the application
+ * are not seen in this mode.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DirectChangePublisher {
+
+    private final ChangeStreamEventRelay changeStreamEventRelay;
+    private final ChangeEventMapper changeEventMapper;
+    private final WebSocketService webSocketService;
+    private final MongoConverter mongoConverter;
+    private final ChatMetrics chatMetrics;
+
+    // Channel or group being inserted by save() on this thread; its after-save event carries no operation type
+    private final ThreadLocal<Object> inserting = new ThreadLocal<>();
+
+    @EventListener
+    public void onBeforeConvert(BeforeConvertEvent<?> event) {
+        Object source = event.getSource();
+        if (!changeStreamEventRelay.isStreaming() && (source instanceof Channel || source instanceof Group)
+                && mongoConverter.getMappingContext().getRequiredPersistentEntity(source.getClass()).isNew(source)) {
+            inserting.set(source);
+        }
+    }
+
+    // Message inserts and every channel and group write go through save() or insert()
+    @EventListener
+    public void onAfterSave(AfterSaveEvent<?> event) {
+        Object source = event.getSource();
+        boolean inserted = inserting.get() == source || source instanceof Message;
+        inserting.remove();
+        if (changeStreamEventRelay.isStreaming() || event.getDocument() == null) {
+            return;
+        }
+        publish(event.getCollectionName(), inserted ? OperationType.INSERT : OperationType.UPDATE,
+                event.getDocument(), Set.of());
+    }
+
+    @EventListener
+    public void onMessageUpdated(MessageUpdatedEvent event) {
+        if (changeStreamEventRelay.isStreaming()) {
+            return;
+        }
+        Document document = new Document();
+        mongoConverter.write(event.message(), document);
+        publish(ChangeEventMapper.MESSAGES, OperationType.UPDATE, document, event.updatedFields());
+    }
+
+    // The write has already succeeded; a failed broadcast is logged, not thrown back at the caller
+    private void publish(String collection, OperationType operationType, Document document, Set<String> updatedFields) {
+        try {
+            List<ChangeEvent> events = changeEventMapper.map(collection, operationType,
+                    String.valueOf(document.get("_id")), document, updatedFields);
+            for (ChangeEvent event : events) {
+                WebSocketMessageDTO message = WebSocketMessageDTO.typed(event.type(), event.payload());
+                switch (event.target()) {
+                    case CHANNEL -> webSocketService.sendToChannel(event.targetId(), message);
+                    case GROUP -> webSocketService.sendToGroup(event.targetId(), message);
+                    case USER -> webSocketService.sendToUser(event.targetId(), message);
+                }
+            }
+            if (operationType == OperationType.INSERT && ChangeEventMapper.MESSAGES.equals(collection)
+                    && !events.isEmpty()) {
+                chatMetrics.recordMessageFanOut(ChangeEventMapper.conversationType(document),
+                        document.getDate("timestamp"));
+            }
+        } catch (Exception e) {
+            log.error("Error publishing {} on {} directly", operationType, collection, e);
+        }
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.github.superz97.chat.changestream;
+
+import com.github.superz97.chat.entity.Message;
+
+import java.util.Set;
+
+/**
+ * A targeted update to a message made through this node. Targeted updates raise no mapping events,
+ * so {@link DirectChangePublisher} relies on this when the change stream isn't running.
+ */
+public record MessageUpdatedEvent(Message message, Set<String> updatedFields) {
+}
@@ -0,0 +1,7 @@
+package com.github.superz97.chat.cluster;
+
+/**
+ * An already-serialized broker message travelling between nodes.
+ */
+public record ClusterMessage(String originNodeId, String destination, String contentType, byte[] payload) {
+}
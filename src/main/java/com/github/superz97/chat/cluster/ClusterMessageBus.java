@@ -0,0 +1,44 @@
+package com.github.superz97.chat.cluster;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Carries broker messages between application nodes. Every node delivers to its own local
+ * subscribers; the bus only forwards a message to the nodes that currently advertise interest in
+ * its routing key (see {@link #routingKey(String)}).
+ */
+public interface ClusterMessageBus {
+
+    String USER_DESTINATION_PREFIX = "/user/";
+
+    String getNodeId();
+
+    /**
+     * Forwards the message to every other node interested in its destination.
+     */
+    void publish(ClusterMessage message);
+
+    /**
+     * Registers the callback that hands messages from other nodes to the local broker.
+     */
+    void onMessage(Consumer<ClusterMessage> handler);
+
+    /**
+     * Replaces the set of routing keys this node has local subscribers for.
+     */
+    void updateLocalInterest(Set<String> routingKeys);
+
+    /**
+     * Topic destinations route by destination; user destinations route by user, since the
+     * user-specific queues are only resolved on the node holding the session.
+     */
+    static String routingKey(String destination) {
+        if (destination.startsWith(USER_DESTINATION_PREFIX)) {
+            int end = destination.indexOf('/', USER_DESTINATION_PREFIX.length());
+            return end < 0 ? destination : destination.substring(0, end);
+        }
+        return destination;
+    }
+
+}
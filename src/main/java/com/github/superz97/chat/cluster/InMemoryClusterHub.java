@@ -0,0 +1,28 @@
+package com.github.superz97.chat.cluster;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Connects {@link InMemoryClusterMessageBus} nodes living in the same JVM. A single-node
+ * deployment has a hub with one member; tests can join several to simulate a cluster.
+ */
+public class InMemoryClusterHub {
+
+    private final List<InMemoryClusterMessageBus> nodes = new CopyOnWriteArrayList<>();
+
+    public InMemoryClusterMessageBus join(String nodeId) {
+        InMemoryClusterMessageBus node = new InMemoryClusterMessageBus(this, nodeId);
+        nodes.add(node);
+        return node;
+    }
+
+    public void leave(InMemoryClusterMessageBus node) {
+        nodes.remove(node);
+    }
+
+    List<InMemoryClusterMessageBus> getNodes() {
+        return nodes;
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.github.superz97.chat.cluster;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+public class InMemoryClusterMessageBus implements ClusterMessageBus {
+
+    private final InMemoryClusterHub hub;
+    private final String nodeId;
+
+    private volatile Set<String> localInterest = Set.of();
+    private volatile Consumer<ClusterMessage> handler = message -> { };
+
+    InMemoryClusterMessageBus(InMemoryClusterHub hub, String nodeId) {
+        this.hub = hub;
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void publish(ClusterMessage message) {
+        String routingKey = ClusterMessageBus.routingKey(message.destination());
+        for (InMemoryClusterMessageBus node : hub.getNodes()) {
+            if (node != this && node.localInterest.contains(routingKey)) {
+                node.handler.accept(message);
+            }
+        }
+    }
+
+    @Override
+    public void onMessage(Consumer<ClusterMessage> handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void updateLocalInterest(Set<String> routingKeys) {
+        this.localInterest = Set.copyOf(routingKeys);
+    }
+
+}
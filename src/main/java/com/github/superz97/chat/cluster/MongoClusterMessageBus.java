@@ -0,0 +1,254 @@
+package com.github.superz97.chat.cluster;
+
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Cluster bus over MongoDB. Nodes advertise their routing-key interest in {@code cluster_nodes}
+ * with a heartbeat; publishers insert into {@code cluster_messages} addressed only to interested
+ * nodes, and each node tails the collection with a change stream filtered server-side on its own
+ * id. Requires a replica set (change streams); messages expire through a TTL index.
+ */
+@Slf4j
+public class MongoClusterMessageBus implements ClusterMessageBus {
+
+    static final String NODES_COLLECTION = "cluster_nodes";
+    static final String MESSAGES_COLLECTION = "cluster_messages";
+
+    private final MongoTemplate mongoTemplate;
+    private final String nodeId;
+    private final long heartbeatIntervalMs;
+    private final long nodeTimeoutMs;
+    private final long messageTtlSeconds;
+
+    private volatile Consumer<ClusterMessage> handler = message -> { };
+    private volatile Set<String> localInterest = Set.of();
+    private final AtomicBoolean interestDirty = new AtomicBoolean(true);
+    private long interestVersion;
+
+    // nodeId -> advertised routing keys, refreshed on every heartbeat
+    private volatile Map<String, Set<String>> remoteInterest = Map.of();
+    private final Map<String, Long> remoteVersions = new HashMap<>();
+
+    private ScheduledExecutorService heartbeatScheduler;
+    private Thread watcher;
+    private volatile boolean running;
+
+    public MongoClusterMessageBus(MongoTemplate mongoTemplate, String nodeId, long heartbeatIntervalMs,
+                                  long nodeTimeoutMs, long messageTtlSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.nodeId = nodeId;
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.nodeTimeoutMs = nodeTimeoutMs;
+        this.messageTtlSeconds = messageTtlSeconds;
+    }
+
+    public void start() {
+        mongoTemplate.getCollection(MESSAGES_COLLECTION).createIndex(Indexes.ascending("createdAt"),
+                new IndexOptions().expireAfter(messageTtlSeconds, TimeUnit.SECONDS));
+
+        running = true;
+        heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-cluster-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeatScheduler.scheduleWithFixedDelay(this::heartbeat, 0, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+
+        watcher = new Thread(this::watch, "chat-cluster-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("Cluster bus started for node {}", nodeId);
+    }
+
+    public void stop() {
+        running = false;
+        heartbeatScheduler.shutdownNow();
+        watcher.interrupt();
+        try {
+            mongoTemplate.getCollection(NODES_COLLECTION).deleteOne(Filters.eq("_id", nodeId));
+        } catch (Exception e) {
+            log.warn("Could not deregister cluster node {}", nodeId, e);
+        }
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void publish(ClusterMessage message) {
+        String routingKey = ClusterMessageBus.routingKey(message.destination());
+        List<String> targets = new ArrayList<>();
+        remoteInterest.forEach((node, keys) -> {
+            if (keys.contains(routingKey)) {
+                targets.add(node);
+            }
+        });
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        Document document = new Document("targets", targets)
+                .append("origin", nodeId)
+                .append("destination", message.destination())
+                .append("contentType", message.contentType())
+                .append("payload", new Binary(message.payload()))
+                .append("createdAt", new Date());
+        try {
+            mongoTemplate.getCollection(MESSAGES_COLLECTION).insertOne(document);
+        } catch (Exception e) {
+            log.error("Error publishing to cluster bus for destination {}", message.destination(), e);
+        }
+    }
+
+    @Override
+    public void onMessage(Consumer<ClusterMessage> handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void updateLocalInterest(Set<String> routingKeys) {
+        localInterest = Set.copyOf(routingKeys);
+        interestDirty.set(true);
+        ScheduledExecutorService scheduler = heartbeatScheduler;
+        if (scheduler != null && !scheduler.isShutdown()) {
+            scheduler.execute(this::heartbeat);
+        }
+    }
+
+    private void heartbeat() {
+        try {
+            MongoCollection<Document> nodes = mongoTemplate.getCollection(NODES_COLLECTION);
+
+            List<Bson> updates = new ArrayList<>();
+            updates.add(Updates.set("heartbeatAt", new Date()));
+            if (interestDirty.getAndSet(false)) {
+                updates.add(Updates.set("interest", new ArrayList<>(localInterest)));
+                updates.add(Updates.set("interestVersion", ++interestVersion));
+            }
+            nodes.updateOne(Filters.eq("_id", nodeId), Updates.combine(updates), new UpdateOptions().upsert(true));
+
+            refreshRemoteInterest(nodes);
+        } catch (Exception e) {
+            interestDirty.set(true);
+            log.warn("Cluster heartbeat failed for node {}", nodeId, e);
+        }
+    }
+
+    // Only re-reads the interest list of nodes whose version moved since the last heartbeat
+    private void refreshRemoteInterest(MongoCollection<Document> nodes) {
+        Bson alive = Filters.and(
+                Filters.ne("_id", nodeId),
+                Filters.gte("heartbeatAt", new Date(System.currentTimeMillis() - nodeTimeoutMs)));
+
+        Map<String, Set<String>> current = remoteInterest;
+        Map<String, Set<String>> refreshed = new HashMap<>();
+        List<String> changed = new ArrayList<>();
+        for (Document node : nodes.find(alive).projection(Projections.include("_id", "interestVersion"))) {
+            String id = node.getString("_id");
+            long version = node.get("interestVersion", Number.class) != null
+                    ? node.get("interestVersion", Number.class).longValue() : 0L;
+            Long known = remoteVersions.get(id);
+            if (known != null && known == version && current.containsKey(id)) {
+                refreshed.put(id, current.get(id));
+            } else {
+                remoteVersions.put(id, version);
+                changed.add(id);
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            for (Document node : nodes.find(Filters.in("_id", changed))
+                    .projection(Projections.include("_id", "interest"))) {
+                List<String> interest = node.getList("interest", String.class);
+                refreshed.put(node.getString("_id"), interest != null ? new HashSet<>(interest) : Set.of());
+            }
+        }
+
+        remoteVersions.keySet().retainAll(refreshed.keySet());
+        remoteInterest = Map.copyOf(refreshed);
+    }
+
+    private void watch() {
+        List<Bson> pipeline = List.of(Aggregates.match(Filters.and(
+                Filters.eq("operationType", "insert"),
+                Filters.eq("fullDocument.targets", nodeId))));
+        BsonDocument resumeToken = null;
+
+        while (running) {
+            var stream = mongoTemplate.getCollection(MESSAGES_COLLECTION)
+                    .watch(pipeline)
+                    .maxAwaitTime(1, TimeUnit.SECONDS);
+            if (resumeToken != null) {
+                stream = stream.resumeAfter(resumeToken);
+            }
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+                while (running) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change == null) {
+                        continue;
+                    }
+                    resumeToken = change.getResumeToken();
+                    deliver(change.getFullDocument());
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cluster change stream interrupted for node {}, reconnecting", nodeId, e);
+                try {
+                    Thread.sleep(heartbeatIntervalMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void deliver(Document document) {
+        if (document == null) {
+            return;
+        }
+        try {
+            Binary payload = document.get("payload", Binary.class);
+            handler.accept(new ClusterMessage(
+                    document.getString("origin"),
+                    document.getString("destination"),
+                    document.getString("contentType"),
+                    payload != null ? payload.getData() : new byte[0]));
+        } catch (Exception e) {
+            log.error("Error delivering cluster message to local broker", e);
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.github.superz97.chat.cluster;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reference-counts the routing keys this node has local subscribers for and advertises them on
+ * the cluster bus, so other nodes only forward destinations someone here is listening to.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SubscriptionInterestTracker {
+
+    private final ClusterMessageBus clusterMessageBus;
+
+    // sessionId -> (subscriptionId -> routing key)
+    private final Map<String, Map<String, String>> sessionSubscriptions = new ConcurrentHashMap<>();
+    private final Map<String, String> sessionUsers = new ConcurrentHashMap<>();
+    private final Map<String, Integer> refCounts = new HashMap<>();
+
+    @EventListener
+    public void handleSessionConnected(SessionConnectedEvent event) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        Principal user = event.getUser();
+        if (sessionId == null || user == null) {
+            return;
+        }
+        String userKey = ClusterMessageBus.USER_DESTINATION_PREFIX + user.getName();
+        sessionUsers.put(sessionId, userKey);
+        acquire(userKey);
+    }
+
+    @EventListener
+    public void handleSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        String subscriptionId = accessor.getSubscriptionId();
+        String destination = accessor.getDestination();
+        // User destinations are covered by the session's user key
+        if (sessionId == null || subscriptionId == null || destination == null
+                || destination.startsWith(ClusterMessageBus.USER_DESTINATION_PREFIX)) {
+            return;
+        }
+        String previous = sessionSubscriptions
+                .computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+                .put(subscriptionId, destination);
+        acquire(destination);
+        if (previous != null) {
+            release(previous);
+        }
+    }
+
+    @EventListener
+    public void handleUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> subscriptions = sessionSubscriptions.get(accessor.getSessionId());
+        if (subscriptions == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        String destination = subscriptions.remove(accessor.getSubscriptionId());
+        if (destination != null) {
+            release(destination);
+        }
+    }
+
+    @EventListener
+    public void handleDisconnect(SessionDisconnectEvent event) {
+        String sessionId = event.getSessionId();
+        Map<String, String> subscriptions = sessionSubscriptions.remove(sessionId);
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::release);
+        }
+        String userKey = sessionUsers.remove(sessionId);
+        if (userKey != null) {
+            release(userKey);
+        }
+    }
+
+    private void acquire(String routingKey) {
+        synchronized (refCounts) {
+            if (refCounts.merge(routingKey, 1, Integer::sum) == 1) {
+                publishInterest();
+            }
+        }
+    }
+
+    private void release(String routingKey) {
+        synchronized (refCounts) {
+            Integer remaining = refCounts.computeIfPresent(routingKey, (key, count) -> count > 1 ? count - 1 : null);
+            if (remaining == null) {
+                publishInterest();
+            }
+        }
+    }
+
+    // Must hold refCounts
+    private void publishInterest() {
+        log.debug("Local cluster interest now covers {} routing keys", refCounts.size());
+        clusterMessageBus.updateLocalInterest(refCounts.keySet());
+    }
+
+}
@@ -3,14 +3,14 @@ package com.github.superz97.chat.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
-
-import java.util.concurrent.Executor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 @Configuration
 @EnableAsync
@@ -27,7 +27,7 @@ public class AppConfig {
     }
 
     @Bean(name = "taskExecutor")
-    public Executor taskExecutor() {
+    public ThreadPoolTaskExecutor taskExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(5);
         executor.setMaxPoolSize(10);
@@ -37,4 +37,48 @@ public class AppConfig {
         return executor;
     }
 
+    // Default for @Scheduled jobs: archiving, index rebuilds, reconciliation, backfill retries
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${chat.scheduling.pool-size}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("chat-scheduled-");
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    // Short, latency-sensitive write-behind flushes, kept off the pool the long full-collection jobs run on
+    @Bean(name = "flushScheduler")
+    public ThreadPoolTaskScheduler flushScheduler(@Value("${chat.scheduling.flush-pool-size}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("chat-flush-");
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    // Drains per-session outbound queues so a slow socket never blocks clientOutboundChannel threads
+    @Bean(name = "outboundDrainExecutor")
+    public ThreadPoolTaskExecutor outboundDrainExecutor(
+            @Value("${chat.websocket.outbound.drain-pool-size}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("chat-outbound-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Runs per-session inbound queues; each active session occupies at most one thread at a time
+    @Bean(name = "inboundWorkerExecutor")
+    public ThreadPoolTaskExecutor inboundWorkerExecutor(
+            @Value("${chat.websocket.inbound.worker-pool-size}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("chat-inbound-");
+        executor.initialize();
+        return executor;
+    }
+
 }
@@ -0,0 +1,81 @@
+package com.github.superz97.chat.config;
+
+import com.github.superz97.chat.storage.BlobStore;
+import com.github.superz97.chat.storage.CachingBlobStore;
+import com.github.superz97.chat.storage.LocalBlobStore;
+import com.github.superz97.chat.storage.S3BlobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Paths;
+
+@Configuration
+public class BlobStoreConfig {
+
+    @Value("${chat.storage.s3.endpoint:}")
+    private String s3Endpoint;
+
+    @Value("${chat.storage.s3.region}")
+    private String s3Region;
+
+    @Value("${chat.storage.s3.bucket}")
+    private String s3Bucket;
+
+    @Value("${chat.storage.s3.access-key}")
+    private String s3AccessKey;
+
+    @Value("${chat.storage.s3.secret-key}")
+    private String s3SecretKey;
+
+    @Value("${chat.storage.s3.path-style-access}")
+    private boolean s3PathStyleAccess;
+
+    @Value("${chat.storage.cache.directory}")
+    private String cacheDirectory;
+
+    @Value("${chat.storage.cache.max-size}")
+    private long cacheMaxSize;
+
+    @Bean
+    @ConditionalOnProperty(name = "chat.storage.backend", havingValue = "local", matchIfMissing = true)
+    public BlobStore localBlobStore(FileStorageConfig fileStorageConfig) {
+        return new LocalBlobStore(fileStorageConfig.getFileStorageLocation());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "chat.storage.backend", havingValue = "s3")
+    public S3Client s3Client() {
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(s3Region))
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(s3AccessKey, s3SecretKey)))
+                .forcePathStyle(s3PathStyleAccess);
+
+        // Point at MinIO or another S3-compatible endpoint instead of AWS
+        if (StringUtils.hasText(s3Endpoint)) {
+            builder.endpointOverride(URI.create(s3Endpoint));
+        }
+        return builder.build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "chat.storage.backend", havingValue = "s3")
+    public BlobStore s3BlobStore(S3Client s3Client) throws IOException {
+        BlobStore remote = new S3BlobStore(s3Client, s3Bucket);
+        if (cacheMaxSize <= 0) {
+            return remote;
+        }
+        return new CachingBlobStore(remote, Paths.get(cacheDirectory), cacheMaxSize);
+    }
+
+}
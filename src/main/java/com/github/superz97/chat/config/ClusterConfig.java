@@ -0,0 +1,48 @@
+package com.github.superz97.chat.config;
+
+import com.github.superz97.chat.cluster.ClusterMessageBus;
+import com.github.superz97.chat.cluster.InMemoryClusterHub;
+import com.github.superz97.chat.cluster.MongoClusterMessageBus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.UUID;
+
+@Configuration
+public class ClusterConfig {
+
+    @Value("${chat.cluster.node-id:}")
+    private String nodeId;
+
+    @Value("${chat.cluster.heartbeat-interval-ms}")
+    private long heartbeatIntervalMs;
+
+    @Value("${chat.cluster.node-timeout-ms}")
+    private long nodeTimeoutMs;
+
+    @Value("${chat.cluster.message-ttl-seconds}")
+    private long messageTtlSeconds;
+
+    // Single node: nothing to forward to, but keeps the publish path identical
+    @Bean
+    @ConditionalOnProperty(name = "chat.cluster.bus", havingValue = "local", matchIfMissing = true)
+    public ClusterMessageBus localClusterMessageBus() {
+        return new InMemoryClusterHub().join(resolveNodeId());
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty(name = "chat.cluster.bus", havingValue = "mongo")
+    public ClusterMessageBus mongoClusterMessageBus(MongoTemplate mongoTemplate) {
+        return new MongoClusterMessageBus(mongoTemplate, resolveNodeId(),
+                heartbeatIntervalMs, nodeTimeoutMs, messageTtlSeconds);
+    }
+
+    private String resolveNodeId() {
+        return StringUtils.hasText(nodeId) ? nodeId : UUID.randomUUID().toString();
+    }
+
+}
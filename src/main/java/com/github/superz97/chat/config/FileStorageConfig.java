@@ -20,6 +20,9 @@ public class FileStorageConfig {
     @Value("${chat.file-upload.max-size}")
     private long maxFileSize;
 
+    @Value("${chat.file-upload.user-quota}")
+    private long userQuota;
+
     private Path fileStorageLocation;
 
     @PostConstruct
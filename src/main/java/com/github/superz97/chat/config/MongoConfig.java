@@ -2,10 +2,13 @@ package com.github.superz97.chat.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
-import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
 import org.springframework.data.mongodb.core.convert.DefaultMongoTypeMapper;
 import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
 
 @Configuration
@@ -15,8 +18,12 @@ public class MongoConfig {
 
     // Remove _class field from MongoDB documents
     @Bean
-    public MappingMongoConverter mappingMongoConverter(MongoTemplate mongoTemplate) {
-        MappingMongoConverter converter = (MappingMongoConverter) mongoTemplate.getConverter();
+    public MappingMongoConverter mappingMongoConverter(MongoDatabaseFactory mongoDatabaseFactory,
+                                                       MongoMappingContext mongoMappingContext,
+                                                       MongoCustomConversions mongoCustomConversions) {
+        MappingMongoConverter converter = new MappingMongoConverter(
+                new DefaultDbRefResolver(mongoDatabaseFactory), mongoMappingContext);
+        converter.setCustomConversions(mongoCustomConversions);
         converter.setTypeMapper(new DefaultMongoTypeMapper(null));
         return converter;
     }
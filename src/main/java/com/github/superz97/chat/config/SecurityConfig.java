@@ -1,5 +1,12 @@
 package com.github.superz97.chat.config;
 
+import com.github.superz97.chat.metrics.ChatMetrics;
+import com.github.superz97.chat.security.CachingJwtDecoder;
+import com.github.superz97.chat.security.JwkSetCache;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -9,6 +16,7 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
@@ -17,6 +25,7 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.Arrays;
 
 @Configuration
@@ -24,8 +33,17 @@ import java.util.Arrays;
 @EnableMethodSecurity
 public class SecurityConfig {
 
-    @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}")
-    private String jwkSetUri;
+    @Value("${chat.security.jwt.cache-enabled}")
+    private boolean jwtCacheEnabled;
+
+    @Value("${chat.security.jwt.cache-max-entries}")
+    private int jwtCacheMaxEntries;
+
+    @Value("${chat.security.jwt.cache-max-ttl-seconds}")
+    private long jwtCacheMaxTtlSeconds;
+
+    @Value("${chat.security.metrics-role}")
+    private String metricsRole;
 
     @Value("${chat.websocket.allowed-origins}")
     private String allowedOrigins;
@@ -41,6 +59,8 @@ public class SecurityConfig {
                                 "/api/public/**",
                                 "/actuator/health"
                         ).permitAll()
+                        // Meters include repository and executor internals; only the scraper's service account reads them
+                        .requestMatchers("/actuator/**").hasRole(metricsRole)
                         .anyRequest().authenticated())
                 .oauth2ResourceServer(oauth2 -> oauth2
                         .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter())))
@@ -49,8 +69,21 @@ public class SecurityConfig {
     }
 
     @Bean
-    public JwtDecoder jwtDecoder() {
-        return NimbusJwtDecoder.withJwkSetUri(jwkSetUri).build();
+    public JwtDecoder jwtDecoder(JwkSetCache jwkSetCache, ChatMetrics chatMetrics) {
+        // Same RS256 verification as NimbusJwtDecoder.withJwkSetUri, but keys come from the local JWK cache
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSetCache));
+        processor.setJWTClaimsSetVerifier((claims, context) -> {
+            // Claims are validated by Spring's JwtValidators below
+        });
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+        decoder.setJwtValidator(JwtValidators.createDefault());
+
+        if (!jwtCacheEnabled) {
+            return decoder;
+        }
+        return new CachingJwtDecoder(decoder, chatMetrics, jwtCacheMaxEntries,
+                Duration.ofSeconds(jwtCacheMaxTtlSeconds));
     }
 
     @Bean
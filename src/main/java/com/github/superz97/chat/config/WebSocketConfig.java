@@ -1,16 +1,42 @@
 package com.github.superz97.chat.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.superz97.chat.websocket.BackpressureHandlerDecoratorFactory;
+import com.github.superz97.chat.websocket.BlockedSenderInterceptor;
+import com.github.superz97.chat.websocket.CompressionMetricsDecoratorFactory;
+import com.github.superz97.chat.websocket.KeyedInboundExecutor;
+import com.github.superz97.chat.websocket.PayloadFormat;
+import com.github.superz97.chat.websocket.PayloadFormatNegotiationInterceptor;
+import com.github.superz97.chat.websocket.PayloadTranscodingInterceptor;
+import com.github.superz97.chat.websocket.StompErrorHandler;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final BackpressureHandlerDecoratorFactory backpressureHandlerDecoratorFactory;
+    private final CompressionMetricsDecoratorFactory compressionMetricsDecoratorFactory;
+    private final PayloadFormatNegotiationInterceptor payloadFormatNegotiationInterceptor;
+    private final PayloadTranscodingInterceptor payloadTranscodingInterceptor;
+    private final BlockedSenderInterceptor blockedSenderInterceptor;
+    private final StompErrorHandler stompErrorHandler;
+    private final KeyedInboundExecutor keyedInboundExecutor;
+    private final ObjectMapper objectMapper;
+
     @Value("${chat.websocket.allowed-origins}")
     private String allowedOrigins;
 
@@ -38,6 +64,43 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         // Register endpoint without SockJS for native WebSocket clients
         registry.addEndpoint("/ws")
                 .setAllowedOrigins(allowedOrigins.split(","));
+
+        registry.setErrorHandler(stompErrorHandler);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Per-session outbound queue with the slow-consumer policy
+        registration.addDecoratorFactory(backpressureHandlerDecoratorFactory);
+        // Added last so it wraps the raw session and samples frames as written, after batching
+        registration.addDecoratorFactory(compressionMetricsDecoratorFactory);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Frames from one session are handled in order; sessions run in parallel
+        registration.executor(keyedInboundExecutor);
+        registration.interceptors(payloadFormatNegotiationInterceptor);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Filter first so frames that are dropped are never transcoded
+        registration.interceptors(blockedSenderInterceptor, payloadTranscodingInterceptor);
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        // Binary formats for inbound SEND frames; strict matching keeps JSON the default for publishing
+        for (PayloadFormat format : PayloadFormat.values()) {
+            if (format.isBinary()) {
+                MappingJackson2MessageConverter converter =
+                        new MappingJackson2MessageConverter(format.createMapper(objectMapper), format.getMimeType());
+                converter.setStrictContentTypeMatch(true);
+                messageConverters.add(converter);
+            }
+        }
+        return true;
     }
 
 }
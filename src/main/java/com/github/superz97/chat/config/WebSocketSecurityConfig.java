@@ -1,5 +1,6 @@
 package com.github.superz97.chat.config;
 
+import com.github.superz97.chat.websocket.ConnectAdmissionController;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
@@ -21,14 +22,17 @@ import java.util.stream.Collectors;
 public class WebSocketSecurityConfig implements WebSocketMessageBrokerConfigurer {
 
     private final JwtDecoder jwtDecoder;
+    private final ConnectAdmissionController connectAdmissionController;
 
-    public WebSocketSecurityConfig(JwtDecoder jwtDecoder) {
+    public WebSocketSecurityConfig(JwtDecoder jwtDecoder, ConnectAdmissionController connectAdmissionController) {
         this.jwtDecoder = jwtDecoder;
+        this.connectAdmissionController = connectAdmissionController;
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(new ChannelInterceptor() {
+        // Admission runs first so throttled CONNECTs never reach the JWT decode
+        registration.interceptors(connectAdmissionController, new ChannelInterceptor() {
             @Override
             public Message<?> preSend(Message<?> message, MessageChannel channel) {
                 StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
@@ -45,6 +49,8 @@ public class WebSocketSecurityConfig implements WebSocketMessageBrokerConfigurer
                                     .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
                                     .collect(Collectors.toList()) : List.of();
                             UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(username, null, authorities);
+                            // Subject rides along for the send rate limiter, which keys on it like the REST path
+                            authentication.setDetails(jwt.getSubject());
                             accessor.setUser(authentication);
                         } catch (Exception e) {
                             // Invalid token - reject connection
@@ -2,18 +2,20 @@ package com.github.superz97.chat.controller;
 
 import com.github.superz97.chat.dto.api.ApiResponse;
 import com.github.superz97.chat.dto.response.ChannelDTO;
+import com.github.superz97.chat.dto.response.ConversationSummaryDTO;
 import com.github.superz97.chat.entity.Channel;
 import com.github.superz97.chat.entity.User;
 import com.github.superz97.chat.service.ChannelService;
+import com.github.superz97.chat.service.TypeaheadService;
 import com.github.superz97.chat.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/channels")
@@ -22,6 +24,7 @@ public class ChannelController {
 
     private final ChannelService channelService;
     private final UserService userService;
+    private final TypeaheadService typeaheadService;
 
     @PostMapping
     public ResponseEntity<ApiResponse<ChannelDTO>> createChannel(
@@ -42,23 +45,22 @@ public class ChannelController {
     }
 
     @GetMapping("/public")
-    public ResponseEntity<ApiResponse<List<ChannelDTO>>> getPublicChannels() {
-        List<ChannelDTO> channels = channelService.getPublicChannels().stream()
-                .map(channelService::toDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(ApiResponse.success(channels));
+    public ResponseEntity<ApiResponse<Page<ConversationSummaryDTO>>> getPublicChannels(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(ApiResponse.success(channelService.getPublicChannelSummaries(page, size)));
     }
 
     @GetMapping("/me")
-    public ResponseEntity<ApiResponse<List<ChannelDTO>>> getMyChannels(
-            @AuthenticationPrincipal Jwt jwt) {
+    public ResponseEntity<ApiResponse<Page<ConversationSummaryDTO>>> getMyChannels(
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
         String keycloakId = jwt.getSubject();
         User user = userService.getUserByKeycloakId(keycloakId);
 
-        List<ChannelDTO> channels = channelService.getUserChannels(user.getId()).stream()
-                .map(channelService::toDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(ApiResponse.success(channels));
+        return ResponseEntity.ok(ApiResponse.success(
+                channelService.getUserChannelSummaries(user.getId(), page, size)));
     }
 
     @PutMapping("/{channelId}")
@@ -155,13 +157,20 @@ public class ChannelController {
         return ResponseEntity.ok(ApiResponse.success("Channel deleted successfully", null));
     }
 
+    // Ranked prefix suggestions for autocomplete
+    @GetMapping("/typeahead")
+    public ResponseEntity<ApiResponse<List<ConversationSummaryDTO>>> typeahead(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(typeaheadService.suggestChannels(query, limit)));
+    }
+
     @GetMapping("/search")
-    public ResponseEntity<ApiResponse<List<ChannelDTO>>> searchChannels(
-            @RequestParam String query) {
-        List<ChannelDTO> channels = channelService.searchChannels(query).stream()
-                .map(channelService::toDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(ApiResponse.success(channels));
+    public ResponseEntity<ApiResponse<Page<ConversationSummaryDTO>>> searchChannels(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(ApiResponse.success(channelService.searchChannelSummaries(query, page, size)));
     }
 
 }
@@ -18,7 +18,6 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -38,11 +37,15 @@ public class FileController {
         String keycloakId = jwt.getSubject();
         User user = userService.getUserByKeycloakId(keycloakId);
 
+        if (messageId != null) {
+            messageService.requireMessageExists(messageId);
+        }
+
         FileAttachment fileAttachment = fileService.uploadFile(file, user.getId(), messageId);
 
-        // Add attachment to message if messageId provided
+        // Link attachment to message off the request thread; the file already records its messageId
         if (messageId != null) {
-            messageService.addAttachment(messageId, fileAttachment.getId());
+            messageService.linkAttachmentAsync(messageId, fileAttachment.getId());
         }
 
         return ResponseEntity.ok(ApiResponse.success("File uploaded successfully",
@@ -62,11 +65,10 @@ public class FileController {
         Resource resource = fileService.loadFileAsResource(fileId);
         FileAttachment fileAttachment = fileService.getFileById(fileId);
 
-        String contentType = null;
-        try {
-            contentType = request.getServletContext().getMimeType(resource.getFile().getAbsolutePath());
-        } catch (IOException ex) {
-            contentType = "application/octet-stream";
+        // The blob may live in a remote store, so don't rely on a local file to sniff the type
+        String contentType = fileAttachment.getContentType();
+        if (contentType == null) {
+            contentType = request.getServletContext().getMimeType(fileAttachment.getStoredFileName());
         }
 
         if (contentType == null) {
@@ -1,19 +1,21 @@
 package com.github.superz97.chat.controller;
 
 import com.github.superz97.chat.dto.api.ApiResponse;
+import com.github.superz97.chat.dto.response.ConversationSummaryDTO;
 import com.github.superz97.chat.dto.response.GroupDTO;
 import com.github.superz97.chat.entity.Group;
 import com.github.superz97.chat.entity.User;
 import com.github.superz97.chat.service.GroupService;
+import com.github.superz97.chat.service.TypeaheadService;
 import com.github.superz97.chat.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/groups")
@@ -22,6 +24,7 @@ public class GroupController {
 
     private final GroupService groupService;
     private final UserService userService;
+    private final TypeaheadService typeaheadService;
 
     @PostMapping
     public ResponseEntity<ApiResponse<GroupDTO>> createGroup(
@@ -42,15 +45,15 @@ public class GroupController {
     }
 
     @GetMapping("/me")
-    public ResponseEntity<ApiResponse<List<GroupDTO>>> getMyGroups(
-            @AuthenticationPrincipal Jwt jwt) {
+    public ResponseEntity<ApiResponse<Page<ConversationSummaryDTO>>> getMyGroups(
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
         String keycloakId = jwt.getSubject();
         User user = userService.getUserByKeycloakId(keycloakId);
 
-        List<GroupDTO> groups = groupService.getUserGroups(user.getId()).stream()
-                .map(groupService::toDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(ApiResponse.success(groups));
+        return ResponseEntity.ok(ApiResponse.success(
+                groupService.getUserGroupSummaries(user.getId(), page, size)));
     }
 
     @PutMapping("/{groupId}")
@@ -149,13 +152,20 @@ public class GroupController {
         return ResponseEntity.ok(ApiResponse.success("Group deleted successfully", null));
     }
 
+    // Ranked prefix suggestions for autocomplete
+    @GetMapping("/typeahead")
+    public ResponseEntity<ApiResponse<List<ConversationSummaryDTO>>> typeahead(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(typeaheadService.suggestGroups(query, limit)));
+    }
+
     @GetMapping("/search")
-    public ResponseEntity<ApiResponse<List<GroupDTO>>> searchGroups(
-            @RequestParam String query) {
-        List<GroupDTO> groups = groupService.searchGroups(query).stream()
-                .map(groupService::toDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(ApiResponse.success(groups));
+    public ResponseEntity<ApiResponse<Page<ConversationSummaryDTO>>> searchGroups(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(ApiResponse.success(groupService.searchGroupSummaries(query, page, size)));
     }
 
 }
@@ -0,0 +1,35 @@
+package com.github.superz97.chat.controller;
+
+import com.github.superz97.chat.dto.api.ApiResponse;
+import com.github.superz97.chat.dto.response.InboxEntryDTO;
+import com.github.superz97.chat.entity.User;
+import com.github.superz97.chat.service.InboxService;
+import com.github.superz97.chat.service.UserService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/inbox")
+@RequiredArgsConstructor
+public class InboxController {
+
+    private final InboxService inboxService;
+    private final UserService userService;
+
+    // Channels, groups and direct conversations, most recently active first
+    @GetMapping
+    public ResponseEntity<ApiResponse<Page<InboxEntryDTO>>> getInbox(
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "30") int size) {
+        String keycloakId = jwt.getSubject();
+        User user = userService.getUserByKeycloakId(keycloakId);
+
+        return ResponseEntity.ok(ApiResponse.success(inboxService.getInbox(user.getId(), page, size)));
+    }
+
+}
@@ -5,14 +5,18 @@ import com.github.superz97.chat.dto.response.MessageDTO;
 import com.github.superz97.chat.entity.Message;
 import com.github.superz97.chat.entity.User;
 import com.github.superz97.chat.service.MessageService;
+import com.github.superz97.chat.service.SendRateLimiter;
 import com.github.superz97.chat.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -23,12 +27,16 @@ public class MessageController {
 
     private final MessageService messageService;
     private final UserService userService;
+    private final SendRateLimiter sendRateLimiter;
 
     @PostMapping
     public ResponseEntity<ApiResponse<MessageDTO>> sendMessage(
             @AuthenticationPrincipal Jwt jwt,
+            Authentication authentication,
             @RequestBody MessageDTO.SendMessageRequest request) {
+        // Keyed by subject, the same key the WebSocket path uses
         String keycloakId = jwt.getSubject();
+        sendRateLimiter.acquire(keycloakId, authentication.getAuthorities(), request);
         User user = userService.getUserByKeycloakId(keycloakId);
 
         Message message = messageService.sendMessage(user.getId(), request);
@@ -44,21 +52,54 @@ public class MessageController {
 
     @GetMapping("/channel/{channelId}")
     public ResponseEntity<ApiResponse<Page<MessageDTO>>> getChannelMessages(
+            @AuthenticationPrincipal Jwt jwt,
             @PathVariable String channelId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "50") int size) {
-        Page<MessageDTO> messages = messageService.getChannelMessages(channelId, page, size)
-                .map(messageService::toDTO);
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "false") boolean includeAttachments,
+            @RequestParam(defaultValue = "false") boolean includeReaders) {
+        Page<MessageDTO> messages = messageService.toDTOPage(
+                messageService.getChannelMessages(channelId, page, size), includeAttachments,
+                viewerId(jwt), includeReaders);
         return ResponseEntity.ok(ApiResponse.success(messages));
     }
 
     @GetMapping("/group/{groupId}")
     public ResponseEntity<ApiResponse<Page<MessageDTO>>> getGroupMessages(
+            @AuthenticationPrincipal Jwt jwt,
             @PathVariable String groupId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "50") int size) {
-        Page<MessageDTO> messages = messageService.getGroupMessages(groupId, page, size)
-                .map(messageService::toDTO);
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "false") boolean includeAttachments,
+            @RequestParam(defaultValue = "false") boolean includeReaders) {
+        Page<MessageDTO> messages = messageService.toDTOPage(
+                messageService.getGroupMessages(groupId, page, size), includeAttachments,
+                viewerId(jwt), includeReaders);
+        return ResponseEntity.ok(ApiResponse.success(messages));
+    }
+
+    // Reconnect catch-up: everything after the last message the client has seen, oldest first
+    @GetMapping("/channel/{channelId}/since")
+    public ResponseEntity<ApiResponse<List<MessageDTO>>> getChannelMessagesSince(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable String channelId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+        String viewerId = viewerId(jwt);
+        List<MessageDTO> messages = messageService.getChannelMessagesSince(channelId, since).stream()
+                .map(message -> messageService.toDTO(message, viewerId, false))
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(ApiResponse.success(messages));
+    }
+
+    @GetMapping("/group/{groupId}/since")
+    public ResponseEntity<ApiResponse<List<MessageDTO>>> getGroupMessagesSince(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable String groupId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+        String viewerId = viewerId(jwt);
+        List<MessageDTO> messages = messageService.getGroupMessagesSince(groupId, since).stream()
+                .map(message -> messageService.toDTO(message, viewerId, false))
+                .collect(Collectors.toList());
         return ResponseEntity.ok(ApiResponse.success(messages));
     }
 
@@ -67,13 +108,15 @@ public class MessageController {
             @AuthenticationPrincipal Jwt jwt,
             @PathVariable String userId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "50") int size) {
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "false") boolean includeAttachments,
+            @RequestParam(defaultValue = "false") boolean includeReaders) {
         String keycloakId = jwt.getSubject();
         User currentUser = userService.getUserByKeycloakId(keycloakId);
 
-        Page<MessageDTO> messages = messageService.getPrivateMessages(
-                        currentUser.getId(), userId, page, size)
-                .map(messageService::toDTO);
+        Page<MessageDTO> messages = messageService.toDTOPage(
+                messageService.getPrivateMessages(currentUser.getId(), userId, page, size),
+                includeAttachments, currentUser.getId(), includeReaders);
         return ResponseEntity.ok(ApiResponse.success(messages));
     }
 
@@ -144,6 +187,17 @@ public class MessageController {
         return ResponseEntity.ok(ApiResponse.success(count));
     }
 
+    @GetMapping("/private/{userId}/unread/count")
+    public ResponseEntity<ApiResponse<Long>> getUnreadPrivateCount(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable String userId) {
+        String keycloakId = jwt.getSubject();
+        User user = userService.getUserByKeycloakId(keycloakId);
+
+        long count = messageService.getUnreadDirectMessageCount(user.getId(), userId);
+        return ResponseEntity.ok(ApiResponse.success(count));
+    }
+
     @GetMapping("/channel/{channelId}/unread/count")
     public ResponseEntity<ApiResponse<Long>> getUnreadChannelCount(
             @AuthenticationPrincipal Jwt jwt,
@@ -168,30 +222,50 @@ public class MessageController {
 
     @GetMapping("/channel/{channelId}/search")
     public ResponseEntity<ApiResponse<List<MessageDTO>>> searchInChannel(
+            @AuthenticationPrincipal Jwt jwt,
             @PathVariable String channelId,
             @RequestParam String query) {
+        String viewerId = viewerId(jwt);
         List<MessageDTO> messages = messageService.searchInChannel(channelId, query).stream()
-                .map(messageService::toDTO)
+                .map(message -> messageService.toDTO(message, viewerId, false))
                 .collect(Collectors.toList());
         return ResponseEntity.ok(ApiResponse.success(messages));
     }
 
     @GetMapping("/group/{groupId}/search")
     public ResponseEntity<ApiResponse<List<MessageDTO>>> searchInGroup(
+            @AuthenticationPrincipal Jwt jwt,
             @PathVariable String groupId,
             @RequestParam String query) {
+        String viewerId = viewerId(jwt);
         List<MessageDTO> messages = messageService.searchInGroup(groupId, query).stream()
-                .map(messageService::toDTO)
+                .map(message -> messageService.toDTO(message, viewerId, false))
                 .collect(Collectors.toList());
         return ResponseEntity.ok(ApiResponse.success(messages));
     }
 
     @GetMapping("/{messageId}/replies")
-    public ResponseEntity<ApiResponse<List<MessageDTO>>> getReplies(@PathVariable String messageId) {
+    public ResponseEntity<ApiResponse<List<MessageDTO>>> getReplies(
+            @AuthenticationPrincipal Jwt jwt,
+            @PathVariable String messageId) {
+        String viewerId = viewerId(jwt);
         List<MessageDTO> replies = messageService.getReplies(messageId).stream()
-                .map(messageService::toDTO)
+                .map(message -> messageService.toDTO(message, viewerId, false))
                 .collect(Collectors.toList());
         return ResponseEntity.ok(ApiResponse.success(replies));
     }
 
+    // Full reader list for one message, one page at a time
+    @GetMapping("/{messageId}/readers")
+    public ResponseEntity<ApiResponse<Page<String>>> getReaders(
+            @PathVariable String messageId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(ApiResponse.success(messageService.getReaders(messageId, page, size)));
+    }
+
+    private String viewerId(Jwt jwt) {
+        return userService.getUserIdByKeycloakId(jwt.getSubject());
+    }
+
 }
@@ -4,9 +4,12 @@ import com.github.superz97.chat.dto.api.ApiResponse;
 import com.github.superz97.chat.dto.request.UserProfileUpdateRequest;
 import com.github.superz97.chat.dto.request.UserStatusUpdateRequest;
 import com.github.superz97.chat.dto.response.UserDTO;
+import com.github.superz97.chat.dto.response.UserSummaryDTO;
 import com.github.superz97.chat.entity.User;
+import com.github.superz97.chat.service.TypeaheadService;
 import com.github.superz97.chat.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -21,6 +24,7 @@ import java.util.stream.Collectors;
 public class UserController {
 
     private final UserService userService;
+    private final TypeaheadService typeaheadService;
 
     @GetMapping("/me")
     public ResponseEntity<ApiResponse<UserDTO>> getCurrentUser(@AuthenticationPrincipal Jwt jwt) {
@@ -75,13 +79,20 @@ public class UserController {
         return ResponseEntity.ok(ApiResponse.success(users));
     }
 
+    // Ranked prefix suggestions for autocomplete
+    @GetMapping("/typeahead")
+    public ResponseEntity<ApiResponse<List<UserSummaryDTO>>> typeahead(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(typeaheadService.suggestUsers(query, limit)));
+    }
+
     @GetMapping("/search")
-    public ResponseEntity<ApiResponse<List<UserDTO>>> searchUsers(
-            @RequestParam String query) {
-        List<UserDTO> users = userService.searchUsers(query).stream()
-                .map(userService::toDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(ApiResponse.success(users));
+    public ResponseEntity<ApiResponse<Page<UserSummaryDTO>>> searchUsers(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(ApiResponse.success(userService.searchUserSummaries(query, page, size)));
     }
 
     @PostMapping("/block/{userId}")
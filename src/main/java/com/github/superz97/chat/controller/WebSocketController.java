@@ -2,18 +2,26 @@ package com.github.superz97.chat.controller;
 
 import com.github.superz97.chat.dto.response.MessageDTO;
 import com.github.superz97.chat.dto.response.TypingIndicatorDTO;
+import com.github.superz97.chat.dto.response.WebSocketErrorDTO;
 import com.github.superz97.chat.dto.response.WebSocketMessageDTO;
-import com.github.superz97.chat.entity.Message;
 import com.github.superz97.chat.entity.User;
 import com.github.superz97.chat.enums.WebSocketMessageType;
+import com.github.superz97.chat.exception.RateLimitExceededException;
+import com.github.superz97.chat.metrics.ChatMetrics;
 import com.github.superz97.chat.service.MessageService;
+import com.github.superz97.chat.service.ReadReceiptAggregator;
+import com.github.superz97.chat.service.SendRateLimiter;
 import com.github.superz97.chat.service.UserService;
 import com.github.superz97.chat.service.WebSocketService;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 
 import java.security.Principal;
@@ -26,33 +34,32 @@ public class WebSocketController {
     private final MessageService messageService;
     private final UserService userService;
     private final WebSocketService webSocketService;
+    private final ChatMetrics chatMetrics;
+    private final SendRateLimiter sendRateLimiter;
+    private final ReadReceiptAggregator readReceiptAggregator;
 
     @MessageMapping("/chat.sendMessage")
     public void sendMessage(@Payload MessageDTO.SendMessageRequest request,
                             Principal principal) {
+        Timer.Sample sample = chatMetrics.startTimer();
+        String conversationType = request.getChannelId() != null ? "channel"
+                : request.getGroupId() != null ? "group" : "private";
+        // Checked before any lookup so a flooding client costs no database work
+        Authentication authentication = principal instanceof Authentication auth ? auth : null;
+        sendRateLimiter.acquire(
+                authentication != null && authentication.getDetails() instanceof String subject ? subject : null,
+                authentication != null ? authentication.getAuthorities() : null, request);
         try {
             String username = principal.getName();
             User user = userService.getUserByUsername(username);
 
-            Message message = messageService.sendMessage(user.getId(), request);
-            MessageDTO messageDTO = messageService.toDTO(message);
+            // Subscribers are notified by the change stream relay once the insert lands
+            messageService.sendMessage(user.getId(), request);
 
-            WebSocketMessageDTO wsMessage = WebSocketMessageDTO.typed(
-                    WebSocketMessageType.MESSAGE,
-                    messageDTO
-            );
-
-            // Route message to appropriate destination
-            if (message.getChannelId() != null) {
-                webSocketService.sendToChannel(message.getChannelId(), wsMessage);
-            } else if (message.getGroupId() != null) {
-                webSocketService.sendToGroup(message.getGroupId(), wsMessage);
-            } else if (message.getRecipientId() != null) {
-                webSocketService.sendToUser(message.getRecipientId(), wsMessage);
-                webSocketService.sendToUser(message.getSenderId(), wsMessage);
-            }
+            chatMetrics.recordMessageSend(sample, conversationType, "success");
 
         } catch (Exception e) {
+            chatMetrics.recordMessageSend(sample, conversationType, "error");
             log.error("Error sending message via WebSocket", e);
         }
     }
@@ -120,20 +127,24 @@ public class WebSocketController {
             String username = principal.getName();
             User user = userService.getUserByUsername(username);
 
-            messageService.markAsRead(messageId, user.getId());
-
-            Message message = messageService.getMessageById(messageId);
-            WebSocketMessageDTO wsMessage = WebSocketMessageDTO.typed(
-                    WebSocketMessageType.MESSAGE_READ,
-                    messageService.toDTO(message)
-            );
-
-            // Notify sender
-            webSocketService.sendToUser(message.getSenderId(), wsMessage);
+            // Applied in bulk; senders get one compact MESSAGE_READ summary per window
+            readReceiptAggregator.record(user.getId(), messageId);
 
         } catch (Exception e) {
             log.error("Error marking message as read", e);
         }
     }
 
+    // Typed error on the sender's own queue; the connection stays open
+    @MessageExceptionHandler(RateLimitExceededException.class)
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public WebSocketMessageDTO handleRateLimitExceeded(RateLimitExceededException e) {
+        return WebSocketMessageDTO.typed(WebSocketMessageType.ERROR, WebSocketErrorDTO.builder()
+                .code(WebSocketErrorDTO.RATE_LIMITED)
+                .scope(e.getScope())
+                .message(e.getMessage())
+                .retryAfterMs(e.getRetryAfterMillis())
+                .build());
+    }
+
 }
@@ -28,6 +28,8 @@ public class ChannelDTO {
     private boolean active;
     private Integer maxMembers;
     private int currentMemberCount;
+    private Integer hotRetentionDays;
+    private Integer archiveRetentionDays;
 
     @Data
     @Builder
@@ -49,6 +51,8 @@ public class ChannelDTO {
         private String description;
         private String avatarUrl;
         private Integer maxMembers;
+        private Integer hotRetentionDays;
+        private Integer archiveRetentionDays;
     }
 
     @Data
@@ -0,0 +1,26 @@
+package com.github.superz97.chat.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * List-view projection of a channel or group. Member and admin id sets are
+ * never loaded; only their size is computed server-side.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationSummaryDTO {
+
+    private String id;
+    private String name;
+    private String avatarUrl;
+    private int memberCount;
+    private LocalDateTime lastActivity;
+
+}
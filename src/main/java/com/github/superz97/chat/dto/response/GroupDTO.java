@@ -26,6 +26,8 @@ public class GroupDTO {
     private boolean active;
     private Integer maxMembers;
     private int currentMemberCount;
+    private Integer hotRetentionDays;
+    private Integer archiveRetentionDays;
     private GroupSettingsDTO settings;
 
     @Data
@@ -58,6 +60,8 @@ public class GroupDTO {
         private String description;
         private String avatarUrl;
         private Integer maxMembers;
+        private Integer hotRetentionDays;
+        private Integer archiveRetentionDays;
     }
 
     @Data
@@ -0,0 +1,30 @@
+package com.github.superz97.chat.dto.response;
+
+import com.github.superz97.chat.enums.ConversationType;
+import com.github.superz97.chat.enums.MessageType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InboxEntryDTO {
+
+    private ConversationType conversationType;
+    private String conversationId;
+    private String name;
+    private String avatarUrl;
+    private String lastMessageId;
+    private String lastMessagePreview;
+    private MessageType lastMessageType;
+    private String lastSenderId;
+    private String lastSenderUsername;
+    private LocalDateTime lastActivity;
+    private int unreadCount;
+
+}
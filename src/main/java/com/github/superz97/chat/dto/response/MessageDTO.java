@@ -1,5 +1,6 @@
 package com.github.superz97.chat.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.github.superz97.chat.enums.MessageType;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -25,11 +26,18 @@ public class MessageDTO {
     private MessageType type;
     private String content;
     private List<String> attachmentIds;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<FileDTO> attachments; // Only populated when history is requested with includeAttachments
     private LocalDateTime timestamp;
     private LocalDateTime editedAt;
     private boolean edited;
     private boolean deleted;
+    // Full reader list only when explicitly requested; large rooms use readCount and readByMe
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Set<String> readBy;
+    private int readCount;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean readByMe;
     private String replyToMessageId;
 
     @Data
@@ -0,0 +1,27 @@
+package com.github.superz97.chat.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Compact read summary for a message sender: which of their messages one reader has read in one
+ * conversation. Direct messages carry neither channelId nor groupId; the reader is the peer.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadReceiptDTO {
+
+    private String readerId;
+    private String channelId;
+    private String groupId;
+    private List<String> messageIds;
+    // Epoch millis of the newest message in this batch
+    private long readUpTo;
+
+}
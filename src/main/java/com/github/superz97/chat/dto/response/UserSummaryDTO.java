@@ -0,0 +1,28 @@
+package com.github.superz97.chat.dto.response;
+
+import com.github.superz97.chat.enums.UserStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * List-view projection of a user, without membership or block lists.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSummaryDTO {
+
+    private String id;
+    private String username;
+    private String firstName;
+    private String lastName;
+    private String avatarUrl;
+    private UserStatus status;
+    private LocalDateTime lastSeen;
+
+}
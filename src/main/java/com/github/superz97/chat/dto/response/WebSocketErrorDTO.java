@@ -0,0 +1,21 @@
+package com.github.superz97.chat.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WebSocketErrorDTO {
+
+    public static final String RATE_LIMITED = "RATE_LIMITED";
+
+    private String code;
+    private String scope;
+    private String message;
+    private Long retryAfterMs;
+
+}
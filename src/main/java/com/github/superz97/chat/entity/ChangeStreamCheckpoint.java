@@ -0,0 +1,26 @@
+package com.github.superz97.chat.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "change_stream_checkpoints")
+public class ChangeStreamCheckpoint {
+
+    @Id
+    private String consumerId;
+
+    private String resumeToken; // Extended JSON of the change stream resume token
+
+    private LocalDateTime updatedAt;
+
+}
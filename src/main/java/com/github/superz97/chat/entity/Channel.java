@@ -51,4 +51,8 @@ public class    Channel {
 
     private Integer maxMembers;
 
+    // Retention policy; null falls back to chat.archive defaults
+    private Integer hotRetentionDays; // Messages older than this move to the archive tier
+    private Integer archiveRetentionDays; // Archived messages older than this are dropped (0 = keep)
+
 }
@@ -0,0 +1,53 @@
+package com.github.superz97.chat.entity;
+
+import com.github.superz97.chat.enums.ConversationType;
+import com.github.superz97.chat.enums.MessageType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of a user's conversation list, maintained on write: membership changes create and remove
+ * rows, sends update the last-message fields and unread counters, reads reset them.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "inbox_entries")
+@CompoundIndex(name = "user_activity", def = "{'userId': 1, 'lastActivity': -1}")
+@CompoundIndex(name = "user_conversation", def = "{'userId': 1, 'conversationType': 1, 'conversationId': 1}", unique = true)
+@CompoundIndex(name = "conversation", def = "{'conversationType': 1, 'conversationId': 1}")
+public class InboxEntry {
+
+    @Id
+    private String id;
+
+    private String userId;
+
+    private ConversationType conversationType;
+
+    private String conversationId; // Channel or group id, or the other user's id for DIRECT
+
+    private String name; // Channel/group name, or the other user's username
+
+    private String avatarUrl;
+
+    private String lastMessageId;
+    private String lastMessagePreview;
+    private MessageType lastMessageType;
+    private String lastSenderId;
+    private String lastSenderUsername;
+
+    // Last message time, or when the user joined if nothing has been sent since
+    private LocalDateTime lastActivity;
+
+    private int unreadCount;
+
+}
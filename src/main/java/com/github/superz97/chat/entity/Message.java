@@ -6,6 +6,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
@@ -23,6 +24,14 @@ import java.util.Set;
 @Document(collection = "messages")
 @CompoundIndex(name = "channel_timestamp", def = "{'channelId': 1, 'timestamp': -1}")
 @CompoundIndex(name = "group_timestamp", def = "{'groupId': 1, 'timestamp': -1}")
+@CompoundIndex(name = "conversation_timestamp", def = "{'conversationId': 1, 'timestamp': -1}",
+        partialFilter = "{'conversationId': {$exists: true}}")
+@CompoundIndex(name = "recipient_timestamp", def = "{'recipientId': 1, 'timestamp': -1}",
+        partialFilter = "{'recipientId': {$exists: true}}")
+@CompoundIndex(name = "channel_search_tokens", def = "{'channelId': 1, 'searchTokens': 1}",
+        partialFilter = "{'contentCompressed': true}")
+@CompoundIndex(name = "group_search_tokens", def = "{'groupId': 1, 'searchTokens': 1}",
+        partialFilter = "{'contentCompressed': true}")
 public class Message {
 
     @Id
@@ -35,13 +44,28 @@ public class Message {
 
     private String recipientId; // For private messages
 
+    private String conversationId; // For private messages: both user ids, ordered, see MessageService#directConversationId
+
     private String channelId; // For channel messages
 
     private String groupId; // For group messages
 
     private MessageType type;
 
-    private String content;
+    private String content; // Null when stored compressed
+
+    // Used instead of content when it is long enough to be worth compressing
+    private byte[] compressedContent;
+
+    @Builder.Default
+    private boolean contentCompressed = false;
+
+    @Transient
+    private String inflatedContent;
+
+    // Bounded set of lowercase words of compressed content, so search can find it without inflating;
+    // see MessageContentCompressor for the limits
+    private Set<String> searchTokens;
 
     @Builder.Default
     private List<String> attachmentIds = new ArrayList<>();
@@ -57,9 +81,24 @@ public class Message {
     @Builder.Default
     private boolean deleted = false;
 
+    private LocalDateTime deletedAt;
+
     @Builder.Default
     private Set<String> readBy = new HashSet<>();
 
     private String replyToMessageId; // For threaded conversations
 
+    private String bucketId; // Set when the conversation is stored in bucketed mode
+
+    // Decompressed on first access, so only content that is rendered or searched pays for it
+    public String getContent() {
+        if (!contentCompressed) {
+            return content;
+        }
+        if (inflatedContent == null && compressedContent != null) {
+            inflatedContent = MessageContentCodec.inflate(compressedContent);
+        }
+        return inflatedContent;
+    }
+
 }
@@ -0,0 +1,41 @@
+package com.github.superz97.chat.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * A run of consecutive archived messages of one channel or group, stored as a gzip-compressed
+ * BSON array. Segments are immutable; the id is derived from the first message so re-running an
+ * interrupted archive pass can't write the same messages twice.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "message_archive_segments")
+@CompoundIndex(name = "conversation_start", def = "{'conversationKey': 1, 'startTimestamp': -1}")
+public class MessageArchiveSegment {
+
+    @Id
+    private String id;
+
+    private String conversationKey; // channel:{id} or group:{id}
+
+    private int count;
+
+    private LocalDateTime startTimestamp;
+
+    private LocalDateTime endTimestamp;
+
+    private byte[] data;
+
+    private LocalDateTime archivedAt;
+
+}
@@ -0,0 +1,49 @@
+package com.github.superz97.chat.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Up to {@code chat.messages.bucket-size} consecutive messages of one channel or group, packed into
+ * a single document so a history page is one or two reads. Only the newest bucket of a
+ * conversation is open for appends.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "message_buckets")
+// count is part of the key so page lookups and totals are answered from the index alone
+@CompoundIndex(name = "conversation_start_count", def = "{'conversationKey': 1, 'startTimestamp': -1, 'count': 1}")
+@CompoundIndex(name = "conversation_open", def = "{'conversationKey': 1}", unique = true,
+        partialFilter = "{'open': true}")
+public class MessageBucket {
+
+    @Id
+    private String id;
+
+    private String conversationKey; // channel:{id} or group:{id}
+
+    @Builder.Default
+    private boolean open = true;
+
+    @Builder.Default
+    private int count = 0;
+
+    private LocalDateTime startTimestamp;
+
+    private LocalDateTime endTimestamp;
+
+    @Builder.Default
+    private List<Message> messages = new ArrayList<>();
+
+}
@@ -0,0 +1,67 @@
+package com.github.superz97.chat.entity;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Raw deflate at the fastest level for long message content. Lives next to the entity because
+ * {@link Message#getContent()} inflates lazily outside any Spring bean, which is also why the
+ * decompression timer goes through the global registry.
+ */
+public final class MessageContentCodec {
+
+    private static final Timer INFLATE_TIMER = Timer.builder("chat.message.content.decompress")
+            .description("Time spent inflating compressed message content")
+            .register(Metrics.globalRegistry);
+
+    private MessageContentCodec() {
+    }
+
+    public static byte[] deflate(String content) {
+        byte[] input = content.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 2);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static String inflate(byte[] compressed) {
+        long start = System.nanoTime();
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed message content");
+                }
+                output.write(buffer, 0, inflated);
+            }
+            return output.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed message content", e);
+        } finally {
+            inflater.end();
+            INFLATE_TIMER.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.github.superz97.chat.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "user_storage_usage")
+public class UserStorageUsage {
+
+    @Id
+    private String userId;
+
+    @Builder.Default
+    private long totalBytes = 0L;
+
+    @Builder.Default
+    private long fileCount = 0L;
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime lastReconciledAt;
+
+}
@@ -0,0 +1,7 @@
+package com.github.superz97.chat.enums;
+
+public enum ConversationType {
+    CHANNEL,
+    GROUP,
+    DIRECT
+}
@@ -0,0 +1,15 @@
+package com.github.superz97.chat.exception;
+
+import lombok.Getter;
+
+@Getter
+public class ConnectionThrottledException extends RuntimeException {
+
+    private final long retryAfterMillis;
+
+    public ConnectionThrottledException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+}
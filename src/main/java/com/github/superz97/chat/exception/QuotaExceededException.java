@@ -0,0 +1,7 @@
+package com.github.superz97.chat.exception;
+
+public class QuotaExceededException extends RuntimeException {
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.superz97.chat.exception;
+
+import lombok.Getter;
+
+@Getter
+public class RateLimitExceededException extends RuntimeException {
+
+    // user, channel, group, or recipient
+    private final String scope;
+    private final long retryAfterMillis;
+
+    public RateLimitExceededException(String scope, long retryAfterMillis) {
+        super("Sending too fast (" + scope + " limit), retry in " + retryAfterMillis + " ms");
+        this.scope = scope;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+}
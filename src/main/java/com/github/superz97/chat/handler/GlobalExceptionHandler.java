@@ -2,6 +2,7 @@ package com.github.superz97.chat.handler;
 
 import com.github.superz97.chat.dto.api.ApiResponse;
 import com.github.superz97.chat.exception.*;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -72,6 +73,26 @@ public class GlobalExceptionHandler {
                 .body(ApiResponse.error("File storage error", ex.getMessage()));
     }
 
+    @ExceptionHandler(QuotaExceededException.class)
+    @ResponseStatus(HttpStatus.INSUFFICIENT_STORAGE)
+    public ResponseEntity<ApiResponse<Void>> handleQuotaExceededException(
+            QuotaExceededException ex) {
+        return ResponseEntity
+                .status(HttpStatus.INSUFFICIENT_STORAGE)
+                .body(ApiResponse.error("Storage quota exceeded", ex.getMessage()));
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public ResponseEntity<ApiResponse<Void>> handleRateLimitExceededException(
+            RateLimitExceededException ex) {
+        // Retry-After is whole seconds; the exact wait is in the message
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString((ex.getRetryAfterMillis() + 999) / 1000))
+                .body(ApiResponse.error("Rate limit exceeded", ex.getMessage()));
+    }
+
     @ExceptionHandler(MaxUploadSizeExceededException.class)
     @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
     public ResponseEntity<ApiResponse<Void>> handleMaxSizeException(
@@ -0,0 +1,260 @@
+package com.github.superz97.chat.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Chat-specific meters on top of what Spring Boot already records
+ * ({@code spring.data.repository.invocations} per repository method and
+ * {@code mongodb.driver.commands} per Mongo command).
+ */
+@Component
+@RequiredArgsConstructor
+public class ChatMetrics implements SmartInitializingSingleton {
+
+    private final MeterRegistry meterRegistry;
+    private final ApplicationContext applicationContext;
+
+    private final Map<String, Counter> broadcastCounters = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> broadcastSizes = new ConcurrentHashMap<>();
+
+    public Timer.Sample startTimer() {
+        return Timer.start(meterRegistry);
+    }
+
+    // Receive-to-persist latency; fan-out happens afterwards, off this path, and is timed by recordMessageFanOut
+    public void recordMessageSend(Timer.Sample sample, String conversationType, String outcome) {
+        sample.stop(Timer.builder("chat.message.send")
+                .description("Time from receiving a message to persisting it; excludes fan-out")
+                .tag("conversation", conversationType)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    // Message timestamp to hand-off to this node's subscribers; for writes made on other nodes this includes clock skew
+    public void recordMessageFanOut(String conversationType, Date timestamp) {
+        if (timestamp == null) {
+            return;
+        }
+        Timer.builder("chat.message.fanout")
+                .description("Time from a message's timestamp to publishing it to this node's subscribers")
+                .tag("conversation", conversationType)
+                .register(meterRegistry)
+                .record(Math.max(0, System.currentTimeMillis() - timestamp.getTime()), TimeUnit.MILLISECONDS);
+    }
+
+    public void recordBroadcast(String destinationType, int payloadBytes) {
+        broadcastCounters.computeIfAbsent(destinationType, type -> Counter.builder("chat.websocket.broadcast")
+                .description("Messages published to the broker")
+                .tag("destination", type)
+                .register(meterRegistry)).increment();
+        broadcastSizes.computeIfAbsent(destinationType, type -> DistributionSummary.builder("chat.websocket.broadcast.size")
+                .description("Serialized payload size of published messages")
+                .baseUnit("bytes")
+                .tag("destination", type)
+                .register(meterRegistry)).record(payloadBytes);
+    }
+
+    public void recordOutboundDrop(String sessionClass, String reason) {
+        meterRegistry.counter("chat.websocket.outbound.dropped",
+                "session_class", sessionClass, "reason", reason).increment();
+    }
+
+    public void recordOutboundCoalesced(String sessionClass, int frames) {
+        meterRegistry.counter("chat.websocket.outbound.coalesced",
+                "session_class", sessionClass).increment(frames);
+    }
+
+    public void recordSlowConsumerDisconnect(String sessionClass) {
+        meterRegistry.counter("chat.websocket.outbound.disconnects",
+                "session_class", sessionClass).increment();
+    }
+
+    public <T> void registerOutboundQueueGauges(String sessionClass, T state,
+                                                ToDoubleFunction<T> totalDepth, ToDoubleFunction<T> maxDepth) {
+        Gauge.builder("chat.websocket.outbound.queue.depth", state, totalDepth)
+                .description("Frames waiting in per-session outbound queues")
+                .tag("session_class", sessionClass)
+                .register(meterRegistry);
+        Gauge.builder("chat.websocket.outbound.queue.depth.max", state, maxDepth)
+                .description("Deepest per-session outbound queue")
+                .tag("session_class", sessionClass)
+                .register(meterRegistry);
+    }
+
+    // Original vs stored byte counters give the savings ratio; the timer is the CPU cost
+    public void recordContentCompression(int originalBytes, int storedBytes, long nanos) {
+        meterRegistry.counter("chat.message.content.bytes", "form", "original").increment(originalBytes);
+        meterRegistry.counter("chat.message.content.bytes", "form", "stored").increment(storedBytes);
+        meterRegistry.timer("chat.message.content.compress").record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // result: hit (served from the verified-token cache), miss (verified), or invalid
+    public void recordJwtVerification(String result, long nanos) {
+        meterRegistry.timer("chat.security.jwt.verify", "result", result).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public <T> void registerInboundQueueGauges(T executor, ToDoubleFunction<T> queued, ToDoubleFunction<T> sessions) {
+        Gauge.builder("chat.websocket.inbound.queued", executor, queued)
+                .description("Inbound frames waiting in per-session queues")
+                .register(meterRegistry);
+        Gauge.builder("chat.websocket.inbound.sessions.active", executor, sessions)
+                .description("Sessions with inbound frames queued or running")
+                .register(meterRegistry);
+    }
+
+    public void recordInboundRejected() {
+        meterRegistry.counter("chat.websocket.inbound.rejected").increment();
+    }
+
+    // Read events per flush vs messages that were actually unread
+    public void recordReadReceiptFlush(int events, int applied) {
+        meterRegistry.summary("chat.read_receipts.batch.size").record(events);
+        meterRegistry.counter("chat.read_receipts.applied").increment(applied);
+    }
+
+    // scope: user, channel, group, or recipient
+    public void recordRateLimited(String scope) {
+        meterRegistry.counter("chat.message.rate_limited", "scope", scope).increment();
+    }
+
+    // outcome: admitted, rate_limited, or overloaded
+    public void recordConnectAdmission(String outcome) {
+        meterRegistry.counter("chat.websocket.connect.admission", "outcome", outcome).increment();
+    }
+
+    public void recordPresenceShed() {
+        meterRegistry.counter("chat.websocket.presence.shed").increment();
+    }
+
+    // Channel/group frames not delivered to a session because its user blocked the sender
+    public void recordBlockedDelivery() {
+        meterRegistry.counter("chat.websocket.blocked.dropped").increment();
+    }
+
+    public <T> void registerBlockListGauge(T index, ToDoubleFunction<T> relationships) {
+        Gauge.builder("chat.users.blocks", index, relationships)
+                .description("Block relationships held in the in-memory block list")
+                .register(meterRegistry);
+    }
+
+    public <T> void registerHandshakeGauge(T inFlight, ToDoubleFunction<T> count) {
+        Gauge.builder("chat.websocket.connect.in_flight", inFlight, count)
+                .description("CONNECT handshakes admitted and still being processed")
+                .register(meterRegistry);
+    }
+
+    // Sampled outbound frames of permessage-deflate sessions
+    public void recordFrameCompression(int originalBytes, int compressedBytes, long nanos) {
+        meterRegistry.counter("chat.websocket.compression.bytes", "form", "original").increment(originalBytes);
+        meterRegistry.counter("chat.websocket.compression.bytes", "form", "compressed").increment(compressedBytes);
+        meterRegistry.timer("chat.websocket.compression.deflate").record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public <T> void registerCompressionGauges(T sessions, ToDoubleFunction<T> count, ToDoubleFunction<T> memory) {
+        Gauge.builder("chat.websocket.compression.sessions", sessions, count)
+                .description("Sessions that negotiated permessage-deflate")
+                .register(meterRegistry);
+        Gauge.builder("chat.websocket.compression.memory", sessions, memory)
+                .description("Estimated deflate/inflate state held by compressed sessions")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    // Per negotiated format: JSON vs encoded bytes on the wire, and the transcode CPU cost
+    public void recordPayloadTranscode(String format, int jsonBytes, int encodedBytes, long nanos) {
+        meterRegistry.counter("chat.websocket.payload.bytes", "format", format, "form", "json").increment(jsonBytes);
+        meterRegistry.counter("chat.websocket.payload.bytes", "format", format, "form", "encoded").increment(encodedBytes);
+        meterRegistry.timer("chat.websocket.payload.transcode", "format", format).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // source: index, or fallback while the index is still loading
+    public void recordTypeaheadLookup(String kind, String source, long nanos) {
+        meterRegistry.timer("chat.search.typeahead", "kind", kind, "source", source).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public <T> void registerTypeaheadGauge(String kind, T index, ToDoubleFunction<T> entries) {
+        Gauge.builder("chat.search.typeahead.entries", index, entries)
+                .description("Names held in the in-memory typeahead index")
+                .tag("kind", kind)
+                .register(meterRegistry);
+    }
+
+    // Messages folded into one inbox fan-out write
+    public void recordInboxFlush(int messages) {
+        meterRegistry.summary("chat.inbox.flush.messages").record(messages);
+    }
+
+    // result: hit, miss, or bypass for requests the cache doesn't cover
+    public void recordHistoryCache(String result) {
+        meterRegistry.counter("chat.history.cache.requests", "result", result).increment();
+    }
+
+    public <T> void registerHistoryCacheGauges(T cache, ToDoubleFunction<T> conversations, ToDoubleFunction<T> bytes) {
+        Gauge.builder("chat.history.cache.conversations", cache, conversations)
+                .description("Conversations with a cached history tail")
+                .register(meterRegistry);
+        Gauge.builder("chat.history.cache.size", cache, bytes)
+                .description("Estimated memory held by cached history tails")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        // Looked up late: the registry comes from the broker config, which itself depends on beans using this class
+        SimpUserRegistry simpUserRegistry = applicationContext.getBean(SimpUserRegistry.class);
+        Gauge.builder("chat.websocket.users.active", simpUserRegistry, SimpUserRegistry::getUserCount)
+                .description("Connected users")
+                .register(meterRegistry);
+        Gauge.builder("chat.websocket.sessions.active", simpUserRegistry, ChatMetrics::countSessions)
+                .description("Open STOMP sessions")
+                .register(meterRegistry);
+        Gauge.builder("chat.websocket.subscriptions.active", simpUserRegistry, ChatMetrics::countSubscriptions)
+                .description("Active STOMP subscriptions")
+                .register(meterRegistry);
+
+        // taskExecutor plus the clientInbound/clientOutbound/broker channel executors
+        applicationContext.getBeansOfType(ThreadPoolTaskExecutor.class).forEach((name, executor) -> {
+            Gauge.builder("chat.executor.queue.depth", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                    .description("Tasks waiting in the executor queue")
+                    .tag("executor", name)
+                    .register(meterRegistry);
+            Gauge.builder("chat.executor.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                    .description("Threads currently running tasks")
+                    .tag("executor", name)
+                    .register(meterRegistry);
+        });
+    }
+
+    private static double countSessions(SimpUserRegistry registry) {
+        return registry.getUsers().stream()
+                .mapToInt(user -> user.getSessions().size())
+                .sum();
+    }
+
+    private static double countSubscriptions(SimpUserRegistry registry) {
+        return registry.getUsers().stream()
+                .map(SimpUser::getSessions)
+                .flatMap(sessions -> sessions.stream())
+                .mapToInt(session -> session.getSubscriptions().size())
+                .sum();
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.github.superz97.chat.repository;
+
+import com.github.superz97.chat.entity.ChangeStreamCheckpoint;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ChangeStreamCheckpointRepository extends MongoRepository<ChangeStreamCheckpoint, String> {
+}
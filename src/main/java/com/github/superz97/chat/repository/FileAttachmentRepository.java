@@ -1,28 +1,36 @@
 package com.github.superz97.chat.repository;
 
 import com.github.superz97.chat.entity.FileAttachment;
+import com.github.superz97.chat.enums.FileType;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface FileAttachmentRepository extends MongoRepository<FileAttachment, String> {
 
     List<FileAttachment> findByMessageId(String messageId);
 
+    List<FileAttachment> findByIdIn(Collection<String> ids);
+
     List<FileAttachment> findByUploaderId(String uploaderId);
 
     @Query("{ 'uploaderId': ?0, 'uploadedAt': { $gte: ?1, $lte: ?2 } }")
     List<FileAttachment> findByUploaderAndDateRange(String uploaderId, LocalDateTime startDate, LocalDateTime endDate);
 
     @Query("{ 'fileType': ?0 }")
-    List<FileAttachment> findByFileType(FileAttachment.FileType fileType);
+    List<FileAttachment> findByFileType(FileType fileType);
 
     @Query("{ 'uploaderId': ?0, 'fileType': ?1 }")
-    List<FileAttachment> findByUploaderAndFileType(String uploaderId, FileAttachment.FileType fileType);
+    List<FileAttachment> findByUploaderAndFileType(String uploaderId, FileType fileType);
 
     @Query("{ 'originalFileName': { $regex: ?0, $options: 'i' } }")
     List<FileAttachment> searchByFileName(String fileName);
@@ -41,4 +49,18 @@ public interface FileAttachmentRepository extends MongoRepository<FileAttachment
     @Query(value = "{ 'uploaderId': ?0 }", fields = "{ 'fileSize': 1 }")
     List<FileAttachment> findFileSizesByUploader(String uploaderId);
 
+    // Server-side storage totals, used to seed and reconcile the per-user usage counters
+    @Aggregation(pipeline = {
+            "{ '$match': { 'uploaderId': ?0 } }",
+            "{ '$group': { '_id': '$uploaderId', 'totalBytes': { '$sum': '$fileSize' }, 'fileCount': { '$sum': 1 } } }"
+    })
+    Optional<StorageTotal> sumStorageByUploader(String uploaderId);
+
+    @Aggregation(pipeline = {
+            "{ '$group': { '_id': '$uploaderId', 'totalBytes': { '$sum': '$fileSize' }, 'fileCount': { '$sum': 1 } } }"
+    })
+    Stream<StorageTotal> sumStorageByAllUploaders();
+
+    record StorageTotal(@Id String uploaderId, long totalBytes, long fileCount) {}
+
 }
@@ -0,0 +1,14 @@
+package com.github.superz97.chat.repository;
+
+import com.github.superz97.chat.entity.InboxEntry;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface InboxEntryRepository extends MongoRepository<InboxEntry, String> {
+
+    Page<InboxEntry> findByUserIdOrderByLastActivityDesc(String userId, Pageable pageable);
+
+}
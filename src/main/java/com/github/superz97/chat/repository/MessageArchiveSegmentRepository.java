@@ -0,0 +1,21 @@
+package com.github.superz97.chat.repository;
+
+import com.github.superz97.chat.entity.MessageArchiveSegment;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MessageArchiveSegmentRepository extends MongoRepository<MessageArchiveSegment, String> {
+
+    // Segment sizes only, newest first, to locate which segments hold a requested range
+    @Query(value = "{ 'conversationKey': ?0 }", fields = "{ 'count': 1, 'startTimestamp': 1 }",
+            sort = "{ 'startTimestamp': -1 }")
+    List<MessageArchiveSegment> findSummariesByConversationKey(String conversationKey);
+
+    long deleteByConversationKeyAndEndTimestampBefore(String conversationKey, LocalDateTime cutoff);
+
+}
@@ -5,6 +5,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -15,19 +16,21 @@ public interface MessageRepository extends MongoRepository<Message, String> {
 
     // Channel messages
     Page<Message> findByChannelIdAndDeletedFalseOrderByTimestampDesc(String channelId, Pageable pageable);
-    List<Message> findByChannelIdAndTimestampAfterAndDeletedFalse(String channelId, LocalDateTime since);
+    List<Message> findByChannelIdAndTimestampAfterAndDeletedFalseOrderByTimestampAsc(String channelId, LocalDateTime since);
 
     // Group messages
     Page<Message> findByGroupIdAndDeletedFalseOrderByTimestampDesc(String groupId, Pageable pageable);
-    List<Message> findByGroupIdAndTimestampAfterAndDeletedFalse(String groupId, LocalDateTime since);
+    List<Message> findByGroupIdAndTimestampAfterAndDeletedFalseOrderByTimestampAsc(String groupId, LocalDateTime since);
 
-    // Private messages between two users
+    // Private messages between two users; only used until every message has a conversationId
     @Query("{ $or: [ " +
             "{ 'senderId': ?0, 'recipientId': ?1 }, " +
             "{ 'senderId': ?1, 'recipientId': ?0 } " +
             "], 'deleted': false }")
     Page<Message> findPrivateMessagesBetweenUsers(String userId1, String userId2, Pageable pageable);
 
+    Page<Message> findByConversationIdAndDeletedFalse(String conversationId, Pageable pageable);
+
     @Query("{ 'channelId': ?0, 'content': { $regex: ?1, $options: 'i' }, 'deleted': false }")
     List<Message> searchInChannel(String channelId, String searchTerm);
 
@@ -44,10 +47,34 @@ public interface MessageRepository extends MongoRepository<Message, String> {
     @Query("{ 'groupId': ?0, 'readBy': { $nin: [?1] }, 'deleted': false }")
     List<Message> findUnreadGroupMessages(String groupId, String userId);
 
+    // Mark as read in place; $addToSet keeps concurrent readers from overwriting each other
+    @Query("{ 'recipientId': ?1, 'senderId': ?0, 'readBy': { $nin: [?1] }, 'deleted': false }")
+    @Update("{ '$addToSet': { 'readBy': ?1 } }")
+    long markPrivateMessagesRead(String senderId, String recipientId);
+
+    @Query("{ 'conversationId': ?0, 'recipientId': ?1, 'readBy': { $nin: [?1] }, 'deleted': false }")
+    @Update("{ '$addToSet': { 'readBy': ?1 } }")
+    long markConversationMessagesRead(String conversationId, String recipientId);
+
+    @Query("{ 'channelId': ?0, 'readBy': { $nin: [?1] }, 'deleted': false }")
+    @Update("{ '$addToSet': { 'readBy': ?1 } }")
+    long markChannelMessagesRead(String channelId, String userId);
+
+    @Query("{ 'groupId': ?0, 'readBy': { $nin: [?1] }, 'deleted': false }")
+    @Update("{ '$addToSet': { 'readBy': ?1 } }")
+    long markGroupMessagesRead(String groupId, String userId);
+
     // Count unread messages
     @Query(value = "{ 'recipientId': ?0, 'readBy': { $nin: [?0] }, 'deleted': false }", count = true)
     long countUnreadPrivateMessages(String userId);
 
+    @Query(value = "{ 'conversationId': ?0, 'recipientId': ?1, 'readBy': { $nin: [?1] }, 'deleted': false }",
+            count = true)
+    long countUnreadConversationMessages(String conversationId, String userId);
+
+    @Query(value = "{ 'senderId': ?0, 'recipientId': ?1, 'readBy': { $nin: [?1] }, 'deleted': false }", count = true)
+    long countUnreadPrivateMessagesFrom(String senderId, String recipientId);
+
     @Query(value = "{ 'channelId': ?0, 'readBy': { $nin: [?1] }, 'deleted': false }", count = true)
     long countUnreadChannelMessages(String channelId, String userId);
 
@@ -20,6 +20,12 @@ public interface UserRepository extends MongoRepository<User, String> {
     List<User> findByStatus(UserStatus status);
     List<User> findByIdIn(Set<String> ids);
 
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'username': 1 }")
+    Optional<User> findUsernameById(String id);
+
+    @Query(value = "{ 'keycloakId': ?0 }", fields = "{ '_id': 1 }")
+    Optional<User> findIdByKeycloakId(String keycloakId);
+
     @Query("{ 'username': { $regex: ?0, $options: 'i' } }")
     List<User> searchByUsername(String username);
 
@@ -0,0 +1,91 @@
+package com.github.superz97.chat.security;
+
+import com.github.superz97.chat.metrics.ChatMetrics;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches successfully verified tokens by SHA-256 of the raw token, so repeated REST calls and
+ * CONNECTs with the same bearer token skip signature verification. An entry never outlives the
+ * token's {@code exp}.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final ChatMetrics chatMetrics;
+    private final int maxEntries;
+    private final Duration maxTtl;
+    private final Map<String, CachedJwt> cache = new ConcurrentHashMap<>();
+
+    public CachingJwtDecoder(JwtDecoder delegate, ChatMetrics chatMetrics, int maxEntries, Duration maxTtl) {
+        this.delegate = delegate;
+        this.chatMetrics = chatMetrics;
+        this.maxEntries = maxEntries;
+        this.maxTtl = maxTtl;
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        long start = System.nanoTime();
+        String key = hash(token);
+        Instant now = Instant.now();
+
+        CachedJwt cached = cache.get(key);
+        if (cached != null) {
+            if (cached.validUntil().isAfter(now)) {
+                chatMetrics.recordJwtVerification("hit", System.nanoTime() - start);
+                return cached.jwt();
+            }
+            cache.remove(key, cached);
+        }
+
+        Jwt jwt;
+        try {
+            jwt = delegate.decode(token);
+        } catch (JwtException e) {
+            chatMetrics.recordJwtVerification("invalid", System.nanoTime() - start);
+            throw e;
+        }
+
+        Instant validUntil = now.plus(maxTtl);
+        if (jwt.getExpiresAt() != null && jwt.getExpiresAt().isBefore(validUntil)) {
+            validUntil = jwt.getExpiresAt();
+        }
+        if (cache.size() >= maxEntries) {
+            evictExpired(now);
+        }
+        cache.put(key, new CachedJwt(jwt, validUntil));
+        chatMetrics.recordJwtVerification("miss", System.nanoTime() - start);
+        return jwt;
+    }
+
+    private void evictExpired(Instant now) {
+        cache.values().removeIf(entry -> !entry.validUntil().isAfter(now));
+        // Still full of live tokens: start over rather than track recency on the hot path
+        if (cache.size() >= maxEntries) {
+            cache.clear();
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record CachedJwt(Jwt jwt, Instant validUntil) {}
+
+}
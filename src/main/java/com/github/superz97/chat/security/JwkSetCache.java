@@ -0,0 +1,91 @@
+package com.github.superz97.chat.security;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Keeps the realm's JWK set in memory and refreshes it in the background. A failed refresh keeps
+ * serving the last good set (stale-while-revalidate) for up to {@code jwk-max-stale-ms}, so a
+ * Keycloak outage doesn't block token verification.
+ */
+@Component
+@Slf4j
+public class JwkSetCache implements JWKSource<SecurityContext> {
+
+    private static final int SIZE_LIMIT = 512 * 1024;
+
+    private final URI jwkSetUri;
+    private final int timeoutMs;
+    private final long maxStaleMs;
+    private final long refetchMinIntervalMs;
+
+    private volatile JWKSet current;
+    private volatile long fetchedAt;
+    private volatile long lastAttemptAt;
+
+    public JwkSetCache(@Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+                       @Value("${chat.security.jwt.jwk-timeout-ms}") int timeoutMs,
+                       @Value("${chat.security.jwt.jwk-max-stale-ms}") long maxStaleMs,
+                       @Value("${chat.security.jwt.jwk-refetch-min-interval-ms}") long refetchMinIntervalMs) {
+        this.jwkSetUri = URI.create(jwkSetUri);
+        this.timeoutMs = timeoutMs;
+        this.maxStaleMs = maxStaleMs;
+        this.refetchMinIntervalMs = refetchMinIntervalMs;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${chat.security.jwt.jwk-refresh-interval-ms}")
+    public void refresh() {
+        fetch(false);
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws KeySourceException {
+        JWKSet jwkSet = usableSet();
+        List<JWK> keys = jwkSet != null ? jwkSelector.select(jwkSet) : List.of();
+        // Unknown kid usually means a key rotation happened since the last refresh
+        if (keys.isEmpty() && System.currentTimeMillis() - lastAttemptAt >= refetchMinIntervalMs) {
+            fetch(true);
+            jwkSet = usableSet();
+            keys = jwkSet != null ? jwkSelector.select(jwkSet) : List.of();
+        }
+        if (jwkSet == null) {
+            throw new KeySourceException("No JWK set available from " + jwkSetUri);
+        }
+        return keys;
+    }
+
+    private JWKSet usableSet() {
+        JWKSet jwkSet = current;
+        if (jwkSet != null && System.currentTimeMillis() - fetchedAt > maxStaleMs) {
+            return null;
+        }
+        return jwkSet;
+    }
+
+    private synchronized void fetch(boolean onDemand) {
+        long now = System.currentTimeMillis();
+        // Callers that queued behind an on-demand fetch reuse its result instead of refetching
+        if (onDemand && now - lastAttemptAt < refetchMinIntervalMs) {
+            return;
+        }
+        lastAttemptAt = now;
+        try {
+            current = JWKSet.load(jwkSetUri.toURL(), timeoutMs, timeoutMs, SIZE_LIMIT);
+            fetchedAt = System.currentTimeMillis();
+        } catch (Exception e) {
+            log.warn("Failed to refresh JWK set from {}, serving cached keys: {}", jwkSetUri, e.getMessage());
+        }
+    }
+
+}
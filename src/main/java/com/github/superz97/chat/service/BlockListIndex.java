@@ -0,0 +1,112 @@
+package com.github.superz97.chat.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Who-blocked-whom over dense int ordinals. Only users that take part in a block get an ordinal;
+ * each blocker maps to a sorted {@code int[]} of the ordinals they blocked, replaced whole on every
+ * change, so a lookup is two map reads and a binary search with no locking. Writes are serialized.
+ */
+public class BlockListIndex {
+
+    private static final int[] NONE = new int[0];
+
+    private final Map<String, Integer> ordinals = new ConcurrentHashMap<>();
+    // Indexed by blocker ordinal; swapped for a larger copy when full, before the new ordinal is published
+    private volatile AtomicReferenceArray<int[]> blocked = new AtomicReferenceArray<>(64);
+    private volatile int relationships;
+    private int nextOrdinal;
+
+    public boolean isBlocked(String userId, String targetUserId) {
+        Integer blocker = ordinals.get(userId);
+        if (blocker == null) {
+            return false;
+        }
+        Integer target = ordinals.get(targetUserId);
+        if (target == null) {
+            return false;
+        }
+        int[] targets = blocked.get(blocker);
+        return targets != null && Arrays.binarySearch(targets, target) >= 0;
+    }
+
+    public synchronized void block(String userId, String targetUserId) {
+        int blocker = ordinal(userId);
+        int target = ordinal(targetUserId);
+        int[] targets = targets(blocker);
+        int at = Arrays.binarySearch(targets, target);
+        if (at >= 0) {
+            return;
+        }
+        int insertAt = -at - 1;
+        int[] updated = new int[targets.length + 1];
+        System.arraycopy(targets, 0, updated, 0, insertAt);
+        updated[insertAt] = target;
+        System.arraycopy(targets, insertAt, updated, insertAt + 1, targets.length - insertAt);
+        blocked.set(blocker, updated);
+        relationships++;
+    }
+
+    // Ordinals are not reclaimed here; a rebuild starts from a fresh index
+    public synchronized void unblock(String userId, String targetUserId) {
+        Integer blocker = ordinals.get(userId);
+        Integer target = ordinals.get(targetUserId);
+        if (blocker == null || target == null) {
+            return;
+        }
+        int[] targets = targets(blocker);
+        int at = Arrays.binarySearch(targets, target);
+        if (at < 0) {
+            return;
+        }
+        int[] updated = new int[targets.length - 1];
+        System.arraycopy(targets, 0, updated, 0, at);
+        System.arraycopy(targets, at + 1, updated, at, targets.length - at - 1);
+        blocked.set(blocker, updated.length > 0 ? updated : null);
+        relationships--;
+    }
+
+    // Replaces the user's whole block list, e.g. with what is stored on their document
+    public synchronized void replace(String userId, Collection<String> targetUserIds) {
+        int blocker = ordinal(userId);
+        int[] updated = targetUserIds.stream().mapToInt(this::ordinal).sorted().distinct().toArray();
+        relationships += updated.length - targets(blocker).length;
+        blocked.set(blocker, updated.length > 0 ? updated : null);
+    }
+
+    public boolean isEmpty() {
+        return relationships == 0;
+    }
+
+    public int relationships() {
+        return relationships;
+    }
+
+    private int[] targets(int blocker) {
+        int[] targets = blocked.get(blocker);
+        return targets != null ? targets : NONE;
+    }
+
+    private int ordinal(String userId) {
+        Integer existing = ordinals.get(userId);
+        if (existing != null) {
+            return existing;
+        }
+        int ordinal = nextOrdinal++;
+        AtomicReferenceArray<int[]> current = blocked;
+        if (ordinal >= current.length()) {
+            AtomicReferenceArray<int[]> grown = new AtomicReferenceArray<>(current.length() * 2);
+            for (int i = 0; i < current.length(); i++) {
+                grown.set(i, current.get(i));
+            }
+            blocked = grown;
+        }
+        ordinals.put(userId, ordinal);
+        return ordinal;
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.entity.User;
+import com.github.superz97.chat.metrics.ChatMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * In-memory copy of every user's block list, used by the direct-message send check and by the
+ * outbound filter on channel and group fan-out. Loaded in the background from the users that have
+ * blocked someone and kept current by {@link UserService}; until the first load finishes callers
+ * fall back to reading the user document.
+ *
+ * <p>Blocks made on other nodes show up with the next periodic reload.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BlockListService {
+
+    private final MongoTemplate mongoTemplate;
+    private final ChatMetrics chatMetrics;
+
+    private volatile BlockListIndex index;
+    // Guards the swap; local changes made while a reload streams are logged and replayed onto it
+    private final Object changeLock = new Object();
+    private List<Change> changesDuringLoad;
+
+    private record Change(String userId, String blockedUserId, boolean blocked) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Async
+    public void onApplicationReady() {
+        chatMetrics.registerBlockListGauge(this, BlockListService::relationships);
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${chat.block-list.refresh-interval-ms}",
+            initialDelayString = "${chat.block-list.refresh-interval-ms}")
+    public synchronized void rebuild() {
+        synchronized (changeLock) {
+            changesDuringLoad = new ArrayList<>();
+        }
+        try {
+            long start = System.nanoTime();
+            BlockListIndex fresh = new BlockListIndex();
+            Query query = new Query(Criteria.where("blockedUserIds.0").exists(true));
+            query.fields().include("blockedUserIds");
+            try (Stream<Document> users = mongoTemplate.stream(query, Document.class,
+                    mongoTemplate.getCollectionName(User.class))) {
+                users.forEach(user -> fresh.replace(user.get("_id").toString(),
+                        user.getList("blockedUserIds", String.class, List.of())));
+            }
+            // Replayed after the load so a stale document read from the cursor can't undo a newer change
+            synchronized (changeLock) {
+                changesDuringLoad.forEach(change -> apply(fresh, change));
+                index = fresh;
+            }
+            log.info("Block list index rebuilt: {} blocks in {} ms", fresh.relationships(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.error("Failed to rebuild block list index", e);
+        } finally {
+            synchronized (changeLock) {
+                changesDuringLoad = null;
+            }
+        }
+    }
+
+    public boolean isLoaded() {
+        return index != null;
+    }
+
+    // Cheap guard for the per-frame filter: nothing to check until someone has blocked someone
+    public boolean hasBlocks() {
+        BlockListIndex current = index;
+        return current != null && !current.isEmpty();
+    }
+
+    public boolean isBlocked(String userId, String targetUserId) {
+        BlockListIndex current = index;
+        return current != null && current.isBlocked(userId, targetUserId);
+    }
+
+    // Called after the change is saved, so a reload that starts later reads it from the database
+    public void block(String userId, String blockedUserId) {
+        record(new Change(userId, blockedUserId, true));
+    }
+
+    public void unblock(String userId, String blockedUserId) {
+        record(new Change(userId, blockedUserId, false));
+    }
+
+    private void record(Change change) {
+        synchronized (changeLock) {
+            if (index != null) {
+                apply(index, change);
+            }
+            if (changesDuringLoad != null) {
+                changesDuringLoad.add(change);
+            }
+        }
+    }
+
+    private static void apply(BlockListIndex target, Change change) {
+        if (change.blocked()) {
+            target.block(change.userId(), change.blockedUserId());
+        } else {
+            target.unblock(change.userId(), change.blockedUserId());
+        }
+    }
+
+    private double relationships() {
+        BlockListIndex current = index;
+        return current != null ? current.relationships() : 0;
+    }
+
+}
@@ -1,8 +1,10 @@
 package com.github.superz97.chat.service;
 
 import com.github.superz97.chat.dto.response.ChannelDTO;
+import com.github.superz97.chat.dto.response.ConversationSummaryDTO;
 import com.github.superz97.chat.entity.Channel;
 import com.github.superz97.chat.enums.ChannelType;
+import com.github.superz97.chat.enums.ConversationType;
 import com.github.superz97.chat.exception.BadRequestException;
 import com.github.superz97.chat.exception.DuplicateResourceException;
 import com.github.superz97.chat.exception.ForbiddenException;
@@ -11,11 +13,16 @@ import com.github.superz97.chat.repository.ChannelRepository;
 import com.github.superz97.chat.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.regex.Pattern;
 
 @Service
 @RequiredArgsConstructor
@@ -24,6 +31,9 @@ public class ChannelService {
 
     private final ChannelRepository channelRepository;
     private final UserService userService;
+    private final SummaryQueryService summaryQueryService;
+    private final TypeaheadService typeaheadService;
+    private final InboxService inboxService;
 
     @Transactional
     public Channel createChannel(String creatorId, ChannelDTO.CreateChannelRequest request) {
@@ -47,6 +57,9 @@ public class ChannelService {
 
         Channel savedChannel = channelRepository.save(channel);
         userService.addChannelToUser(creatorId, savedChannel.getId());
+        typeaheadService.indexChannel(savedChannel);
+        inboxService.join(creatorId, ConversationType.CHANNEL, savedChannel.getId(),
+                savedChannel.getName(), savedChannel.getAvatarUrl());
 
         return savedChannel;
     }
@@ -98,8 +111,21 @@ public class ChannelService {
             channel.setMaxMembers(request.getMaxMembers());
         }
 
+        if (request.getHotRetentionDays() != null) {
+            channel.setHotRetentionDays(request.getHotRetentionDays());
+        }
+
+        if (request.getArchiveRetentionDays() != null) {
+            channel.setArchiveRetentionDays(request.getArchiveRetentionDays());
+        }
+
         channel.setUpdatedAt(LocalDateTime.now());
-        return channelRepository.save(channel);
+        Channel savedChannel = channelRepository.save(channel);
+        typeaheadService.indexChannel(savedChannel);
+        if (request.getName() != null || request.getAvatarUrl() != null) {
+            inboxService.rename(ConversationType.CHANNEL, channelId, savedChannel.getName(), savedChannel.getAvatarUrl());
+        }
+        return savedChannel;
     }
 
     @Transactional
@@ -127,8 +153,10 @@ public class ChannelService {
         channel.getMemberIds().add(memberIdToAdd);
         channel.setUpdatedAt(LocalDateTime.now());
         channelRepository.save(channel);
+        typeaheadService.indexChannel(channel);
 
         userService.addChannelToUser(memberIdToAdd, channelId);
+        inboxService.join(memberIdToAdd, ConversationType.CHANNEL, channelId, channel.getName(), channel.getAvatarUrl());
     }
 
     @Transactional
@@ -151,8 +179,10 @@ public class ChannelService {
         channel.getAdminIds().remove(memberIdToRemove);
         channel.setUpdatedAt(LocalDateTime.now());
         channelRepository.save(channel);
+        typeaheadService.indexChannel(channel);
 
         userService.removeChannelFromUser(memberIdToRemove, channelId);
+        inboxService.leave(memberIdToRemove, ConversationType.CHANNEL, channelId);
     }
 
     @Transactional
@@ -207,10 +237,12 @@ public class ChannelService {
         channel.setActive(false);
         channel.setUpdatedAt(LocalDateTime.now());
         channelRepository.save(channel);
+        typeaheadService.indexChannel(channel);
 
         // Remove channel from all users
         channel.getMemberIds().forEach(memberId ->
                 userService.removeChannelFromUser(memberId, channelId));
+        inboxService.removeConversation(ConversationType.CHANNEL, channelId);
     }
 
     public boolean isMember(String channelId, String userId) {
@@ -222,7 +254,24 @@ public class ChannelService {
     }
 
     public List<Channel> searchChannels(String searchTerm) {
-        return channelRepository.searchByName(searchTerm);
+        return channelRepository.searchByName(Pattern.quote(searchTerm));
+    }
+
+    public Page<ConversationSummaryDTO> getPublicChannelSummaries(int page, int size) {
+        return summaries(Criteria.where("type").is(ChannelType.PUBLIC), page, size);
+    }
+
+    public Page<ConversationSummaryDTO> getUserChannelSummaries(String userId, int page, int size) {
+        return summaries(Criteria.where("memberIds").is(userId), page, size);
+    }
+
+    public Page<ConversationSummaryDTO> searchChannelSummaries(String searchTerm, int page, int size) {
+        return summaries(Criteria.where("name").regex(Pattern.quote(searchTerm), "i"), page, size);
+    }
+
+    private Page<ConversationSummaryDTO> summaries(Criteria criteria, int page, int size) {
+        return summaryQueryService.conversations(Channel.class, criteria.and("active").is(true),
+                PageRequest.of(page, size, Sort.by("name")));
     }
 
     public ChannelDTO toDTO(Channel channel) {
@@ -240,6 +289,8 @@ public class ChannelService {
                 .active(channel.isActive())
                 .maxMembers(channel.getMaxMembers())
                 .currentMemberCount(channel.getMemberIds().size())
+                .hotRetentionDays(channel.getHotRetentionDays())
+                .archiveRetentionDays(channel.getArchiveRetentionDays())
                 .build();
     }
 
@@ -0,0 +1,89 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.entity.Message;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Backfills {@code conversationId} on private messages written before it existed. Runs in the
+ * background after startup, in batches, computing the id server side; until no message is left
+ * without one, private history and read marking keep using the sender/recipient pair queries.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DirectConversationMigration {
+
+    private final MongoTemplate mongoTemplate;
+
+    private volatile boolean complete;
+
+    @Value("${chat.messages.direct-conversation-backfill.batch-size}")
+    private int batchSize;
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Async
+    public void onApplicationReady() {
+        migrate();
+    }
+
+    // Retries a backfill that failed or was interrupted; a no-op once complete
+    @Scheduled(fixedDelayString = "${chat.messages.direct-conversation-backfill.retry-interval-ms}",
+            initialDelayString = "${chat.messages.direct-conversation-backfill.retry-interval-ms}")
+    public synchronized void migrate() {
+        if (complete) {
+            return;
+        }
+        try {
+            long migrated = 0;
+            List<Object> ids;
+            while (!(ids = nextBatch()).isEmpty()) {
+                migrated += mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids)),
+                        conversationIdUpdate(), Message.class).getModifiedCount();
+            }
+            complete = true;
+            if (migrated > 0) {
+                log.info("Direct conversation backfill finished: {} private messages updated", migrated);
+            }
+        } catch (Exception e) {
+            log.error("Direct conversation backfill failed; private history stays on pair queries", e);
+        }
+    }
+
+    private List<Object> nextBatch() {
+        Query query = Query.query(Criteria.where("recipientId").exists(true).and("conversationId").exists(false))
+                .limit(batchSize);
+        query.fields().include("_id");
+        return mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(Message.class)).stream()
+                .map(document -> document.get("_id"))
+                .toList();
+    }
+
+    // Mirrors MessageService#directConversationId
+    private static AggregationUpdate conversationIdUpdate() {
+        Document ordered = new Document("$concat", List.of("$senderId", ":", "$recipientId"));
+        Document reversed = new Document("$concat", List.of("$recipientId", ":", "$senderId"));
+        Document conversationId = new Document("$cond",
+                List.of(new Document("$lt", List.of("$senderId", "$recipientId")), ordered, reversed));
+        return AggregationUpdate.from(List.of(context -> new Document("$set",
+                new Document("conversationId", conversationId))));
+    }
+
+}
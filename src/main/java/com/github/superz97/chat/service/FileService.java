@@ -1,6 +1,5 @@
 package com.github.superz97.chat.service;
 
-import com.github.superz97.chat.config.FileStorageConfig;
 import com.github.superz97.chat.dto.response.FileDTO;
 import com.github.superz97.chat.entity.FileAttachment;
 import com.github.superz97.chat.entity.User;
@@ -8,22 +7,22 @@ import com.github.superz97.chat.enums.FileType;
 import com.github.superz97.chat.exception.FileStorageException;
 import com.github.superz97.chat.exception.ResourceNotFoundException;
 import com.github.superz97.chat.repository.FileAttachmentRepository;
+import com.github.superz97.chat.storage.BlobStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -33,8 +32,9 @@ import java.util.stream.Collectors;
 public class FileService {
 
     private final FileAttachmentRepository fileAttachmentRepository;
-    private final FileStorageConfig fileStorageConfig;
+    private final BlobStore blobStore;
     private final UserService userService;
+    private final StorageUsageService storageUsageService;
 
     @Transactional
     public FileAttachment uploadFile(MultipartFile file, String uploaderId, String messageId) {
@@ -44,26 +44,29 @@ public class FileService {
 
         String originalFileName = StringUtils.cleanPath(file.getOriginalFilename());
 
-        try {
-            if (originalFileName.contains("..")) {
-                throw new FileStorageException("Invalid file path: " + originalFileName);
-            }
+        if (originalFileName.contains("..")) {
+            throw new FileStorageException("Invalid file path: " + originalFileName);
+        }
+
+        storageUsageService.reserve(uploaderId, file.getSize());
 
+        try {
             String fileExtension = getFileExtension(originalFileName);
             String storedFileName = UUID.randomUUID().toString() + fileExtension;
 
             FileType fileType = FileAttachment.determineFileType(file.getContentType());
             String subDirectory = getSubDirectoryForFileType(fileType);
 
-            Path targetLocation = fileStorageConfig.getSubDirectory(subDirectory)
-                    .resolve(storedFileName);
+            String filePath = subDirectory + "/" + storedFileName;
 
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+            try (InputStream content = file.getInputStream()) {
+                blobStore.put(filePath, content, file.getSize(), file.getContentType());
+            }
 
             FileAttachment fileAttachment = FileAttachment.builder()
                     .originalFileName(originalFileName)
                     .storedFileName(storedFileName)
-                    .filePath(subDirectory + "/" + storedFileName)
+                    .filePath(filePath)
                     .contentType(file.getContentType())
                     .fileSize(file.getSize())
                     .uploaderId(uploaderId)
@@ -76,7 +79,11 @@ public class FileService {
             return fileAttachmentRepository.save(fileAttachment);
 
         } catch (IOException ex) {
+            storageUsageService.release(uploaderId, file.getSize());
             throw new FileStorageException("Could not store file " + originalFileName, ex);
+        } catch (RuntimeException ex) {
+            storageUsageService.release(uploaderId, file.getSize());
+            throw ex;
         }
     }
 
@@ -86,21 +93,13 @@ public class FileService {
     }
 
     public Resource loadFileAsResource(String fileId) {
+        FileAttachment fileAttachment = getFileById(fileId);
         try {
-            FileAttachment fileAttachment = getFileById(fileId);
-            Path filePath = fileStorageConfig.getFileStorageLocation()
-                    .resolve(fileAttachment.getFilePath())
-                    .normalize();
-
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists()) {
-                return resource;
-            } else {
-                throw new ResourceNotFoundException("File not found: " + fileAttachment.getOriginalFileName());
-            }
-        } catch (MalformedURLException ex) {
-            throw new FileStorageException("File not found", ex);
+            return blobStore.load(fileAttachment.getFilePath());
+        } catch (FileNotFoundException ex) {
+            throw new ResourceNotFoundException("File not found: " + fileAttachment.getOriginalFileName());
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not load file " + fileAttachment.getOriginalFileName(), ex);
         }
     }
 
@@ -108,6 +107,15 @@ public class FileService {
         return fileAttachmentRepository.findByMessageId(messageId);
     }
 
+    // One $in query for a whole page of messages instead of a lookup per attachment
+    public Map<String, FileDTO> getFileDTOsByIds(Collection<String> fileIds) {
+        if (fileIds.isEmpty()) {
+            return Map.of();
+        }
+        return fileAttachmentRepository.findByIdIn(fileIds).stream()
+                .collect(Collectors.toMap(FileAttachment::getId, this::toDTO));
+    }
+
     public List<FileAttachment> getFilesByUploader(String uploaderId) {
         return fileAttachmentRepository.findByUploaderId(uploaderId);
     }
@@ -124,12 +132,10 @@ public class FileService {
         }
 
         try {
-            Path filePath = fileStorageConfig.getFileStorageLocation()
-                    .resolve(fileAttachment.getFilePath())
-                    .normalize();
-
-            Files.deleteIfExists(filePath);
+            blobStore.delete(fileAttachment.getFilePath());
             fileAttachmentRepository.delete(fileAttachment);
+            storageUsageService.release(userId,
+                    fileAttachment.getFileSize() != null ? fileAttachment.getFileSize() : 0L);
 
         } catch (IOException ex) {
             throw new FileStorageException("Could not delete file", ex);
@@ -137,10 +143,7 @@ public class FileService {
     }
 
     public long calculateUserStorageUsage(String userId) {
-        List<FileAttachment> files = fileAttachmentRepository.findFileSizesByUploader(userId);
-        return files.stream()
-                .mapToLong(FileAttachment::getFileSize)
-                .sum();
+        return storageUsageService.getUsage(userId);
     }
 
     private String getFileExtension(String fileName) {
@@ -1,18 +1,25 @@
 package com.github.superz97.chat.service;
 
+import com.github.superz97.chat.dto.response.ConversationSummaryDTO;
 import com.github.superz97.chat.dto.response.GroupDTO;
 import com.github.superz97.chat.entity.Group;
+import com.github.superz97.chat.enums.ConversationType;
 import com.github.superz97.chat.exception.BadRequestException;
 import com.github.superz97.chat.exception.ForbiddenException;
 import com.github.superz97.chat.exception.ResourceNotFoundException;
 import com.github.superz97.chat.repository.GroupRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.regex.Pattern;
 
 @Service
 @RequiredArgsConstructor
@@ -21,6 +28,9 @@ public class GroupService {
 
     private final GroupRepository groupRepository;
     private final UserService userService;
+    private final SummaryQueryService summaryQueryService;
+    private final TypeaheadService typeaheadService;
+    private final InboxService inboxService;
 
     @Transactional
     public Group createGroup(String creatorId, GroupDTO.CreateGroupRequest request) {
@@ -49,10 +59,13 @@ public class GroupService {
         }
 
         Group savedGroup = groupRepository.save(group);
+        typeaheadService.indexGroup(savedGroup);
 
         // Update all members
         savedGroup.getMemberIds().forEach(memberId ->
                 userService.addGroupToUser(memberId, savedGroup.getId()));
+        inboxService.joinAll(savedGroup.getMemberIds(), ConversationType.GROUP, savedGroup.getId(),
+                savedGroup.getName(), savedGroup.getAvatarUrl());
 
         return savedGroup;
     }
@@ -92,8 +105,21 @@ public class GroupService {
             group.setMaxMembers(request.getMaxMembers());
         }
 
+        if (request.getHotRetentionDays() != null) {
+            group.setHotRetentionDays(request.getHotRetentionDays());
+        }
+
+        if (request.getArchiveRetentionDays() != null) {
+            group.setArchiveRetentionDays(request.getArchiveRetentionDays());
+        }
+
         group.setUpdatedAt(LocalDateTime.now());
-        return groupRepository.save(group);
+        Group savedGroup = groupRepository.save(group);
+        typeaheadService.indexGroup(savedGroup);
+        if (request.getName() != null || request.getAvatarUrl() != null) {
+            inboxService.rename(ConversationType.GROUP, groupId, savedGroup.getName(), savedGroup.getAvatarUrl());
+        }
+        return savedGroup;
     }
 
     @Transactional
@@ -154,8 +180,10 @@ public class GroupService {
         group.getMemberIds().add(memberIdToAdd);
         group.setUpdatedAt(LocalDateTime.now());
         groupRepository.save(group);
+        typeaheadService.indexGroup(group);
 
         userService.addGroupToUser(memberIdToAdd, groupId);
+        inboxService.join(memberIdToAdd, ConversationType.GROUP, groupId, group.getName(), group.getAvatarUrl());
     }
 
     @Transactional
@@ -178,8 +206,10 @@ public class GroupService {
         group.getAdminIds().remove(memberIdToRemove);
         group.setUpdatedAt(LocalDateTime.now());
         groupRepository.save(group);
+        typeaheadService.indexGroup(group);
 
         userService.removeGroupFromUser(memberIdToRemove, groupId);
+        inboxService.leave(memberIdToRemove, ConversationType.GROUP, groupId);
     }
 
     @Transactional
@@ -234,10 +264,12 @@ public class GroupService {
         group.setActive(false);
         group.setUpdatedAt(LocalDateTime.now());
         groupRepository.save(group);
+        typeaheadService.indexGroup(group);
 
         // Remove group from all users
         group.getMemberIds().forEach(memberId ->
                 userService.removeGroupFromUser(memberId, groupId));
+        inboxService.removeConversation(ConversationType.GROUP, groupId);
     }
 
     public boolean isMember(String groupId, String userId) {
@@ -263,7 +295,20 @@ public class GroupService {
     }
 
     public List<Group> searchGroups(String searchTerm) {
-        return groupRepository.searchByName(searchTerm);
+        return groupRepository.searchByName(Pattern.quote(searchTerm));
+    }
+
+    public Page<ConversationSummaryDTO> getUserGroupSummaries(String userId, int page, int size) {
+        return summaries(Criteria.where("memberIds").is(userId), page, size);
+    }
+
+    public Page<ConversationSummaryDTO> searchGroupSummaries(String searchTerm, int page, int size) {
+        return summaries(Criteria.where("name").regex(Pattern.quote(searchTerm), "i"), page, size);
+    }
+
+    private Page<ConversationSummaryDTO> summaries(Criteria criteria, int page, int size) {
+        return summaryQueryService.conversations(Group.class, criteria.and("active").is(true),
+                PageRequest.of(page, size, Sort.by("name")));
     }
 
     public GroupDTO toDTO(Group group) {
@@ -280,6 +325,8 @@ public class GroupService {
                 .active(group.isActive())
                 .maxMembers(group.getMaxMembers())
                 .currentMemberCount(group.getMemberIds().size())
+                .hotRetentionDays(group.getHotRetentionDays())
+                .archiveRetentionDays(group.getArchiveRetentionDays())
                 .settings(GroupDTO.GroupSettingsDTO.builder()
                         .allowMemberInvites(group.getSettings().isAllowMemberInvites())
                         .allowMemberMessages(group.getSettings().isAllowMemberMessages())
@@ -0,0 +1,349 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.entity.Message;
+import com.github.superz97.chat.metrics.ChatMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * The newest {@code chat.history-cache.capacity} messages of recently read conversations, so the
+ * first history page and reconnect catch-up don't go to Mongo. Kept current by local writes and
+ * by the change stream relay (for writes made on other nodes); conversations are evicted LRU once
+ * the conversation count or the estimated memory budget is exceeded.
+ */
+@Component
+@RequiredArgsConstructor
+public class HistoryTailCache {
+
+    private static final int RECENTLY_REMOVED_LIMIT = 64;
+
+    private final ChatMetrics chatMetrics;
+
+    @Value("${chat.history-cache.enabled}")
+    private boolean enabled;
+
+    @Value("${chat.history-cache.capacity}")
+    private int capacity;
+
+    @Value("${chat.history-cache.max-conversations}")
+    private int maxConversations;
+
+    @Value("${chat.history-cache.memory-budget}")
+    private long memoryBudget;
+
+    // Access-ordered for LRU; every structure below is guarded by this map's monitor
+    private final LinkedHashMap<String, Tail> tails = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, Boolean> loading = new HashMap<>();
+    private long totalBytes;
+
+    @PostConstruct
+    void registerMetrics() {
+        chatMetrics.registerHistoryCacheGauges(this, cache -> cache.conversationCount(), cache -> cache.totalBytes());
+    }
+
+    public static String channelKey(String channelId) {
+        return "channel:" + channelId;
+    }
+
+    public static String groupKey(String groupId) {
+        return "group:" + groupId;
+    }
+
+    public static String privateKey(String userId1, String userId2) {
+        return userId1.compareTo(userId2) < 0
+                ? "private:" + userId1 + ":" + userId2
+                : "private:" + userId2 + ":" + userId1;
+    }
+
+    public static String conversationKey(Message message) {
+        if (message.getChannelId() != null) {
+            return channelKey(message.getChannelId());
+        } else if (message.getGroupId() != null) {
+            return groupKey(message.getGroupId());
+        } else if (message.getRecipientId() != null) {
+            return privateKey(message.getSenderId(), message.getRecipientId());
+        }
+        return null;
+    }
+
+    /**
+     * Serves page 0 from the tail when cached; on a miss loads the first {@code capacity} messages
+     * through {@code loader} (page size in, newest-first page out) and keeps them, unless a write to
+     * the conversation raced with the load.
+     */
+    public Page<Message> getFirstPage(String key, int page, int size, IntFunction<Page<Message>> loader) {
+        if (!enabled || page != 0 || size > capacity) {
+            chatMetrics.recordHistoryCache("bypass");
+            return loader.apply(size);
+        }
+
+        synchronized (tails) {
+            Tail tail = tails.get(key);
+            if (tail != null) {
+                chatMetrics.recordHistoryCache("hit");
+                return tail.firstPage(size);
+            }
+            loading.putIfAbsent(key, Boolean.FALSE);
+        }
+        chatMetrics.recordHistoryCache("miss");
+
+        Page<Message> loaded;
+        try {
+            loaded = loader.apply(capacity);
+        } catch (RuntimeException e) {
+            synchronized (tails) {
+                loading.remove(key);
+            }
+            throw e;
+        }
+
+        synchronized (tails) {
+            boolean raced = Boolean.TRUE.equals(loading.remove(key));
+            if (!raced && !tails.containsKey(key)) {
+                Tail tail = new Tail(loaded.getContent(), loaded.getTotalElements());
+                tails.put(key, tail);
+                totalBytes += tail.bytes;
+                evict();
+            }
+        }
+
+        List<Message> content = loaded.getContent();
+        return new PageImpl<>(content.subList(0, Math.min(size, content.size())),
+                PageRequest.of(0, size, Sort.by("timestamp").descending()), loaded.getTotalElements());
+    }
+
+    /**
+     * Messages newer than {@code since}, oldest first, if the cached tail reaches back that far.
+     */
+    public Optional<List<Message>> getSince(String key, LocalDateTime since) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        synchronized (tails) {
+            Tail tail = tails.get(key);
+            Optional<List<Message>> result = tail != null ? tail.since(since) : Optional.empty();
+            chatMetrics.recordHistoryCache(result.isPresent() ? "hit" : "miss");
+            return result;
+        }
+    }
+
+    public void applyInsert(Message message) {
+        apply(message, true);
+    }
+
+    // Edits and soft deletes; a deleted message leaves the tail
+    public void applyUpdate(Message message) {
+        apply(message, false);
+    }
+
+    /**
+     * Adds a reader to cached copies of the given messages. Only this node's receipts arrive here;
+     * the change stream doesn't relay receipts, so read counts in tails on other nodes can lag.
+     */
+    public void applyRead(Collection<Message> messages, String userId) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (tails) {
+            for (Message message : messages) {
+                String key = conversationKey(message);
+                Tail tail = key != null ? tails.get(key) : null;
+                if (tail != null) {
+                    long before = tail.bytes;
+                    tail.applyRead(message.getId(), userId);
+                    totalBytes += tail.bytes - before;
+                }
+            }
+            evict();
+        }
+    }
+
+    private void apply(Message message, boolean inserted) {
+        String key = conversationKey(message);
+        if (!enabled || key == null) {
+            return;
+        }
+        synchronized (tails) {
+            Tail tail = tails.get(key);
+            if (tail == null) {
+                // A load in flight may have read the collection before this write
+                loading.computeIfPresent(key, (k, raced) -> Boolean.TRUE);
+                return;
+            }
+            long before = tail.bytes;
+            tail.apply(message, inserted);
+            totalBytes += tail.bytes - before;
+            evict();
+        }
+    }
+
+    public void invalidate(String key) {
+        synchronized (tails) {
+            Tail tail = tails.remove(key);
+            if (tail != null) {
+                totalBytes -= tail.bytes;
+            }
+            loading.computeIfPresent(key, (k, raced) -> Boolean.TRUE);
+        }
+    }
+
+    private void evict() {
+        Iterator<Tail> eldest = tails.values().iterator();
+        while (eldest.hasNext() && (tails.size() > maxConversations || totalBytes > memoryBudget)) {
+            totalBytes -= eldest.next().bytes;
+            eldest.remove();
+        }
+    }
+
+    private int conversationCount() {
+        synchronized (tails) {
+            return tails.size();
+        }
+    }
+
+    private long totalBytes() {
+        synchronized (tails) {
+            return totalBytes;
+        }
+    }
+
+    // Rough retained size; only used to keep the cache inside its budget
+    private static long estimateBytes(Message message) {
+        long bytes = 256;
+        // Doesn't call getContent(): that would inflate compressed content just to size it
+        if (message.isContentCompressed()) {
+            bytes += message.getCompressedContent() != null ? message.getCompressedContent().length : 0;
+        } else if (message.getContent() != null) {
+            bytes += 2L * message.getContent().length();
+        }
+        bytes += 64L * (message.getAttachmentIds().size() + message.getReadBy().size());
+        return bytes;
+    }
+
+    /**
+     * Newest-first ring of one conversation's most recent messages plus the conversation's total
+     * count, so page metadata can be answered without a count query.
+     */
+    private final class Tail {
+
+        private final List<Message> messages;
+        private final LinkedHashSet<String> recentlyRemoved = new LinkedHashSet<>();
+        private long total;
+        private long bytes;
+
+        private Tail(List<Message> newestFirst, long total) {
+            this.messages = new ArrayList<>(newestFirst.subList(0, Math.min(capacity, newestFirst.size())));
+            this.total = total;
+            this.bytes = messages.stream().mapToLong(HistoryTailCache::estimateBytes).sum();
+        }
+
+        private Page<Message> firstPage(int size) {
+            List<Message> content = new ArrayList<>(messages.subList(0, Math.min(size, messages.size())));
+            return new PageImpl<>(content, PageRequest.of(0, size, Sort.by("timestamp").descending()), total);
+        }
+
+        private Optional<List<Message>> since(LocalDateTime since) {
+            boolean complete = messages.size() >= total;
+            if (!complete && (messages.isEmpty() || messages.get(messages.size() - 1).getTimestamp().isAfter(since))) {
+                return Optional.empty();
+            }
+            List<Message> newer = new ArrayList<>();
+            for (int i = messages.size() - 1; i >= 0; i--) {
+                if (messages.get(i).getTimestamp().isAfter(since)) {
+                    newer.add(messages.get(i));
+                }
+            }
+            return Optional.of(newer);
+        }
+
+        // Local writes and the change stream both report the same change; applying twice is a no-op
+        private void apply(Message message, boolean inserted) {
+            int index = indexOf(message.getId());
+
+            if (message.isDeleted()) {
+                if (recentlyRemoved.contains(message.getId())) {
+                    return;
+                }
+                if (index >= 0) {
+                    bytes -= estimateBytes(messages.remove(index));
+                }
+                total--;
+                remember(message.getId());
+                return;
+            }
+
+            if (index >= 0) {
+                bytes += estimateBytes(message) - estimateBytes(messages.set(index, message));
+                return;
+            }
+            if (!inserted) {
+                return; // Edit to a message older than the tail
+            }
+
+            int position = 0;
+            while (position < messages.size()
+                    && messages.get(position).getTimestamp().isAfter(message.getTimestamp())) {
+                position++;
+            }
+            messages.add(position, message);
+            bytes += estimateBytes(message);
+            total++;
+            while (messages.size() > capacity) {
+                bytes -= estimateBytes(messages.remove(messages.size() - 1));
+            }
+        }
+
+        // Copy-on-write: the cached message may already be handed out to a request being serialized
+        private void applyRead(String messageId, String userId) {
+            int index = indexOf(messageId);
+            if (index < 0 || messages.get(index).getReadBy().contains(userId)) {
+                return;
+            }
+            Message cached = messages.get(index);
+            Set<String> readBy = new HashSet<>(cached.getReadBy());
+            readBy.add(userId);
+            cached.setReadBy(readBy);
+            bytes += 64;
+        }
+
+        private int indexOf(String messageId) {
+            for (int i = 0; i < messages.size(); i++) {
+                if (messages.get(i).getId().equals(messageId)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void remember(String messageId) {
+            recentlyRemoved.add(messageId);
+            if (recentlyRemoved.size() > RECENTLY_REMOVED_LIMIT) {
+                Iterator<String> oldest = recentlyRemoved.iterator();
+                oldest.next();
+                oldest.remove();
+            }
+        }
+
+    }
+
+}
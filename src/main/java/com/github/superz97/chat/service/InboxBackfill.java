@@ -0,0 +1,152 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.entity.Channel;
+import com.github.superz97.chat.entity.Group;
+import com.github.superz97.chat.entity.InboxEntry;
+import com.github.superz97.chat.entity.Message;
+import com.github.superz97.chat.entity.User;
+import com.github.superz97.chat.enums.ConversationType;
+import com.github.superz97.chat.repository.MessageRepository;
+import com.github.superz97.chat.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Streamable;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+/**
+ * One-off build of inbox rows for existing channel and group memberships and direct-message
+ * history, enabled with {@code chat.inbox.backfill=true}. Every write is an upsert or an
+ * ordered last-message update, so it is safe to re-run and to run while the application is live.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.inbox.backfill", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class InboxBackfill implements ApplicationRunner {
+
+    private final MongoTemplate mongoTemplate;
+    private final InboxService inboxService;
+    private final MessageRepository messageRepository;
+    private final UserRepository userRepository;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        log.info("Backfilling inbox entries");
+        long channels = backfillConversations(Channel.class, ConversationType.CHANNEL, "channelId",
+                messageRepository::countUnreadChannelMessages);
+        long groups = backfillConversations(Group.class, ConversationType.GROUP, "groupId",
+                messageRepository::countUnreadGroupMessages);
+        long direct = backfillDirect();
+        log.info("Inbox backfill finished: {} channels, {} groups, {} direct conversations", channels, groups, direct);
+    }
+
+    private long backfillConversations(Class<?> conversationClass, ConversationType type, String messageField,
+                                       BiFunction<String, String, Long> countUnread) {
+        Query query = Query.query(Criteria.where("active").is(true));
+        query.fields().include("name", "avatarUrl", "memberIds", "createdAt");
+
+        long backfilled = 0;
+        try (Stream<Document> conversations = mongoTemplate.stream(query, Document.class,
+                mongoTemplate.getCollectionName(conversationClass))) {
+            for (Document conversation : Streamable.of(conversations::iterator)) {
+                String conversationId = conversation.get("_id").toString();
+                List<String> memberIds = conversation.getList("memberIds", String.class, List.of());
+                if (memberIds.isEmpty()) {
+                    continue;
+                }
+                inboxService.joinAll(memberIds, type, conversationId, conversation.getString("name"),
+                        conversation.getString("avatarUrl"), toLocalDateTime(conversation.getDate("createdAt")));
+
+                BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, InboxEntry.class);
+                Message last = mongoTemplate.findOne(Query.query(Criteria.where(messageField).is(conversationId)
+                                .and("deleted").is(false))
+                        .with(Sort.by(Sort.Direction.DESC, "timestamp")), Message.class);
+                if (last != null) {
+                    inboxService.applyLastMessage(bulk, InboxService.conversation(type, conversationId),
+                            inboxService.lastMessage(last, last.getContent()));
+                }
+                for (String memberId : memberIds) {
+                    bulk.updateOne(Query.query(InboxService.entry(memberId, type, conversationId)),
+                            new Update().set("unreadCount", countUnread.apply(conversationId, memberId).intValue()));
+                }
+                bulk.execute();
+                backfilled++;
+            }
+        }
+        return backfilled;
+    }
+
+    // One row per sender -> recipient direction: its newest message and how much of it the recipient hasn't read
+    private long backfillDirect() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("recipientId").ne(null).and("deleted").is(false)),
+                Aggregation.sort(Sort.by(Sort.Direction.DESC, "timestamp")),
+                context -> new Document("$group", new Document("_id",
+                        new Document("senderId", "$senderId").append("recipientId", "$recipientId"))
+                        .append("lastMessageId", new Document("$first", "$_id"))
+                        .append("unread", new Document("$sum", new Document("$cond", List.of(
+                                new Document("$in", List.of("$recipientId",
+                                        new Document("$ifNull", List.of("$readBy", List.of())))), 0, 1))))))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        long backfilled = 0;
+        try (Stream<Document> directions = mongoTemplate.aggregateStream(aggregation,
+                mongoTemplate.getCollectionName(Message.class), Document.class)) {
+            for (Document direction : Streamable.of(directions::iterator)) {
+                Document key = direction.get("_id", Document.class);
+                Message last = mongoTemplate.findById(direction.get("lastMessageId"), Message.class);
+                if (last == null) {
+                    continue;
+                }
+                backfillDirection(key.getString("senderId"), key.getString("recipientId"), last,
+                        direction.getInteger("unread", 0));
+                backfilled++;
+            }
+        }
+        return backfilled;
+    }
+
+    private void backfillDirection(String senderId, String recipientId, Message last, int unread) {
+        InboxService.LastMessage lastMessage = inboxService.lastMessage(last, last.getContent());
+        String recipientName = userRepository.findUsernameById(recipientId).map(User::getUsername).orElse(null);
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, InboxEntry.class);
+        bulk.upsert(Query.query(InboxService.entry(recipientId, ConversationType.DIRECT, senderId)), new Update()
+                .set("name", last.getSenderUsername())
+                .set("unreadCount", unread)
+                .setOnInsert("lastActivity", InboxService.NEVER));
+        inboxService.applyLastMessage(bulk, InboxService.entry(recipientId, ConversationType.DIRECT, senderId),
+                lastMessage);
+        bulk.upsert(Query.query(InboxService.entry(senderId, ConversationType.DIRECT, recipientId)), new Update()
+                .set("name", recipientName)
+                .setOnInsert("lastActivity", InboxService.NEVER)
+                .setOnInsert("unreadCount", 0));
+        inboxService.applyLastMessage(bulk, InboxService.entry(senderId, ConversationType.DIRECT, recipientId),
+                lastMessage);
+        bulk.execute();
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return date != null ? LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()) : InboxService.NEVER;
+    }
+
+}
@@ -0,0 +1,272 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.dto.response.InboxEntryDTO;
+import com.github.superz97.chat.entity.InboxEntry;
+import com.github.superz97.chat.entity.Message;
+import com.github.superz97.chat.entity.User;
+import com.github.superz97.chat.enums.ConversationType;
+import com.github.superz97.chat.enums.MessageType;
+import com.github.superz97.chat.metrics.ChatMetrics;
+import com.github.superz97.chat.repository.InboxEntryRepository;
+import com.github.superz97.chat.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the per-user conversation list ({@link InboxEntry}) so the sidebar is one indexed,
+ * paginated query. Channel and group sends are coalesced per conversation over a short window and
+ * applied as one bulk write, so a busy room costs one fan-out update per window rather than one
+ * per message; direct messages touch two rows and are written immediately.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InboxService {
+
+    // Placeholder activity for rows created by a send, so the ordered last-message update always applies
+    static final LocalDateTime NEVER = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final MongoTemplate mongoTemplate;
+    private final InboxEntryRepository inboxEntryRepository;
+    private final UserRepository userRepository;
+    private final ChatMetrics chatMetrics;
+    private final Map<ConversationRef, PendingActivity> pending = new ConcurrentHashMap<>();
+
+    @Value("${chat.inbox.preview-length}")
+    private int previewLength;
+
+    public record ConversationRef(ConversationType type, String id) {
+    }
+
+    public record LastMessage(String id, String preview, MessageType type, String senderId, String senderUsername,
+                              LocalDateTime timestamp) {
+    }
+
+    public Page<InboxEntryDTO> getInbox(String userId, int page, int size) {
+        return inboxEntryRepository.findByUserIdOrderByLastActivityDesc(userId, PageRequest.of(page, size))
+                .map(this::toDTO);
+    }
+
+    // content is the plain text from the request; the stored message may already be compressed
+    public void recordMessage(Message message, String content) {
+        LastMessage last = lastMessage(message, content);
+        if (message.getChannelId() != null || message.getGroupId() != null) {
+            ConversationRef conversation = message.getChannelId() != null
+                    ? new ConversationRef(ConversationType.CHANNEL, message.getChannelId())
+                    : new ConversationRef(ConversationType.GROUP, message.getGroupId());
+            pending.compute(conversation, (key, activity) -> {
+                PendingActivity result = activity != null ? activity : new PendingActivity();
+                result.add(last);
+                return result;
+            });
+        } else if (message.getRecipientId() != null) {
+            recordDirect(message.getRecipientId(), last);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.inbox.flush-interval-ms}", scheduler = "flushScheduler")
+    public void flushAll() {
+        for (ConversationRef conversation : pending.keySet()) {
+            PendingActivity activity = pending.remove(conversation);
+            if (activity != null) {
+                flush(conversation, activity);
+            }
+        }
+    }
+
+    @PreDestroy
+    void drain() {
+        flushAll();
+    }
+
+    public void join(String userId, ConversationType type, String conversationId, String name, String avatarUrl) {
+        joinAll(List.of(userId), type, conversationId, name, avatarUrl, LocalDateTime.now());
+    }
+
+    public void joinAll(Collection<String> userIds, ConversationType type, String conversationId,
+                        String name, String avatarUrl) {
+        joinAll(userIds, type, conversationId, name, avatarUrl, LocalDateTime.now());
+    }
+
+    // joinedAt is the row's activity until a message arrives
+    void joinAll(Collection<String> userIds, ConversationType type, String conversationId,
+                 String name, String avatarUrl, LocalDateTime joinedAt) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, InboxEntry.class);
+        for (String userId : userIds) {
+            bulk.upsert(Query.query(entry(userId, type, conversationId)), new Update()
+                    .set("name", name)
+                    .set("avatarUrl", avatarUrl)
+                    .setOnInsert("lastActivity", joinedAt)
+                    .setOnInsert("unreadCount", 0));
+        }
+        bulk.execute();
+    }
+
+    public void leave(String userId, ConversationType type, String conversationId) {
+        mongoTemplate.remove(Query.query(entry(userId, type, conversationId)), InboxEntry.class);
+    }
+
+    public void removeConversation(ConversationType type, String conversationId) {
+        pending.remove(new ConversationRef(type, conversationId));
+        mongoTemplate.remove(Query.query(conversation(type, conversationId)), InboxEntry.class);
+    }
+
+    public void rename(ConversationType type, String conversationId, String name, String avatarUrl) {
+        mongoTemplate.updateMulti(Query.query(conversation(type, conversationId)),
+                new Update().set("name", name).set("avatarUrl", avatarUrl), InboxEntry.class);
+    }
+
+    public void markRead(String userId, ConversationType type, String conversationId) {
+        mongoTemplate.updateFirst(Query.query(entry(userId, type, conversationId)), new Update().set("unreadCount", 0),
+                InboxEntry.class);
+    }
+
+    // Newly read messages from a read-receipt batch; counters never drop below zero
+    public void markRead(String userId, List<Message> newlyRead) {
+        Map<ConversationRef, Long> readPerConversation = newlyRead.stream()
+                .filter(message -> !userId.equals(message.getSenderId()))
+                .collect(Collectors.groupingBy(message -> conversationOf(message, userId), Collectors.counting()));
+        if (readPerConversation.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, InboxEntry.class);
+        readPerConversation.forEach((conversation, count) -> bulk.updateOne(
+                Query.query(entry(userId, conversation.type(), conversation.id())),
+                AggregationUpdate.from(List.of(context -> new Document("$set", new Document("unreadCount",
+                        new Document("$max", List.of(0, new Document("$subtract", List.of("$unreadCount", count))))))))));
+        bulk.execute();
+    }
+
+    // Moves the rows' last-message fields forward, never back, e.g. when two nodes flush out of order
+    void applyLastMessage(BulkOperations bulk, Criteria scope, LastMessage last) {
+        bulk.updateMulti(Query.query(scope.and("lastActivity").lt(last.timestamp())), new Update()
+                .set("lastMessageId", last.id())
+                .set("lastMessagePreview", last.preview())
+                .set("lastMessageType", last.type())
+                .set("lastSenderId", last.senderId())
+                .set("lastSenderUsername", last.senderUsername())
+                .set("lastActivity", last.timestamp()));
+    }
+
+    LastMessage lastMessage(Message message, String content) {
+        String preview = content == null || content.length() <= previewLength
+                ? content : content.substring(0, previewLength);
+        return new LastMessage(message.getId(), preview, message.getType(), message.getSenderId(),
+                message.getSenderUsername(), message.getTimestamp());
+    }
+
+    static Criteria entry(String userId, ConversationType type, String conversationId) {
+        return Criteria.where("userId").is(userId)
+                .and("conversationType").is(type)
+                .and("conversationId").is(conversationId);
+    }
+
+    static Criteria conversation(ConversationType type, String conversationId) {
+        return Criteria.where("conversationType").is(type).and("conversationId").is(conversationId);
+    }
+
+    private void flush(ConversationRef conversation, PendingActivity activity) {
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, InboxEntry.class);
+            bulk.updateMulti(Query.query(conversation(conversation.type(), conversation.id())),
+                    new Update().inc("unreadCount", activity.count));
+            applyLastMessage(bulk, conversation(conversation.type(), conversation.id()), activity.last);
+            // Senders don't count their own messages as unread
+            activity.sentBy.forEach((senderId, own) -> bulk.updateOne(
+                    Query.query(entry(senderId, conversation.type(), conversation.id())),
+                    new Update().inc("unreadCount", -own)));
+            bulk.execute();
+            chatMetrics.recordInboxFlush(activity.count);
+        } catch (Exception e) {
+            log.error("Error updating inbox entries for {} {}", conversation.type(), conversation.id(), e);
+        }
+    }
+
+    private void recordDirect(String recipientId, LastMessage last) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, InboxEntry.class);
+        bulk.upsert(Query.query(entry(recipientId, ConversationType.DIRECT, last.senderId())), new Update()
+                .set("name", last.senderUsername())
+                .setOnInsert("lastActivity", NEVER)
+                .inc("unreadCount", 1));
+        applyLastMessage(bulk, entry(recipientId, ConversationType.DIRECT, last.senderId()), last);
+
+        // The sender's own row only needs the peer's username when it is created
+        Query senderEntry = Query.query(entry(last.senderId(), ConversationType.DIRECT, recipientId));
+        if (!mongoTemplate.exists(senderEntry, InboxEntry.class)) {
+            String recipientName = userRepository.findUsernameById(recipientId).map(User::getUsername).orElse(null);
+            bulk.upsert(senderEntry, new Update()
+                    .setOnInsert("name", recipientName)
+                    .setOnInsert("lastActivity", NEVER)
+                    .setOnInsert("unreadCount", 0));
+        }
+        applyLastMessage(bulk, entry(last.senderId(), ConversationType.DIRECT, recipientId), last);
+        bulk.execute();
+    }
+
+    private static ConversationRef conversationOf(Message message, String readerId) {
+        if (message.getChannelId() != null) {
+            return new ConversationRef(ConversationType.CHANNEL, message.getChannelId());
+        }
+        if (message.getGroupId() != null) {
+            return new ConversationRef(ConversationType.GROUP, message.getGroupId());
+        }
+        return new ConversationRef(ConversationType.DIRECT,
+                readerId.equals(message.getRecipientId()) ? message.getSenderId() : message.getRecipientId());
+    }
+
+    private InboxEntryDTO toDTO(InboxEntry entry) {
+        return InboxEntryDTO.builder()
+                .conversationType(entry.getConversationType())
+                .conversationId(entry.getConversationId())
+                .name(entry.getName())
+                .avatarUrl(entry.getAvatarUrl())
+                .lastMessageId(entry.getLastMessageId())
+                .lastMessagePreview(entry.getLastMessagePreview())
+                .lastMessageType(entry.getLastMessageType())
+                .lastSenderId(entry.getLastSenderId())
+                .lastSenderUsername(entry.getLastSenderUsername())
+                .lastActivity(entry.getLastActivity())
+                .unreadCount(entry.getUnreadCount())
+                .build();
+    }
+
+    // Mutated only inside pending.compute, then handed off whole to a single flush
+    private static final class PendingActivity {
+        private int count;
+        private LastMessage last;
+        private final Map<String, Integer> sentBy = new HashMap<>();
+
+        void add(LastMessage message) {
+            count++;
+            sentBy.merge(message.senderId(), 1, Integer::sum);
+            if (last == null || !message.timestamp().isBefore(last.timestamp())) {
+                last = message;
+            }
+        }
+    }
+
+}
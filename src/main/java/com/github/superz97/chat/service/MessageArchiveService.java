@@ -0,0 +1,181 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.entity.Message;
+import com.github.superz97.chat.entity.MessageArchiveSegment;
+import com.github.superz97.chat.repository.MessageArchiveSegmentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold tier for channel and group history. Messages past a conversation's hot retention are
+ * packed into compressed {@link MessageArchiveSegment}s and removed from the messages collection;
+ * history paging falls through to these segments once it runs past the hot window.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageArchiveService {
+
+    private static final long COUNT_TTL_MS = 60_000;
+    private static final int COUNT_CACHE_LIMIT = 10_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final MessageArchiveSegmentRepository segmentRepository;
+
+    // Archived counts change at most once per archive pass; cached so page metadata stays off the segments
+    private final Map<String, CachedCount> archivedCounts = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedCount> eldest) {
+                    return size() > COUNT_CACHE_LIMIT;
+                }
+            });
+
+    public long countMessages(String conversationKey) {
+        CachedCount cached = archivedCounts.get(conversationKey);
+        long now = System.currentTimeMillis();
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.count();
+        }
+        long count = segmentRepository.findSummariesByConversationKey(conversationKey).stream()
+                .mapToLong(MessageArchiveSegment::getCount)
+                .sum();
+        archivedCounts.put(conversationKey, new CachedCount(count, now + COUNT_TTL_MS));
+        return count;
+    }
+
+    /**
+     * Archived messages newest first, starting {@code offset} messages past the newest archived
+     * one. Only the segments overlapping the range are read and decompressed.
+     */
+    public List<Message> getRange(String conversationKey, long offset, int limit) {
+        List<Message> result = new ArrayList<>(limit);
+        long position = 0;
+        for (MessageArchiveSegment summary : segmentRepository.findSummariesByConversationKey(conversationKey)) {
+            long next = position + summary.getCount();
+            if (next > offset) {
+                MessageArchiveSegment segment = segmentRepository.findById(summary.getId()).orElse(null);
+                if (segment != null) {
+                    List<Document> documents = decode(segment.getData());
+                    for (int i = documents.size() - 1; i >= 0 && result.size() < limit; i--) {
+                        if (position + (documents.size() - 1 - i) >= offset) {
+                            result.add(mongoTemplate.getConverter().read(Message.class, documents.get(i)));
+                        }
+                    }
+                }
+            }
+            position = next;
+            if (result.size() >= limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the raw message documents (oldest first) as one segment, then removes them from the
+     * messages collection. Returns the number of messages archived.
+     */
+    public int archive(String conversationKey, List<Document> messages) {
+        Document first = messages.get(0);
+        Document last = messages.get(messages.size() - 1);
+        String segmentId = conversationKey + ":" + first.get("_id");
+
+        List<Object> archivedIds = messages.stream().map(document -> document.get("_id")).toList();
+        try {
+            segmentRepository.insert(MessageArchiveSegment.builder()
+                    .id(segmentId)
+                    .conversationKey(conversationKey)
+                    .count(messages.size())
+                    .startTimestamp(toLocalDateTime(first.getDate("timestamp")))
+                    .endTimestamp(toLocalDateTime(last.getDate("timestamp")))
+                    .data(encode(messages))
+                    .archivedAt(LocalDateTime.now())
+                    .build());
+        } catch (DuplicateKeyException e) {
+            // Left by an interrupted pass: only remove what that segment actually holds
+            log.info("Archive segment {} already exists, finishing its cleanup", segmentId);
+            archivedIds = segmentRepository.findById(segmentId)
+                    .map(segment -> decode(segment.getData()).stream().map(document -> document.get("_id")).toList())
+                    .orElse(List.of());
+        }
+
+        mongoTemplate.remove(Query.query(Criteria.where("_id").in(archivedIds)), Message.class);
+        archivedCounts.remove(conversationKey);
+        return archivedIds.size();
+    }
+
+    public long dropOlderThan(String conversationKey, LocalDateTime cutoff) {
+        long dropped = segmentRepository.deleteByConversationKeyAndEndTimestampBefore(conversationKey, cutoff);
+        if (dropped > 0) {
+            archivedCounts.remove(conversationKey);
+        }
+        return dropped;
+    }
+
+    static byte[] encode(List<Document> messages) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        new DocumentCodec().encode(new BsonBinaryWriter(buffer), new Document("messages", messages),
+                EncoderContext.builder().build());
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(buffer.getSize() / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            buffer.pipe(gzip);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compress archive segment", e);
+        }
+        return compressed.toByteArray();
+    }
+
+    static List<Document> decode(byte[] data) {
+        byte[] bson;
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            bson = gzip.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decompress archive segment", e);
+        }
+        Document wrapper = new DocumentCodec().decode(new BsonBinaryReader(ByteBuffer.wrap(bson)),
+                DecoderContext.builder().build());
+        return wrapper.getList("messages", Document.class);
+    }
+
+    // Same zone Spring Data uses when mapping LocalDateTime to BSON dates
+    static LocalDateTime toLocalDateTime(Date date) {
+        return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+    }
+
+    static Date toDate(LocalDateTime dateTime) {
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private record CachedCount(long count, long expiresAt) {}
+
+}
@@ -0,0 +1,153 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.entity.Channel;
+import com.github.superz97.chat.entity.Group;
+import com.github.superz97.chat.entity.Message;
+import com.github.superz97.chat.entity.MessageBucket;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Background pass applying per-channel and per-group retention: moves messages past the hot window
+ * into archive segments, drops segments past the archive window, and purges soft-deleted messages.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MessageArchiver {
+
+    private final MongoTemplate mongoTemplate;
+    private final MessageArchiveService messageArchiveService;
+    private final MessageBucketService messageBucketService;
+    private final HistoryTailCache historyTailCache;
+
+    @Value("${chat.archive.enabled}")
+    private boolean enabled;
+
+    @Value("${chat.archive.default-hot-retention-days}")
+    private int defaultHotRetentionDays;
+
+    @Value("${chat.archive.default-archive-retention-days}")
+    private int defaultArchiveRetentionDays;
+
+    @Value("${chat.archive.segment-size}")
+    private int segmentSize;
+
+    @Value("${chat.archive.purge-deleted-after-hours}")
+    private int purgeDeletedAfterHours;
+
+    @Scheduled(fixedDelayString = "${chat.archive.interval-ms}", initialDelayString = "${chat.archive.interval-ms}")
+    public void runArchivePass() {
+        if (!enabled) {
+            return;
+        }
+        log.debug("Running message archive pass");
+        try {
+            long channels = applyRetention(Channel.class, "channelId", MessageBucketService::channelKey);
+            long groups = applyRetention(Group.class, "groupId", MessageBucketService::groupKey);
+            long purged = purgeDeletedMessages();
+            log.info("Archive pass finished: {} channel and {} group messages archived, {} deleted messages purged",
+                    channels, groups, purged);
+        } catch (Exception e) {
+            log.error("Error during message archive pass", e);
+        }
+    }
+
+    private long applyRetention(Class<?> conversationType, String conversationField, UnaryOperator<String> keyOf) {
+        Query query = new Query();
+        query.fields().include("hotRetentionDays").include("archiveRetentionDays");
+
+        LocalDateTime now = LocalDateTime.now();
+        long archived = 0;
+        try (Stream<Document> conversations = mongoTemplate.stream(query, Document.class,
+                mongoTemplate.getCollectionName(conversationType))) {
+            for (Document conversation : (Iterable<Document>) conversations::iterator) {
+                String conversationId = conversation.get("_id").toString();
+                String conversationKey = keyOf.apply(conversationId);
+                int hotDays = conversation.getInteger("hotRetentionDays", defaultHotRetentionDays);
+                int archiveDays = conversation.getInteger("archiveRetentionDays", defaultArchiveRetentionDays);
+
+                if (hotDays > 0) {
+                    long moved = messageBucketService.isEnabled()
+                            ? archiveBuckets(conversationKey, now.minusDays(hotDays))
+                            : archiveMessages(conversationField, conversationId, conversationKey, now.minusDays(hotDays));
+                    if (moved > 0) {
+                        historyTailCache.invalidate(conversationKey);
+                        archived += moved;
+                    }
+                }
+                if (archiveDays > 0) {
+                    messageArchiveService.dropOlderThan(conversationKey, now.minusDays(archiveDays));
+                }
+            }
+        }
+        return archived;
+    }
+
+    private long archiveMessages(String conversationField, String conversationId, String conversationKey,
+                                 LocalDateTime cutoff) {
+        Query query = Query.query(Criteria.where(conversationField).is(conversationId)
+                        .and("deleted").is(false)
+                        .and("timestamp").lt(MessageArchiveService.toDate(cutoff)))
+                .with(Sort.by(Sort.Direction.ASC, "timestamp"))
+                .limit(segmentSize);
+
+        long archived = 0;
+        while (true) {
+            List<Document> chunk = mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(Message.class));
+            if (chunk.isEmpty()) {
+                return archived;
+            }
+            int moved = messageArchiveService.archive(conversationKey, chunk);
+            if (moved == 0) {
+                log.warn("Archiving {} made no progress, leaving the rest for the next pass", conversationKey);
+                return archived;
+            }
+            archived += moved;
+        }
+    }
+
+    // Bucketed history is archived a whole closed bucket at a time, so hot paging never overlaps the archive
+    private long archiveBuckets(String conversationKey, LocalDateTime cutoff) {
+        Query query = Query.query(Criteria.where("conversationKey").is(conversationKey)
+                        .and("open").is(false)
+                        .and("endTimestamp").lt(MessageArchiveService.toDate(cutoff)))
+                .with(Sort.by(Sort.Direction.ASC, "startTimestamp"));
+
+        long archived = 0;
+        String bucketCollection = mongoTemplate.getCollectionName(MessageBucket.class);
+        try (Stream<Document> buckets = mongoTemplate.stream(query, Document.class, bucketCollection)) {
+            for (Document bucket : (Iterable<Document>) buckets::iterator) {
+                List<Document> messages = bucket.getList("messages", Document.class);
+                if (messages != null && !messages.isEmpty()) {
+                    archived += messageArchiveService.archive(conversationKey, messages);
+                }
+                mongoTemplate.remove(Query.query(Criteria.where("_id").is(bucket.get("_id"))), bucketCollection);
+            }
+        }
+        return archived;
+    }
+
+    // Soft deletes linger briefly so clients and other nodes see the MESSAGE_DELETE first
+    private long purgeDeletedMessages() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(purgeDeletedAfterHours);
+        return mongoTemplate.remove(Query.query(Criteria.where("deleted").is(true).orOperator(
+                        Criteria.where("deletedAt").lt(cutoff),
+                        Criteria.where("deletedAt").exists(false))),
+                Message.class).getDeletedCount();
+    }
+
+}
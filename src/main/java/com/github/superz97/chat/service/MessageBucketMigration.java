@@ -0,0 +1,100 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.entity.Message;
+import com.github.superz97.chat.entity.MessageBucket;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Streamable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * One-off backfill of existing channel and group history into buckets, enabled with
+ * {@code chat.messages.migrate-to-buckets=true}. Run it with {@code chat.messages.storage=bucketed}
+ * already on: new messages land in the open bucket while this packs everything older that has no
+ * bucket yet into closed buckets, so it is safe to re-run after an interruption.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.messages.migrate-to-buckets", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class MessageBucketMigration implements ApplicationRunner {
+
+    private final MongoTemplate mongoTemplate;
+    private final MessageBucketService messageBucketService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        log.info("Migrating channel and group history into message buckets");
+        long channels = migrate("channelId");
+        long groups = migrate("groupId");
+        log.info("Message bucket migration finished: {} channel and {} group messages bucketed", channels, groups);
+    }
+
+    private long migrate(String conversationField) {
+        List<String> conversationIds = mongoTemplate.findDistinct(
+                Query.query(Criteria.where(conversationField).ne(null).and("bucketId").exists(false)),
+                conversationField, Message.class, String.class);
+
+        long migrated = 0;
+        for (String conversationId : conversationIds) {
+            migrated += migrateConversation(conversationField, conversationId);
+        }
+        return migrated;
+    }
+
+    private long migrateConversation(String conversationField, String conversationId) {
+        Query query = Query.query(Criteria.where(conversationField).is(conversationId)
+                        .and("deleted").is(false)
+                        .and("bucketId").exists(false))
+                .with(Sort.by(Sort.Direction.ASC, "timestamp"));
+
+        int bucketSize = messageBucketService.getBucketSize();
+        List<Message> chunk = new ArrayList<>(bucketSize);
+        long migrated = 0;
+        try (Stream<Message> messages = mongoTemplate.stream(query, Message.class)) {
+            for (Message message : Streamable.of(messages::iterator)) {
+                chunk.add(message);
+                if (chunk.size() == bucketSize) {
+                    migrated += writeBucket(chunk);
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            migrated += writeBucket(chunk);
+        }
+        log.debug("Bucketed {} messages for {} {}", migrated, conversationField, conversationId);
+        return migrated;
+    }
+
+    // Closed on write: the open bucket is only ever the one live appends go to
+    private int writeBucket(List<Message> messages) {
+        MessageBucket bucket = mongoTemplate.insert(MessageBucket.builder()
+                .conversationKey(MessageBucketService.conversationKey(messages.get(0)))
+                .open(false)
+                .count(messages.size())
+                .startTimestamp(messages.get(0).getTimestamp())
+                .endTimestamp(messages.get(messages.size() - 1).getTimestamp())
+                .messages(new ArrayList<>(messages))
+                .build());
+
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(messages.stream().map(Message::getId).toList())),
+                new Update().set("bucketId", bucket.getId()),
+                Message.class);
+        return messages.size();
+    }
+
+}
@@ -0,0 +1,247 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.entity.Message;
+import com.github.superz97.chat.entity.MessageBucket;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Bucketed layout for channel and group history ({@code chat.messages.storage=bucketed}). The
+ * per-message document stays the system of record for search, unread counts and change events;
+ * buckets are kept in step on every write and serve history pages.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageBucketService {
+
+    public static final String STORAGE_BUCKETED = "bucketed";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${chat.messages.storage}")
+    private String storageMode;
+
+    @Value("${chat.messages.bucket-size}")
+    private int bucketSize;
+
+    public boolean isEnabled() {
+        return STORAGE_BUCKETED.equals(storageMode);
+    }
+
+    public boolean isBucketed(Message message) {
+        return isEnabled() && conversationKey(message) != null;
+    }
+
+    public int getBucketSize() {
+        return bucketSize;
+    }
+
+    public static String channelKey(String channelId) {
+        return "channel:" + channelId;
+    }
+
+    public static String groupKey(String groupId) {
+        return "group:" + groupId;
+    }
+
+    // Private conversations are not bucketed
+    public static String conversationKey(Message message) {
+        if (message.getChannelId() != null) {
+            return channelKey(message.getChannelId());
+        } else if (message.getGroupId() != null) {
+            return groupKey(message.getGroupId());
+        }
+        return null;
+    }
+
+    /**
+     * Pushes the message onto its conversation's open bucket, opening a new bucket when there is
+     * none, and returns the bucket id. The message id must already be assigned.
+     */
+    public String append(Message message) {
+        String conversationKey = conversationKey(message);
+        MessageBucket bucket;
+        try {
+            bucket = pushToOpenBucket(conversationKey, message);
+        } catch (DuplicateKeyException e) {
+            // Lost the race to open a new bucket; the winner's bucket is open now
+            bucket = pushToOpenBucket(conversationKey, message);
+        }
+
+        if (bucket.getCount() >= bucketSize) {
+            mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(bucket.getId()).and("open").is(true)),
+                    new Update().set("open", false),
+                    MessageBucket.class);
+        }
+        return bucket.getId();
+    }
+
+    private MessageBucket pushToOpenBucket(String conversationKey, Message message) {
+        Query query = Query.query(Criteria.where("conversationKey").is(conversationKey).and("open").is(true))
+                .with(Sort.by(Sort.Direction.DESC, "startTimestamp"));
+        query.fields().include("count");
+
+        Update update = new Update()
+                .push("messages", message)
+                .inc("count", 1)
+                .min("startTimestamp", message.getTimestamp())
+                .max("endTimestamp", message.getTimestamp());
+
+        return mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true), MessageBucket.class);
+    }
+
+    public void mirrorEdit(Message message) {
+        if (message.getBucketId() == null) {
+            return;
+        }
+        Update update = new Update()
+                .set("messages.$.edited", message.isEdited())
+                .set("messages.$.editedAt", message.getEditedAt());
+        MessageContentCompressor.writeContent(update, "messages.$.", message);
+        mongoTemplate.updateFirst(bucketElement(message.getBucketId(), message.getId()), update, MessageBucket.class);
+    }
+
+    public void mirrorAttachment(String bucketId, String messageId, String attachmentId) {
+        mongoTemplate.updateFirst(bucketElement(bucketId, messageId),
+                new Update().push("messages.$.attachmentIds", attachmentId),
+                MessageBucket.class);
+    }
+
+    public void mirrorRead(String bucketId, String messageId, String userId) {
+        mongoTemplate.updateFirst(bucketElement(bucketId, messageId),
+                new Update().addToSet("messages.$.readBy", userId),
+                MessageBucket.class);
+    }
+
+    // Batched read receipts: one update per bucket for all of the user's messages in it
+    public void mirrorReadMany(String bucketId, Collection<String> messageIds, String userId) {
+        List<ObjectId> ids = messageIds.stream().map(ObjectId::new).toList();
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(bucketId)),
+                new Update()
+                        .addToSet("messages.$[m].readBy", userId)
+                        .filterArray(Criteria.where("m._id").in(ids)),
+                MessageBucket.class);
+    }
+
+    // Bulk read: only touches buckets that still hold a message the user hasn't read
+    public void mirrorReadAll(String conversationKey, String userId) {
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("conversationKey").is(conversationKey)
+                        .and("messages").elemMatch(Criteria.where("readBy").ne(userId))),
+                new Update()
+                        .addToSet("messages.$[m].readBy", userId)
+                        .filterArray(Criteria.where("m.readBy").ne(userId)),
+                MessageBucket.class);
+    }
+
+    // Deleted messages leave the bucket so counts stay exact for paging
+    public void remove(Message message) {
+        if (message.getBucketId() == null) {
+            return;
+        }
+        mongoTemplate.updateFirst(bucketElement(message.getBucketId(), message.getId()),
+                new Update()
+                        .pull("messages", new Document("_id", new ObjectId(message.getId())))
+                        .inc("count", -1),
+                MessageBucket.class);
+    }
+
+    private static Query bucketElement(String bucketId, String messageId) {
+        return Query.query(Criteria.where("_id").is(bucketId)
+                .and("messages._id").is(new ObjectId(messageId)));
+    }
+
+    /**
+     * Newest-first page of a conversation. Bucket sizes are walked newest-first from the index, only
+     * as far as the page reaches; then just the one or two buckets overlapping the page are read in full.
+     */
+    public Page<Message> getPage(String conversationKey, int page, int size) {
+        long offset = (long) page * size;
+        long end = offset + size;
+
+        // Newest-first position of the first bucket overlapping the page, and how many buckets it spans
+        int firstBucket = -1;
+        int bucketCount = 0;
+        int ordinal = 0;
+        long skip = 0;
+        long position = 0;
+        boolean exhausted;
+        Query sizes = newestFirst(conversationKey).cursorBatchSize((int) Math.min(end / bucketSize + 2, 1_000));
+        sizes.fields().include("count").exclude("_id");
+        try (Stream<Document> summaries = mongoTemplate.stream(sizes, Document.class,
+                mongoTemplate.getCollectionName(MessageBucket.class))) {
+            Iterator<Document> iterator = summaries.iterator();
+            while (position < end && iterator.hasNext()) {
+                long next = position + iterator.next().getInteger("count", 0);
+                if (next > offset) {
+                    if (firstBucket < 0) {
+                        firstBucket = ordinal;
+                        skip = offset - position;
+                    }
+                    bucketCount++;
+                }
+                position = next;
+                ordinal++;
+            }
+            exhausted = !iterator.hasNext();
+        }
+        long total = exhausted ? position : countMessages(conversationKey);
+
+        List<MessageBucket> buckets = firstBucket < 0 ? List.of() : mongoTemplate.find(
+                newestFirst(conversationKey).skip(firstBucket).limit(bucketCount), MessageBucket.class);
+        List<Message> content = new ArrayList<>(size);
+        for (MessageBucket bucket : buckets) {
+            List<Message> messages = bucket.getMessages();
+            for (int i = messages.size() - 1; i >= 0 && content.size() < size; i--) {
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                content.add(messages.get(i));
+            }
+        }
+
+        return new PageImpl<>(content, PageRequest.of(page, size, Sort.by("timestamp").descending()), total);
+    }
+
+    private static Query newestFirst(String conversationKey) {
+        return Query.query(Criteria.where("conversationKey").is(conversationKey))
+                .with(Sort.by(Sort.Direction.DESC, "startTimestamp"));
+    }
+
+    // Summed over the index entries; bucket documents are not read
+    private long countMessages(String conversationKey) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("conversationKey").is(conversationKey)),
+                Aggregation.group().sum("count").as("total"));
+        Document result = mongoTemplate.aggregate(aggregation, MessageBucket.class, Document.class)
+                .getUniqueMappedResult();
+        return result != null ? ((Number) result.get("total")).longValue() : 0;
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.entity.Message;
+import com.github.superz97.chat.entity.MessageContentCodec;
+import com.github.superz97.chat.metrics.ChatMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Stores long message content deflated ({@code chat.messages.compression.*}). Content below the
+ * threshold, or that doesn't shrink by at least a tenth, is stored as-is.
+ *
+ * <p>Compressed messages carry a bounded set of {@code searchTokens} so search can find them
+ * without inflating: at most {@value #MAX_TOKENS} distinct words of at least {@value #MIN_TOKEN_LENGTH}
+ * characters, each cut to {@value #MAX_TOKEN_LENGTH}. That keeps a pasted log or code block to a
+ * few dozen index keys, at the cost of search missing words past the cap in very long messages.
+ */
+@Component
+@RequiredArgsConstructor
+public class MessageContentCompressor {
+
+    public static final int MIN_TOKEN_LENGTH = 3;
+    public static final int MAX_TOKEN_LENGTH = 24;
+    public static final int MAX_TOKENS = 64;
+
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ChatMetrics chatMetrics;
+
+    @Value("${chat.messages.compression.enabled}")
+    private boolean enabled;
+
+    @Value("${chat.messages.compression.threshold}")
+    private int threshold;
+
+    public void compress(Message message) {
+        String content = message.getContent();
+        if (!enabled || message.isContentCompressed() || content == null || content.length() < threshold) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        byte[] compressed = MessageContentCodec.deflate(content);
+        int originalBytes = content.getBytes(StandardCharsets.UTF_8).length;
+        boolean worthIt = compressed.length <= originalBytes * 0.9;
+        chatMetrics.recordContentCompression(originalBytes, worthIt ? compressed.length : originalBytes,
+                System.nanoTime() - start);
+        if (!worthIt) {
+            return;
+        }
+
+        message.setCompressedContent(compressed);
+        message.setContentCompressed(true);
+        message.setContent(null);
+        message.setInflatedContent(content);
+        message.setSearchTokens(searchTokens(content));
+    }
+
+    // First distinct lowercase runs of letters and digits, bounded as above; no regex metacharacters survive
+    public static Set<String> searchTokens(String text) {
+        return Arrays.stream(WORD_SEPARATOR.split(text.toLowerCase(Locale.ROOT)))
+                .filter(token -> token.length() >= MIN_TOKEN_LENGTH)
+                .map(token -> token.length() > MAX_TOKEN_LENGTH ? token.substring(0, MAX_TOKEN_LENGTH) : token)
+                .distinct()
+                .limit(MAX_TOKENS)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Writes whichever content form the message holds at {@code prefix} (a top-level document or a
+     * positional path into a bucket) and clears the other.
+     */
+    public static void writeContent(Update update, String prefix, Message message) {
+        if (message.isContentCompressed()) {
+            update.set(prefix + "compressedContent", message.getCompressedContent())
+                    .set(prefix + "contentCompressed", true)
+                    .set(prefix + "searchTokens", message.getSearchTokens())
+                    .unset(prefix + "content");
+        } else {
+            update.set(prefix + "content", message.getContent())
+                    .set(prefix + "contentCompressed", false)
+                    .unset(prefix + "compressedContent")
+                    .unset(prefix + "searchTokens");
+        }
+    }
+
+}
@@ -1,31 +1,67 @@
 package com.github.superz97.chat.service;
 
+import com.github.superz97.chat.changestream.MessageUpdatedEvent;
+import com.github.superz97.chat.dto.response.FileDTO;
 import com.github.superz97.chat.dto.response.MessageDTO;
 import com.github.superz97.chat.entity.Message;
 import com.github.superz97.chat.entity.User;
+import com.github.superz97.chat.enums.ConversationType;
 import com.github.superz97.chat.enums.MessageType;
+import com.github.superz97.chat.exception.BadRequestException;
 import com.github.superz97.chat.exception.ForbiddenException;
 import com.github.superz97.chat.exception.ResourceNotFoundException;
 import com.github.superz97.chat.repository.MessageRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class MessageService {
 
+    // Newest compressed candidates inflated per search
+    private static final int COMPRESSED_SEARCH_LIMIT = 200;
+    private static final int MAX_READERS_PAGE_SIZE = 500;
+
     private final MessageRepository messageRepository;
     private final UserService userService;
+    private final FileService fileService;
+    private final MongoTemplate mongoTemplate;
+    private final MessageBucketService messageBucketService;
+    private final HistoryTailCache historyTailCache;
+    private final MessageArchiveService messageArchiveService;
+    private final MessageContentCompressor messageContentCompressor;
+    private final InboxService inboxService;
+    private final DirectConversationMigration directConversationMigration;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public Message sendMessage(String senderId, MessageDTO.SendMessageRequest request) {
@@ -33,8 +69,11 @@ public class MessageService {
 
         User sender = userService.getUserById(senderId);
 
-        // Check if user is blocked
+        // Check if user is blocked; the block list is in memory, only existence still goes to the database
         if (request.getRecipientId() != null) {
+            if (!userService.existsById(request.getRecipientId())) {
+                throw new ResourceNotFoundException("User", "id", request.getRecipientId());
+            }
             if (userService.isUserBlocked(request.getRecipientId(), senderId)) {
                 throw new ForbiddenException("You are blocked by this user");
             }
@@ -44,6 +83,8 @@ public class MessageService {
                 .senderId(senderId)
                 .senderUsername(sender.getUsername())
                 .recipientId(request.getRecipientId())
+                .conversationId(request.getRecipientId() != null
+                        ? directConversationId(senderId, request.getRecipientId()) : null)
                 .channelId(request.getChannelId())
                 .groupId(request.getGroupId())
                 .type(request.getType() != null ? request.getType() : MessageType.TEXT)
@@ -51,8 +92,18 @@ public class MessageService {
                 .replyToMessageId(request.getReplyToMessageId())
                 .timestamp(LocalDateTime.now())
                 .build();
-
-        return messageRepository.save(message);
+        messageContentCompressor.compress(message);
+
+        if (messageBucketService.isBucketed(message)) {
+            message.setId(new ObjectId().toHexString());
+            message.setBucketId(messageBucketService.append(message));
+            message = messageRepository.insert(message);
+        } else {
+            message = messageRepository.save(message);
+        }
+        historyTailCache.applyInsert(message);
+        inboxService.recordMessage(message, request.getContent());
+        return message;
     }
 
     public Message getMessageById(String messageId) {
@@ -60,19 +111,81 @@ public class MessageService {
                 .orElseThrow(() -> new ResourceNotFoundException("Message", "id", messageId));
     }
 
+    public void requireMessageExists(String messageId) {
+        if (!messageRepository.existsById(messageId)) {
+            throw new ResourceNotFoundException("Message", "id", messageId);
+        }
+    }
+
     public Page<Message> getChannelMessages(String channelId, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("timestamp").descending());
-        return messageRepository.findByChannelIdAndDeletedFalseOrderByTimestampDesc(channelId, pageable);
+        Page<Message> hot = historyTailCache.getFirstPage(HistoryTailCache.channelKey(channelId), page, size,
+                pageSize -> loadChannelMessages(channelId, page, pageSize));
+        return withArchive(MessageBucketService.channelKey(channelId), page, size, hot);
     }
 
     public Page<Message> getGroupMessages(String groupId, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("timestamp").descending());
-        return messageRepository.findByGroupIdAndDeletedFalseOrderByTimestampDesc(groupId, pageable);
+        Page<Message> hot = historyTailCache.getFirstPage(HistoryTailCache.groupKey(groupId), page, size,
+                pageSize -> loadGroupMessages(groupId, page, pageSize));
+        return withArchive(MessageBucketService.groupKey(groupId), page, size, hot);
     }
 
     public Page<Message> getPrivateMessages(String userId1, String userId2, int page, int size) {
+        return historyTailCache.getFirstPage(HistoryTailCache.privateKey(userId1, userId2), page, size,
+                pageSize -> {
+                    Pageable pageable = PageRequest.of(page, pageSize, Sort.by("timestamp").descending());
+                    return directConversationMigration.isComplete()
+                            ? messageRepository.findByConversationIdAndDeletedFalse(
+                                    directConversationId(userId1, userId2), pageable)
+                            : messageRepository.findPrivateMessagesBetweenUsers(userId1, userId2, pageable);
+                });
+    }
+
+    // Reconnect catch-up, oldest first
+    public List<Message> getChannelMessagesSince(String channelId, LocalDateTime since) {
+        return historyTailCache.getSince(HistoryTailCache.channelKey(channelId), since)
+                .orElseGet(() -> messageRepository.findByChannelIdAndTimestampAfterAndDeletedFalseOrderByTimestampAsc(
+                        channelId, since));
+    }
+
+    public List<Message> getGroupMessagesSince(String groupId, LocalDateTime since) {
+        return historyTailCache.getSince(HistoryTailCache.groupKey(groupId), since)
+                .orElseGet(() -> messageRepository.findByGroupIdAndTimestampAfterAndDeletedFalseOrderByTimestampAsc(
+                        groupId, since));
+    }
+
+    // Paging past the hot window continues into the archive tier; totals cover both
+    private Page<Message> withArchive(String conversationKey, int page, int size, Page<Message> hot) {
+        long archived = messageArchiveService.countMessages(conversationKey);
+        if (archived == 0) {
+            return hot;
+        }
+
+        long hotTotal = hot.getTotalElements();
+        long offset = (long) page * size;
+        List<Message> content = hot.getContent();
+        if (content.size() < size && offset + size > hotTotal) {
+            content = new ArrayList<>(content);
+            content.addAll(messageArchiveService.getRange(conversationKey,
+                    Math.max(0, offset - hotTotal), size - content.size()));
+        }
+        return new PageImpl<>(content, PageRequest.of(page, size, Sort.by("timestamp").descending()),
+                hotTotal + archived);
+    }
+
+    private Page<Message> loadChannelMessages(String channelId, int page, int size) {
+        if (messageBucketService.isEnabled()) {
+            return messageBucketService.getPage(MessageBucketService.channelKey(channelId), page, size);
+        }
+        Pageable pageable = PageRequest.of(page, size, Sort.by("timestamp").descending());
+        return messageRepository.findByChannelIdAndDeletedFalseOrderByTimestampDesc(channelId, pageable);
+    }
+
+    private Page<Message> loadGroupMessages(String groupId, int page, int size) {
+        if (messageBucketService.isEnabled()) {
+            return messageBucketService.getPage(MessageBucketService.groupKey(groupId), page, size);
+        }
         Pageable pageable = PageRequest.of(page, size, Sort.by("timestamp").descending());
-        return messageRepository.findPrivateMessagesBetweenUsers(userId1, userId2, pageable);
+        return messageRepository.findByGroupIdAndDeletedFalseOrderByTimestampDesc(groupId, pageable);
     }
 
     @Transactional
@@ -85,11 +198,25 @@ public class MessageService {
             throw new ForbiddenException("You can only edit your own messages");
         }
 
-        message.setContent(newContent);
-        message.setEdited(true);
-        message.setEditedAt(LocalDateTime.now());
-
-        return messageRepository.save(message);
+        Message edited = Message.builder().content(newContent).build();
+        messageContentCompressor.compress(edited);
+
+        // Targeted updates rather than save() so change streams see exactly which fields moved
+        Update update = new Update()
+                .set("edited", true)
+                .set("editedAt", LocalDateTime.now());
+        MessageContentCompressor.writeContent(update, "", edited);
+        Message updated = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(messageId)),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                Message.class);
+        if (updated != null) {
+            messageBucketService.mirrorEdit(updated);
+            historyTailCache.applyUpdate(updated);
+            eventPublisher.publishEvent(new MessageUpdatedEvent(updated, Set.of("content", "edited", "editedAt")));
+        }
+        return updated;
     }
 
     @Transactional
@@ -102,44 +229,106 @@ public class MessageService {
             throw new ForbiddenException("You can only delete your own messages");
         }
 
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(messageId)),
+                new Update().set("deleted", true).set("deletedAt", LocalDateTime.now()),
+                Message.class);
+        messageBucketService.remove(message);
         message.setDeleted(true);
-        messageRepository.save(message);
+        historyTailCache.applyUpdate(message);
+        eventPublisher.publishEvent(new MessageUpdatedEvent(message, Set.of("deleted", "deletedAt")));
     }
 
     @Transactional
     public void markAsRead(String messageId, String userId) {
-        Message message = getMessageById(messageId);
-        message.getReadBy().add(userId);
-        messageRepository.save(message);
+        markAsReadBatch(List.of(messageId), userId);
+    }
+
+    /**
+     * Marks a batch of messages as read by one user with a single update (plus one per bucket) and
+     * returns the messages that were not already read by that user, projected to routing fields.
+     */
+    public List<Message> markAsReadBatch(Collection<String> messageIds, String userId) {
+        Criteria unread = Criteria.where("_id").in(messageIds).and("readBy").ne(userId).and("deleted").is(false);
+        Query query = Query.query(unread);
+        query.fields().include("senderId", "channelId", "groupId", "recipientId", "bucketId", "timestamp");
+        List<Message> newlyRead = mongoTemplate.find(query, Message.class);
+        if (newlyRead.isEmpty()) {
+            return newlyRead;
+        }
+
+        List<String> ids = newlyRead.stream().map(Message::getId).toList();
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids)),
+                new Update().addToSet("readBy", userId), Message.class);
+        newlyRead.stream()
+                .filter(message -> message.getBucketId() != null)
+                .collect(Collectors.groupingBy(Message::getBucketId,
+                        Collectors.mapping(Message::getId, Collectors.toList())))
+                .forEach((bucketId, bucketMessageIds) ->
+                        messageBucketService.mirrorReadMany(bucketId, bucketMessageIds, userId));
+        historyTailCache.applyRead(newlyRead, userId);
+        inboxService.markRead(userId, newlyRead);
+        return newlyRead;
+    }
+
+    // Slices the readBy array server side, so a 5k-reader message is never loaded whole
+    public Page<String> getReaders(String messageId, int page, int size) {
+        if (page < 0 || size < 1 || size > MAX_READERS_PAGE_SIZE) {
+            throw new BadRequestException("Page must be >= 0 and size between 1 and " + MAX_READERS_PAGE_SIZE);
+        }
+        // $slice takes an int; an offset past that is past any reader list anyway
+        int offset = (int) Math.min((long) page * size, Integer.MAX_VALUE);
+        Document readBy = new Document("$ifNull", List.of("$readBy", List.of()));
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("_id").is(messageId)),
+                context -> new Document("$project", new Document("count", new Document("$size", readBy))
+                        .append("readers", new Document("$slice", List.of(readBy, offset, size)))));
+        Document result = mongoTemplate.aggregate(aggregation, Message.class, Document.class).getUniqueMappedResult();
+        if (result == null) {
+            throw new ResourceNotFoundException("Message", "id", messageId);
+        }
+        List<String> readers = result.getList("readers", String.class);
+        return new PageImpl<>(readers, PageRequest.of(page, size), result.getInteger("count"));
     }
 
     @Transactional
     public void markChannelMessagesAsRead(String channelId, String userId) {
-        List<Message> unreadMessages = messageRepository.findUnreadChannelMessages(channelId, userId);
-        unreadMessages.forEach(message -> message.getReadBy().add(userId));
-        messageRepository.saveAll(unreadMessages);
+        messageRepository.markChannelMessagesRead(channelId, userId);
+        if (messageBucketService.isEnabled()) {
+            messageBucketService.mirrorReadAll(MessageBucketService.channelKey(channelId), userId);
+        }
+        inboxService.markRead(userId, ConversationType.CHANNEL, channelId);
     }
 
     @Transactional
     public void markGroupMessagesAsRead(String groupId, String userId) {
-        List<Message> unreadMessages = messageRepository.findUnreadGroupMessages(groupId, userId);
-        unreadMessages.forEach(message -> message.getReadBy().add(userId));
-        messageRepository.saveAll(unreadMessages);
+        messageRepository.markGroupMessagesRead(groupId, userId);
+        if (messageBucketService.isEnabled()) {
+            messageBucketService.mirrorReadAll(MessageBucketService.groupKey(groupId), userId);
+        }
+        inboxService.markRead(userId, ConversationType.GROUP, groupId);
     }
 
     @Transactional
     public void markPrivateMessagesAsRead(String senderId, String recipientId) {
-        List<Message> unreadMessages = messageRepository.findUnreadPrivateMessages(recipientId);
-        unreadMessages.stream()
-                .filter(m -> m.getSenderId().equals(senderId))
-                .forEach(message -> message.getReadBy().add(recipientId));
-        messageRepository.saveAll(unreadMessages);
+        if (directConversationMigration.isComplete()) {
+            messageRepository.markConversationMessagesRead(directConversationId(senderId, recipientId), recipientId);
+        } else {
+            messageRepository.markPrivateMessagesRead(senderId, recipientId);
+        }
+        inboxService.markRead(recipientId, ConversationType.DIRECT, senderId);
     }
 
     public long getUnreadPrivateMessageCount(String userId) {
         return messageRepository.countUnreadPrivateMessages(userId);
     }
 
+    public long getUnreadDirectMessageCount(String userId, String otherUserId) {
+        return directConversationMigration.isComplete()
+                ? messageRepository.countUnreadConversationMessages(directConversationId(userId, otherUserId), userId)
+                : messageRepository.countUnreadPrivateMessagesFrom(otherUserId, userId);
+    }
+
     public long getUnreadChannelMessageCount(String channelId, String userId) {
         return messageRepository.countUnreadChannelMessages(channelId, userId);
     }
@@ -148,26 +337,111 @@ public class MessageService {
         return messageRepository.countUnreadGroupMessages(groupId, userId);
     }
 
+    // The term is matched literally; it is never interpreted as a regex
     public List<Message> searchInChannel(String channelId, String searchTerm) {
-        return messageRepository.searchInChannel(channelId, searchTerm);
+        return withCompressedMatches(messageRepository.searchInChannel(channelId, Pattern.quote(searchTerm)),
+                Criteria.where("channelId").is(channelId), searchTerm);
     }
 
     public List<Message> searchInGroup(String groupId, String searchTerm) {
-        return messageRepository.searchInGroup(groupId, searchTerm);
+        return withCompressedMatches(messageRepository.searchInGroup(groupId, Pattern.quote(searchTerm)),
+                Criteria.where("groupId").is(groupId), searchTerm);
+    }
+
+    // Compressed content is invisible to $regex. Candidates come from the searchTokens index, each indexable
+    // word of the term matching a word prefix; a term of only short words falls back to the newest compressed
+    // messages. Either way at most COMPRESSED_SEARCH_LIMIT are inflated to confirm the literal match
+    private List<Message> withCompressedMatches(List<Message> matches, Criteria conversation, String searchTerm) {
+        if (searchTerm.isBlank()) {
+            return matches;
+        }
+        Criteria criteria = conversation.and("contentCompressed").is(true).and("deleted").is(false);
+        Set<String> words = MessageContentCompressor.searchTokens(searchTerm);
+        if (!words.isEmpty()) {
+            criteria = criteria.andOperator(words.stream()
+                    .map(word -> Criteria.where("searchTokens").regex("^" + word))
+                    .toArray(Criteria[]::new));
+        }
+        Query candidates = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "timestamp"))
+                .limit(COMPRESSED_SEARCH_LIMIT);
+        Pattern pattern = Pattern.compile(Pattern.quote(searchTerm), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        List<Message> result = new ArrayList<>(matches);
+        mongoTemplate.find(candidates, Message.class).stream()
+                .filter(message -> pattern.matcher(message.getContent()).find())
+                .forEach(result::add);
+        return result;
     }
 
     public List<Message> getReplies(String messageId) {
         return messageRepository.findByReplyToMessageIdAndDeletedFalse(messageId);
     }
 
-    @Transactional
     public void addAttachment(String messageId, String attachmentId) {
-        Message message = getMessageById(messageId);
-        message.getAttachmentIds().add(attachmentId);
-        messageRepository.save(message);
+        String bucketId = updateAndGetBucketId(messageId, new Update().push("attachmentIds", attachmentId));
+        if (bucketId != null) {
+            messageBucketService.mirrorAttachment(bucketId, messageId, attachmentId);
+        }
+    }
+
+    // Applies the update and returns the message's bucket id (null when not bucketed)
+    private String updateAndGetBucketId(String messageId, Update update) {
+        Query query = Query.query(Criteria.where("_id").is(messageId));
+        query.fields().include("bucketId");
+        Message message = mongoTemplate.findAndModify(query, update, Message.class);
+        if (message == null) {
+            throw new ResourceNotFoundException("Message", "id", messageId);
+        }
+        return message.getBucketId();
+    }
+
+    @Async
+    public CompletableFuture<Void> linkAttachmentAsync(String messageId, String attachmentId) {
+        try {
+            addAttachment(messageId, attachmentId);
+        } catch (Exception e) {
+            log.error("Error linking attachment {} to message {}", attachmentId, messageId, e);
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    public Page<MessageDTO> toDTOPage(Page<Message> messages, boolean includeAttachments,
+                                      String viewerId, boolean includeReaders) {
+        if (!includeAttachments) {
+            return messages.map(message -> toDTO(message, viewerId, includeReaders));
+        }
+
+        Set<String> attachmentIds = messages.stream()
+                .flatMap(message -> message.getAttachmentIds().stream())
+                .collect(Collectors.toSet());
+        Map<String, FileDTO> attachments = fileService.getFileDTOsByIds(attachmentIds);
+
+        return messages.map(message -> {
+            MessageDTO dto = toDTO(message, viewerId, includeReaders);
+            dto.setAttachments(message.getAttachmentIds().stream()
+                    .map(attachments::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList()));
+            return dto;
+        });
+    }
+
+    // Same id whichever side sends; string order matches Mongo's, so the backfill can compute it server side
+    public static String directConversationId(String userId1, String userId2) {
+        return userId1.compareTo(userId2) < 0 ? userId1 + ":" + userId2 : userId2 + ":" + userId1;
     }
 
     public MessageDTO toDTO(Message message) {
+        return toDTO(message, null, true);
+    }
+
+    /**
+     * Read state is compact unless {@code includeReaders}: the reader count plus whether the viewer
+     * (when known) has read the message. Full lists are paged through {@link #getReaders}.
+     */
+    public MessageDTO toDTO(Message message, String viewerId, boolean includeReaders) {
+        Set<String> readBy = message.getReadBy() != null ? message.getReadBy() : Set.of();
         return MessageDTO.builder()
                 .id(message.getId())
                 .senderId(message.getSenderId())
@@ -182,7 +456,9 @@ public class MessageService {
                 .editedAt(message.getEditedAt())
                 .edited(message.isEdited())
                 .deleted(message.isDeleted())
-                .readBy(message.getReadBy())
+                .readBy(includeReaders ? readBy : null)
+                .readCount(readBy.size())
+                .readByMe(viewerId != null ? readBy.contains(viewerId) : null)
                 .replyToMessageId(message.getReplyToMessageId())
                 .build();
     }
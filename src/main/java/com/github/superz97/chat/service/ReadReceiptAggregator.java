@@ -0,0 +1,111 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.dto.response.ReadReceiptDTO;
+import com.github.superz97.chat.dto.response.WebSocketMessageDTO;
+import com.github.superz97.chat.entity.Message;
+import com.github.superz97.chat.enums.WebSocketMessageType;
+import com.github.superz97.chat.metrics.ChatMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects read events per reader over a short window, applies each reader's batch as one bulk
+ * update, and sends every affected sender a single compact MESSAGE_READ frame instead of one full
+ * MessageDTO per message.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReadReceiptAggregator {
+
+    private final MessageService messageService;
+    private final WebSocketService webSocketService;
+    private final ChatMetrics chatMetrics;
+    private final Map<String, Set<String>> pending = new ConcurrentHashMap<>();
+
+    @Value("${chat.read-receipts.max-batch}")
+    private int maxBatch;
+
+    public void record(String readerId, String messageId) {
+        // Added under the map's bin lock, so a batch removed for flushing never gains late entries
+        Set<String> batch = pending.compute(readerId, (key, ids) -> {
+            Set<String> result = ids != null ? ids : new HashSet<>();
+            result.add(messageId);
+            return result;
+        });
+        // A fast scroller flushes early on its own thread rather than growing without bound
+        if (batch.size() >= maxBatch && pending.remove(readerId, batch)) {
+            flush(readerId, batch);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.read-receipts.window-ms}", scheduler = "flushScheduler")
+    public void flushAll() {
+        for (String readerId : pending.keySet()) {
+            Set<String> batch = pending.remove(readerId);
+            if (batch != null) {
+                flush(readerId, batch);
+            }
+        }
+    }
+
+    @PreDestroy
+    void drain() {
+        flushAll();
+    }
+
+    private void flush(String readerId, Set<String> messageIds) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        try {
+            List<Message> newlyRead = messageService.markAsReadBatch(List.copyOf(messageIds), readerId);
+            chatMetrics.recordReadReceiptFlush(messageIds.size(), newlyRead.size());
+            notifySenders(readerId, newlyRead);
+        } catch (Exception e) {
+            log.error("Error applying {} read receipts for user {}", messageIds.size(), readerId, e);
+        }
+    }
+
+    private void notifySenders(String readerId, List<Message> newlyRead) {
+        // sender -> conversation -> receipt; readers don't get receipts for their own messages
+        Map<String, Map<String, ReadReceiptDTO>> bySender = new LinkedHashMap<>();
+        for (Message message : newlyRead) {
+            if (message.getSenderId() == null || message.getSenderId().equals(readerId)) {
+                continue;
+            }
+            String conversation = message.getChannelId() != null ? "channel:" + message.getChannelId()
+                    : message.getGroupId() != null ? "group:" + message.getGroupId() : "private";
+            ReadReceiptDTO receipt = bySender
+                    .computeIfAbsent(message.getSenderId(), key -> new LinkedHashMap<>())
+                    .computeIfAbsent(conversation, key -> ReadReceiptDTO.builder()
+                            .readerId(readerId)
+                            .channelId(message.getChannelId())
+                            .groupId(message.getGroupId())
+                            .messageIds(new ArrayList<>())
+                            .build());
+            receipt.getMessageIds().add(message.getId());
+            if (message.getTimestamp() != null) {
+                long timestamp = message.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                receipt.setReadUpTo(Math.max(receipt.getReadUpTo(), timestamp));
+            }
+        }
+
+        bySender.forEach((senderId, receipts) -> webSocketService.sendToUser(senderId,
+                WebSocketMessageDTO.typed(WebSocketMessageType.MESSAGE_READ, List.copyOf(receipts.values()))));
+    }
+
+}
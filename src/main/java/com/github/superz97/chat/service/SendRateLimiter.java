@@ -0,0 +1,172 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.dto.response.MessageDTO;
+import com.github.superz97.chat.exception.RateLimitExceededException;
+import com.github.superz97.chat.exception.UnauthorizedException;
+import com.github.superz97.chat.metrics.ChatMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token-bucket limits on message sends, per sender and per target conversation. Buckets are
+ * lock-free (one CAS on a single long) and keyed by strings the caller already holds, so an
+ * admitted send allocates nothing once its buckets exist.
+ */
+@Component
+@RequiredArgsConstructor
+public class SendRateLimiter {
+
+    private final ChatMetrics chatMetrics;
+    // Split by tier and picked on every send, so a role change takes effect without waiting for a sweep
+    private final Map<String, Bucket> users = new ConcurrentHashMap<>();
+    private final Map<String, Bucket> elevatedUsers = new ConcurrentHashMap<>();
+    private final Map<String, Bucket> channels = new ConcurrentHashMap<>();
+    private final Map<String, Bucket> groups = new ConcurrentHashMap<>();
+    // Direct messages are limited per recipient, which protects an inbox without building a pair key
+    private final Map<String, Bucket> recipients = new ConcurrentHashMap<>();
+
+    @Value("${chat.rate-limit.enabled}")
+    private boolean enabled;
+
+    @Value("${chat.rate-limit.user.messages-per-second}")
+    private double userRate;
+
+    @Value("${chat.rate-limit.user.burst}")
+    private int userBurst;
+
+    @Value("${chat.rate-limit.elevated.role}")
+    private String elevatedRole;
+
+    @Value("${chat.rate-limit.elevated.messages-per-second}")
+    private double elevatedRate;
+
+    @Value("${chat.rate-limit.elevated.burst}")
+    private int elevatedBurst;
+
+    @Value("${chat.rate-limit.conversation.messages-per-second}")
+    private double conversationRate;
+
+    @Value("${chat.rate-limit.conversation.burst}")
+    private int conversationBurst;
+
+    @Value("${chat.rate-limit.recipient.messages-per-second}")
+    private double recipientRate;
+
+    @Value("${chat.rate-limit.recipient.burst}")
+    private int recipientBurst;
+
+    /**
+     * Takes a token from the sender's bucket and then from the target conversation's bucket.
+     * Senders are keyed by their Keycloak subject. Throws {@link RateLimitExceededException} with
+     * the wait until the next token otherwise.
+     */
+    public void acquire(String subject, Collection<? extends GrantedAuthority> authorities,
+                        MessageDTO.SendMessageRequest request) {
+        if (!enabled) {
+            return;
+        }
+        if (subject == null) {
+            throw new UnauthorizedException("Token has no subject");
+        }
+        long now = System.nanoTime();
+
+        Bucket user = isElevated(authorities)
+                ? bucket(elevatedUsers, subject, elevatedRate, elevatedBurst)
+                : bucket(users, subject, userRate, userBurst);
+        check("user", user, now);
+
+        if (request.getChannelId() != null) {
+            check("channel", bucket(channels, request.getChannelId(), conversationRate, conversationBurst), now);
+        } else if (request.getGroupId() != null) {
+            check("group", bucket(groups, request.getGroupId(), conversationRate, conversationBurst), now);
+        } else if (request.getRecipientId() != null) {
+            check("recipient", bucket(recipients, request.getRecipientId(), recipientRate, recipientBurst), now);
+        }
+    }
+
+    // Full buckets carry no state worth keeping
+    @Scheduled(fixedDelayString = "${chat.rate-limit.sweep-interval-ms}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        users.values().removeIf(bucket -> bucket.isFull(now));
+        elevatedUsers.values().removeIf(bucket -> bucket.isFull(now));
+        channels.values().removeIf(bucket -> bucket.isFull(now));
+        groups.values().removeIf(bucket -> bucket.isFull(now));
+        recipients.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    private void check(String scope, Bucket bucket, long now) {
+        long waitNanos = bucket.tryAcquire(now);
+        if (waitNanos > 0) {
+            chatMetrics.recordRateLimited(scope);
+            throw new RateLimitExceededException(scope, Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+        }
+    }
+
+    private static Bucket bucket(Map<String, Bucket> buckets, String key, double rate, int burst) {
+        Bucket bucket = buckets.get(key);
+        return bucket != null ? bucket : buckets.computeIfAbsent(key, k -> new Bucket(rate, burst));
+    }
+
+    private boolean isElevated(Collection<? extends GrantedAuthority> authorities) {
+        if (authorities == null || elevatedRole.isEmpty()) {
+            return false;
+        }
+        for (GrantedAuthority authority : authorities) {
+            String name = authority.getAuthority();
+            if (name != null && name.length() == elevatedRole.length() + 5
+                    && name.startsWith("ROLE_") && name.endsWith(elevatedRole)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Token bucket in its GCRA form: the only state is the theoretical arrival time of the next
+     * send. Each send pushes it one interval forward; a send is refused when that would put it more
+     * than {@code burst} intervals ahead of now.
+     */
+    static final class Bucket {
+
+        private final long intervalNanos;
+        private final long capacityNanos;
+        private final AtomicLong arrival = new AtomicLong(Long.MIN_VALUE);
+
+        Bucket(double ratePerSecond, int burst) {
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+            this.capacityNanos = intervalNanos * Math.max(1, burst);
+        }
+
+        // Returns 0 when a token was taken, otherwise the nanos until one is available
+        long tryAcquire(long now) {
+            while (true) {
+                long current = arrival.get();
+                long next = (current == Long.MIN_VALUE || current - now < 0 ? now : current) + intervalNanos;
+                long excess = next - now - capacityNanos;
+                if (excess > 0) {
+                    return excess;
+                }
+                if (arrival.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        boolean isFull(long now) {
+            long current = arrival.get();
+            return current == Long.MIN_VALUE || current - now <= 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.config.FileStorageConfig;
+import com.github.superz97.chat.entity.UserStorageUsage;
+import com.github.superz97.chat.exception.QuotaExceededException;
+import com.github.superz97.chat.repository.FileAttachmentRepository;
+import com.github.superz97.chat.repository.FileAttachmentRepository.StorageTotal;
+import com.github.superz97.chat.repository.UserStorageUsageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a running per-user storage counter so quota checks and usage reads are a single
+ * document lookup. Counters are seeded lazily from an aggregation over file_attachments and
+ * a scheduled job compares them against the aggregation to correct any drift.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageUsageService {
+
+    private final MongoTemplate mongoTemplate;
+    private final UserStorageUsageRepository userStorageUsageRepository;
+    private final FileAttachmentRepository fileAttachmentRepository;
+    private final FileStorageConfig fileStorageConfig;
+
+    public long getUsage(String userId) {
+        return userStorageUsageRepository.findById(userId)
+                .orElseGet(() -> seedIfAbsent(userId))
+                .getTotalBytes();
+    }
+
+    // Atomically adds the file to the counter, failing if it would push the user over quota
+    public void reserve(String userId, long bytes) {
+        long quota = fileStorageConfig.getUserQuota();
+        if (bytes > quota) {
+            throw new QuotaExceededException("File exceeds the storage quota of " + quota + " bytes");
+        }
+
+        Query withinQuota = Query.query(Criteria.where("_id").is(userId)
+                .and("totalBytes").lte(quota - bytes));
+
+        if (mongoTemplate.updateFirst(withinQuota, increment(bytes, 1), UserStorageUsage.class)
+                .getMatchedCount() > 0) {
+            return;
+        }
+
+        // No counter yet for this user: seed it from existing uploads and try once more
+        if (!userStorageUsageRepository.existsById(userId)) {
+            seedIfAbsent(userId);
+            if (mongoTemplate.updateFirst(withinQuota, increment(bytes, 1), UserStorageUsage.class)
+                    .getMatchedCount() > 0) {
+                return;
+            }
+        }
+
+        throw new QuotaExceededException("Uploading this file would exceed the storage quota of "
+                + quota + " bytes");
+    }
+
+    public void release(String userId, long bytes) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(userId)),
+                increment(-bytes, -1), UserStorageUsage.class);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.file-upload.usage-reconcile-interval-ms}",
+            initialDelayString = "${chat.file-upload.usage-reconcile-interval-ms}")
+    public void verifyStorageUsage() {
+        log.debug("Verifying per-user storage usage counters");
+
+        Set<String> uploaders = new HashSet<>();
+        int corrected = 0;
+
+        try (Stream<StorageTotal> totals = fileAttachmentRepository.sumStorageByAllUploaders()) {
+            for (StorageTotal total : (Iterable<StorageTotal>) totals::iterator) {
+                if (total.uploaderId() == null) {
+                    continue;
+                }
+                uploaders.add(total.uploaderId());
+                if (correctDrift(total)) {
+                    corrected++;
+                }
+            }
+        }
+
+        // Counters left behind for users whose files have all been removed
+        Query nonZero = Query.query(new Criteria().orOperator(
+                Criteria.where("totalBytes").ne(0L),
+                Criteria.where("fileCount").ne(0L)));
+        try (Stream<UserStorageUsage> counters = mongoTemplate.stream(nonZero, UserStorageUsage.class)) {
+            for (UserStorageUsage usage : (Iterable<UserStorageUsage>) counters::iterator) {
+                if (!uploaders.contains(usage.getUserId())
+                        && correctDrift(new StorageTotal(usage.getUserId(), 0L, 0L))) {
+                    corrected++;
+                }
+            }
+        }
+
+        if (corrected > 0) {
+            log.warn("Corrected storage usage drift for {} user(s)", corrected);
+        }
+    }
+
+    private boolean correctDrift(StorageTotal streamed) {
+        String userId = streamed.uploaderId();
+        UserStorageUsage usage = userStorageUsageRepository.findById(userId).orElse(null);
+        if (usage == null) {
+            seedIfAbsent(userId);
+            return false;
+        }
+        StorageTotal total = streamed;
+        if (!matches(usage, total)) {
+            // The streamed total predates this read of the counter; sum again now so an upload or delete
+            // that landed in between isn't taken for drift
+            total = fileAttachmentRepository.sumStorageByUploader(userId)
+                    .orElse(new StorageTotal(userId, 0L, 0L));
+        }
+
+        // Every write is conditional on the counter still holding what we read, so a concurrent
+        // reserve or release is never overwritten
+        Query unchanged = Query.query(Criteria.where("_id").is(userId)
+                .and("totalBytes").is(usage.getTotalBytes())
+                .and("fileCount").is(usage.getFileCount()));
+        if (matches(usage, total)) {
+            mongoTemplate.updateFirst(unchanged, new Update().set("lastReconciledAt", LocalDateTime.now()),
+                    UserStorageUsage.class);
+            return false;
+        }
+
+        log.warn("Storage usage drift for user {}: counter={} bytes/{} files, actual={} bytes/{} files",
+                userId, usage.getTotalBytes(), usage.getFileCount(), total.totalBytes(), total.fileCount());
+
+        Update update = new Update()
+                .set("totalBytes", total.totalBytes())
+                .set("fileCount", total.fileCount())
+                .set("updatedAt", LocalDateTime.now())
+                .set("lastReconciledAt", LocalDateTime.now());
+        return mongoTemplate.updateFirst(unchanged, update, UserStorageUsage.class).getModifiedCount() > 0;
+    }
+
+    private static boolean matches(UserStorageUsage usage, StorageTotal total) {
+        return usage.getTotalBytes() == total.totalBytes() && usage.getFileCount() == total.fileCount();
+    }
+
+    private UserStorageUsage seedIfAbsent(String userId) {
+        StorageTotal total = fileAttachmentRepository.sumStorageByUploader(userId)
+                .orElse(new StorageTotal(userId, 0L, 0L));
+        Update update = new Update()
+                .setOnInsert("totalBytes", total.totalBytes())
+                .setOnInsert("fileCount", total.fileCount())
+                .setOnInsert("updatedAt", LocalDateTime.now())
+                .setOnInsert("lastReconciledAt", LocalDateTime.now());
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(userId)), update, UserStorageUsage.class);
+        return userStorageUsageRepository.findById(userId)
+                .orElseGet(() -> UserStorageUsage.builder().userId(userId).build());
+    }
+
+    private Update increment(long bytes, long files) {
+        return new Update()
+                .inc("totalBytes", bytes)
+                .inc("fileCount", files)
+                .set("updatedAt", LocalDateTime.now());
+    }
+
+}
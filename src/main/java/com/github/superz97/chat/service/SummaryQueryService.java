@@ -0,0 +1,92 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.dto.response.ConversationSummaryDTO;
+import com.github.superz97.chat.dto.response.UserSummaryDTO;
+import com.github.superz97.chat.entity.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Paginated list views backed by Mongo field projections, so list endpoints
+ * never pull member, admin or block id sets over the wire.
+ */
+@Service
+@RequiredArgsConstructor
+public class SummaryQueryService {
+
+    private final MongoTemplate mongoTemplate;
+
+    public Page<ConversationSummaryDTO> conversations(Class<?> entityClass, Criteria criteria, Pageable pageable) {
+        List<ConversationSummaryDTO> content = mongoTemplate
+                .aggregate(conversationAggregation(criteria, pageable), entityClass, ConversationSummaryDTO.class)
+                .getMappedResults();
+        return new PageImpl<>(content, pageable, mongoTemplate.count(new Query(criteria), entityClass));
+    }
+
+    // Summaries in the order of the given ids, e.g. a ranked typeahead result
+    public List<ConversationSummaryDTO> conversationsByIds(Class<?> entityClass, List<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<ConversationSummaryDTO> content = mongoTemplate
+                .aggregate(conversationAggregation(Criteria.where("_id").in(ids), Pageable.unpaged()),
+                        entityClass, ConversationSummaryDTO.class)
+                .getMappedResults();
+        return inIdOrder(content, ids, ConversationSummaryDTO::getId);
+    }
+
+    public Page<UserSummaryDTO> users(Criteria criteria, Pageable pageable) {
+        List<UserSummaryDTO> content = findUsers(new Query(criteria).with(pageable));
+        return new PageImpl<>(content, pageable, mongoTemplate.count(new Query(criteria), User.class));
+    }
+
+    public List<UserSummaryDTO> usersByIds(List<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return inIdOrder(findUsers(new Query(Criteria.where("_id").in(ids))), ids, UserSummaryDTO::getId);
+    }
+
+    private Aggregation conversationAggregation(Criteria criteria, Pageable pageable) {
+        List<AggregationOperation> operations = new ArrayList<>();
+        operations.add(Aggregation.match(criteria));
+        if (pageable.isPaged()) {
+            operations.add(Aggregation.sort(pageable.getSort()));
+            operations.add(Aggregation.skip(pageable.getOffset()));
+            operations.add(Aggregation.limit(pageable.getPageSize()));
+        }
+        operations.add(Aggregation.project("name", "avatarUrl")
+                .and(ArrayOperators.Size.lengthOfArray(
+                        ConditionalOperators.ifNull("memberIds").then(List.of()))).as("memberCount")
+                .and(ConditionalOperators.ifNull("updatedAt").thenValueOf("createdAt")).as("lastActivity"));
+        return Aggregation.newAggregation(operations);
+    }
+
+    private List<UserSummaryDTO> findUsers(Query query) {
+        query.fields().include("username", "firstName", "lastName", "avatarUrl", "status", "lastSeen");
+        return mongoTemplate.find(query, UserSummaryDTO.class, mongoTemplate.getCollectionName(User.class));
+    }
+
+    private static <T> List<T> inIdOrder(List<T> content, List<String> ids, Function<T, String> idOf) {
+        Map<String, T> byId = content.stream().collect(Collectors.toMap(idOf, Function.identity()));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+}
@@ -0,0 +1,222 @@
+package com.github.superz97.chat.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory prefix index over normalized names (a burst trie). Small subtrees are kept as flat
+ * buckets and split into child nodes once they outgrow {@code burstSize}; every node caches its
+ * top-K matches by score, so a lookup is a walk of at most prefix-length nodes. Inserts merge into
+ * the cached lists; a removal only drops the caches that contained the removed entry.
+ */
+public class TypeaheadIndex {
+
+    public record Match(String id, String name, long score) {
+    }
+
+    private static final Comparator<Entry> RANK = Comparator.comparingLong((Entry e) -> e.match().score()).reversed()
+            .thenComparing(Entry::key)
+            .thenComparing(e -> e.match().id());
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final int topK;
+    private final int burstSize;
+    private final Node root = new Node(0);
+    private final Map<String, Entry> byId = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public TypeaheadIndex(int topK, int burstSize) {
+        this.topK = topK;
+        this.burstSize = burstSize;
+    }
+
+    public void put(String id, String name, long score) {
+        String key = normalize(name);
+        lock.writeLock().lock();
+        try {
+            Entry previous = byId.remove(id);
+            if (previous != null) {
+                detach(previous);
+            }
+            if (key.isEmpty()) {
+                return;
+            }
+            Entry entry = new Entry(key, new Match(id, name, score));
+            byId.put(id, entry);
+            attach(root, entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = byId.remove(id);
+            if (previous != null) {
+                detach(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Best matches first; limit is capped at the per-node top-K
+    public List<Match> search(String prefix, int limit) {
+        String key = normalize(prefix);
+        int max = Math.min(limit, topK);
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            while (node.depth < key.length()) {
+                if (node.children == null) {
+                    return rank(node.bucket.stream().filter(e -> e.key().startsWith(key)).toList(), max);
+                }
+                node = node.children.get(key.charAt(node.depth));
+                if (node == null) {
+                    return List.of();
+                }
+            }
+            Entry[] top = top(node);
+            List<Match> matches = new ArrayList<>(Math.min(max, top.length));
+            for (int i = 0; i < top.length && i < max; i++) {
+                matches.add(top[i].match());
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value.strip(), Normalizer.Form.NFKD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    // Merges the entry into every cached top-K on its path instead of invalidating them
+    private void attach(Node node, Entry entry) {
+        String key = entry.key();
+        while (true) {
+            Entry[] top = node.top;
+            if (top != null) {
+                node.top = merge(top, entry);
+            }
+            if (node.children == null || key.length() == node.depth) {
+                place(node, entry);
+                return;
+            }
+            node = child(node, key.charAt(node.depth));
+        }
+    }
+
+    // Same entry set, so a burst keeps the node's cached top; new children compute theirs lazily
+    private void place(Node node, Entry entry) {
+        String key = entry.key();
+        while (node.children != null && key.length() > node.depth) {
+            node = child(node, key.charAt(node.depth));
+        }
+        node.bucket.add(entry);
+        if (node.children == null && node.bucket.size() > burstSize) {
+            List<Entry> entries = node.bucket;
+            node.bucket = new ArrayList<>();
+            node.children = new HashMap<>();
+            for (Entry moved : entries) {
+                place(node, moved);
+            }
+        }
+    }
+
+    private Node child(Node node, char c) {
+        int childDepth = node.depth + 1;
+        return node.children.computeIfAbsent(c, ignored -> new Node(childDepth));
+    }
+
+    private Entry[] merge(Entry[] top, Entry entry) {
+        int position = Arrays.binarySearch(top, entry, RANK);
+        int insertAt = position >= 0 ? position : -position - 1;
+        if (insertAt >= topK) {
+            return top;
+        }
+        Entry[] merged = new Entry[Math.min(topK, top.length + 1)];
+        System.arraycopy(top, 0, merged, 0, insertAt);
+        merged[insertAt] = entry;
+        System.arraycopy(top, insertAt, merged, insertAt + 1, merged.length - insertAt - 1);
+        return merged;
+    }
+
+    // Only nodes whose cached top-K held the entry need recomputing
+    private void detach(Entry entry) {
+        String key = entry.key();
+        Node node = root;
+        while (node != null) {
+            Entry[] top = node.top;
+            if (top != null && Arrays.asList(top).contains(entry)) {
+                node.top = null;
+            }
+            if (node.children == null || key.length() == node.depth) {
+                node.bucket.remove(entry);
+                return;
+            }
+            node = node.children.get(key.charAt(node.depth));
+        }
+    }
+
+    // Recomputed from the bucket and the children's own caches; racing readers compute the same array
+    private Entry[] top(Node node) {
+        Entry[] top = node.top;
+        if (top != null) {
+            return top;
+        }
+        List<Entry> candidates = new ArrayList<>(node.bucket);
+        if (node.children != null) {
+            for (Node child : node.children.values()) {
+                candidates.addAll(List.of(top(child)));
+            }
+        }
+        candidates.sort(RANK);
+        top = candidates.subList(0, Math.min(topK, candidates.size())).toArray(Entry[]::new);
+        node.top = top;
+        return top;
+    }
+
+    private static List<Match> rank(List<Entry> entries, int max) {
+        return entries.stream().sorted(RANK).limit(max).map(Entry::match).toList();
+    }
+
+    private record Entry(String key, Match match) {
+    }
+
+    private static final class Node {
+        final int depth;
+        List<Entry> bucket = new ArrayList<>();
+        Map<Character, Node> children;
+        volatile Entry[] top;
+
+        Node(int depth) {
+            this.depth = depth;
+        }
+    }
+
+}
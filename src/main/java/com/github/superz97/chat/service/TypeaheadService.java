@@ -0,0 +1,235 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.dto.response.ConversationSummaryDTO;
+import com.github.superz97.chat.dto.response.UserSummaryDTO;
+import com.github.superz97.chat.entity.Channel;
+import com.github.superz97.chat.entity.Group;
+import com.github.superz97.chat.entity.User;
+import com.github.superz97.chat.metrics.ChatMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Autocomplete over user, channel and group names. Each kind has a {@link TypeaheadIndex} built
+ * from Mongo in the background and kept current by the owning services; until the first build
+ * finishes, lookups fall back to an anchored, escaped prefix query.
+ *
+ * <p>Users rank by recency ({@code lastSeen}), channels and groups by member count.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TypeaheadService {
+
+    public enum Kind { USER, CHANNEL, GROUP }
+
+    private final MongoTemplate mongoTemplate;
+    private final SummaryQueryService summaryQueryService;
+    private final ChatMetrics chatMetrics;
+
+    // Swapped whole on rebuild so lookups never see a half-loaded index
+    private final Map<Kind, TypeaheadIndex> indexes = new ConcurrentHashMap<>();
+    // Guards the swap; local changes made while a kind is loading are logged and replayed onto it
+    private final Object changeLock = new Object();
+    private final Map<Kind, List<Consumer<TypeaheadIndex>>> changesDuringLoad = new EnumMap<>(Kind.class);
+
+    @Value("${chat.search.typeahead.enabled}")
+    private boolean enabled;
+
+    @Value("${chat.search.typeahead.top-k}")
+    private int topK;
+
+    @Value("${chat.search.typeahead.burst-size}")
+    private int burstSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Async
+    public void onApplicationReady() {
+        for (Kind kind : Kind.values()) {
+            chatMetrics.registerTypeaheadGauge(kind.name().toLowerCase(), this, service -> service.indexSize(kind));
+        }
+        rebuild();
+    }
+
+    // Full reload; also picks up names written by other nodes
+    @Scheduled(fixedDelayString = "${chat.search.typeahead.refresh-interval-ms}",
+            initialDelayString = "${chat.search.typeahead.refresh-interval-ms}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        for (Kind kind : Kind.values()) {
+            synchronized (changeLock) {
+                changesDuringLoad.put(kind, new ArrayList<>());
+            }
+            try {
+                long start = System.nanoTime();
+                TypeaheadIndex index = load(kind);
+                // Replayed after the load so a stale document read from the cursor can't undo a newer change
+                synchronized (changeLock) {
+                    changesDuringLoad.get(kind).forEach(change -> change.accept(index));
+                    indexes.put(kind, index);
+                }
+                log.info("Typeahead index for {} rebuilt: {} entries in {} ms", kind, index.size(),
+                        (System.nanoTime() - start) / 1_000_000);
+            } catch (Exception e) {
+                log.error("Failed to rebuild typeahead index for {}", kind, e);
+            } finally {
+                synchronized (changeLock) {
+                    changesDuringLoad.remove(kind);
+                }
+            }
+        }
+    }
+
+    public List<UserSummaryDTO> suggestUsers(String query, int limit) {
+        int max = Math.min(limit, topK);
+        return suggest(Kind.USER, query, max, summaryQueryService::usersByIds,
+                fallback -> summaryQueryService.users(fallback.and("active").is(true),
+                                PageRequest.of(0, max, Sort.by("username")))
+                        .getContent(), "username");
+    }
+
+    public List<ConversationSummaryDTO> suggestChannels(String query, int limit) {
+        return suggestConversations(Kind.CHANNEL, Channel.class, query, limit);
+    }
+
+    public List<ConversationSummaryDTO> suggestGroups(String query, int limit) {
+        return suggestConversations(Kind.GROUP, Group.class, query, limit);
+    }
+
+    public void indexUser(User user) {
+        if (user.isActive()) {
+            update(Kind.USER, index -> index.put(user.getId(), user.getUsername(), epochMillis(user.getLastSeen())));
+        } else {
+            update(Kind.USER, index -> index.remove(user.getId()));
+        }
+    }
+
+    public void indexChannel(Channel channel) {
+        indexConversation(Kind.CHANNEL, channel.getId(), channel.getName(), channel.getMemberIds().size(),
+                channel.isActive());
+    }
+
+    public void indexGroup(Group group) {
+        indexConversation(Kind.GROUP, group.getId(), group.getName(), group.getMemberIds().size(), group.isActive());
+    }
+
+    private void indexConversation(Kind kind, String id, String name, int memberCount, boolean active) {
+        if (active) {
+            update(kind, index -> index.put(id, name, memberCount));
+        } else {
+            update(kind, index -> index.remove(id));
+        }
+    }
+
+    private List<ConversationSummaryDTO> suggestConversations(Kind kind, Class<?> entityClass, String query, int limit) {
+        int max = Math.min(limit, topK);
+        return suggest(kind, query, max, ids -> summaryQueryService.conversationsByIds(entityClass, ids),
+                fallback -> summaryQueryService.conversations(entityClass, fallback.and("active").is(true),
+                        PageRequest.of(0, max, Sort.by("name"))).getContent(), "name");
+    }
+
+    private <T> List<T> suggest(Kind kind, String query, int limit, Function<List<String>, List<T>> byIds,
+                                Function<Criteria, List<T>> fallback, String field) {
+        long start = System.nanoTime();
+        TypeaheadIndex index = index(kind);
+        if (index == null) {
+            Criteria prefix = Criteria.where(field).regex("^" + Pattern.quote(query.strip()), "i");
+            List<T> results = fallback.apply(prefix);
+            chatMetrics.recordTypeaheadLookup(kind.name().toLowerCase(), "fallback", System.nanoTime() - start);
+            return results;
+        }
+        List<String> ids = index.search(query, limit).stream().map(TypeaheadIndex.Match::id).toList();
+        chatMetrics.recordTypeaheadLookup(kind.name().toLowerCase(), "index", System.nanoTime() - start);
+        return byIds.apply(ids);
+    }
+
+    private TypeaheadIndex load(Kind kind) {
+        TypeaheadIndex index = new TypeaheadIndex(topK, burstSize);
+        if (kind == Kind.USER) {
+            Query query = new Query(Criteria.where("active").is(true));
+            query.fields().include("username", "lastSeen");
+            try (Stream<Document> users = mongoTemplate.stream(query, Document.class,
+                    mongoTemplate.getCollectionName(User.class))) {
+                users.forEach(user -> index.put(user.get("_id").toString(), user.getString("username"),
+                        epochMillis(user.getDate("lastSeen"))));
+            }
+            return index;
+        }
+        Class<?> entityClass = kind == Kind.CHANNEL ? Channel.class : Group.class;
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("active").is(true)),
+                Aggregation.project("name")
+                        .and(ArrayOperators.Size.lengthOfArray(
+                                ConditionalOperators.ifNull("memberIds").then(List.of()))).as("memberCount"));
+        try (Stream<Document> conversations = mongoTemplate.aggregateStream(aggregation,
+                mongoTemplate.getCollectionName(entityClass), Document.class)) {
+            conversations.forEach(conversation -> index.put(conversation.get("_id").toString(),
+                    conversation.getString("name"), conversation.getInteger("memberCount", 0)));
+        }
+        return index;
+    }
+
+    private void update(Kind kind, Consumer<TypeaheadIndex> change) {
+        synchronized (changeLock) {
+            TypeaheadIndex index = index(kind);
+            if (index != null) {
+                change.accept(index);
+            }
+            List<Consumer<TypeaheadIndex>> pending = changesDuringLoad.get(kind);
+            if (pending != null) {
+                pending.add(change);
+            }
+        }
+    }
+
+    private TypeaheadIndex index(Kind kind) {
+        if (!enabled) {
+            return null;
+        }
+        return indexes.get(kind);
+    }
+
+    private double indexSize(Kind kind) {
+        TypeaheadIndex index = index(kind);
+        return index != null ? index.size() : 0;
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0;
+    }
+
+    private static long epochMillis(Date time) {
+        return time != null ? time.getTime() : 0;
+    }
+
+}
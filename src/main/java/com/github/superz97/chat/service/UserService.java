@@ -2,6 +2,7 @@ package com.github.superz97.chat.service;
 
 import com.github.superz97.chat.dto.request.UserProfileUpdateRequest;
 import com.github.superz97.chat.dto.response.UserDTO;
+import com.github.superz97.chat.dto.response.UserSummaryDTO;
 import com.github.superz97.chat.entity.User;
 import com.github.superz97.chat.enums.UserStatus;
 import com.github.superz97.chat.exception.DuplicateResourceException;
@@ -9,11 +10,19 @@ import com.github.superz97.chat.exception.ResourceNotFoundException;
 import com.github.superz97.chat.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,6 +31,15 @@ import java.util.stream.Collectors;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final SummaryQueryService summaryQueryService;
+    private final TypeaheadService typeaheadService;
+    private final BlockListService blockListService;
+
+    // Users are never deleted and keep their Keycloak subject, so entries can't go stale
+    private final Map<String, String> userIdsByKeycloakId = new ConcurrentHashMap<>();
+
+    @Value("${chat.users.id-cache-size}")
+    private int idCacheSize;
 
     @Transactional
     public User createUser(String keycloakId, String username, String email) {
@@ -40,7 +58,9 @@ public class UserService {
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        typeaheadService.indexUser(savedUser);
+        return savedUser;
     }
 
     public User getUserById(String userId) {
@@ -58,6 +78,23 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("User", "keycloakId", keycloakId));
     }
 
+    // For callers that only need the id, e.g. to mark what the viewer has read; no user document load
+    public String getUserIdByKeycloakId(String keycloakId) {
+        String cached = userIdsByKeycloakId.get(keycloakId);
+        if (cached != null) {
+            return cached;
+        }
+        String userId = userRepository.findIdByKeycloakId(keycloakId)
+                .map(User::getId)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "keycloakId", keycloakId));
+        // Cheap bound, as in DestinationCache: entries are tiny and refilled on demand
+        if (userIdsByKeycloakId.size() >= idCacheSize) {
+            userIdsByKeycloakId.clear();
+        }
+        userIdsByKeycloakId.put(keycloakId, userId);
+        return userId;
+    }
+
     public User findOrCreateUser(String keycloakId, String username, String email) {
         return userRepository.findByKeycloakId(keycloakId)
                 .orElseGet(() -> createUser(keycloakId, username, email));
@@ -95,7 +132,9 @@ public class UserService {
         user.setLastSeen(LocalDateTime.now());
         user.setUpdatedAt(LocalDateTime.now());
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        typeaheadService.indexUser(savedUser);
+        return savedUser;
     }
 
     @Transactional
@@ -110,6 +149,7 @@ public class UserService {
         user.setLastSeen(LocalDateTime.now());
         user.setUpdatedAt(LocalDateTime.now());
         userRepository.save(user);
+        typeaheadService.indexUser(user);
     }
 
     public List<User> getOnlineUsers() {
@@ -117,7 +157,12 @@ public class UserService {
     }
 
     public List<User> searchUsers(String searchTerm) {
-        return userRepository.searchByUsername(searchTerm);
+        return userRepository.searchByUsername(Pattern.quote(searchTerm));
+    }
+
+    public Page<UserSummaryDTO> searchUserSummaries(String searchTerm, int page, int size) {
+        return summaryQueryService.users(Criteria.where("username").regex(Pattern.quote(searchTerm), "i"),
+                PageRequest.of(page, size, Sort.by("username")));
     }
 
     public List<User> getUsersByIds(List<String> userIds) {
@@ -162,6 +207,7 @@ public class UserService {
         user.getBlockedUserIds().add(blockedUserId);
         user.setUpdatedAt(LocalDateTime.now());
         userRepository.save(user);
+        blockListService.block(userId, blockedUserId);
     }
 
     @Transactional
@@ -170,9 +216,17 @@ public class UserService {
         user.getBlockedUserIds().remove(blockedUserId);
         user.setUpdatedAt(LocalDateTime.now());
         userRepository.save(user);
+        blockListService.unblock(userId, blockedUserId);
+    }
+
+    public boolean existsById(String userId) {
+        return userRepository.existsById(userId);
     }
 
     public boolean isUserBlocked(String userId, String targetUserId) {
+        if (blockListService.isLoaded()) {
+            return blockListService.isBlocked(userId, targetUserId);
+        }
         User user = getUserById(userId);
         return user.getBlockedUserIds().contains(targetUserId);
     }
@@ -1,41 +1,61 @@
 package com.github.superz97.chat.service;
 
+import com.github.superz97.chat.cluster.ClusterMessage;
+import com.github.superz97.chat.cluster.ClusterMessageBus;
+import com.github.superz97.chat.dto.response.MessageDTO;
 import com.github.superz97.chat.dto.response.NotificationDTO;
 import com.github.superz97.chat.dto.response.TypingIndicatorDTO;
 import com.github.superz97.chat.dto.response.WebSocketMessageDTO;
 import com.github.superz97.chat.enums.WebSocketMessageType;
+import com.github.superz97.chat.metrics.ChatMetrics;
+import com.github.superz97.chat.websocket.BlockedSenderInterceptor;
+import com.github.superz97.chat.websocket.DestinationCache;
+import com.github.superz97.chat.websocket.DestinationCache.UserDestinations;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MessageConversionException;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class WebSocketService {
 
+    private static final String USER_STATUS_DESTINATION = "/topic/user-status";
+
     private final SimpMessagingTemplate messagingTemplate;
+    private final ChatMetrics chatMetrics;
+    private final ClusterMessageBus clusterMessageBus;
+    private final DestinationCache destinationCache;
+
+    @PostConstruct
+    void subscribeToCluster() {
+        clusterMessageBus.onMessage(this::deliverFromCluster);
+    }
 
     // Send message to a specific channel
     public void sendToChannel(String channelId, WebSocketMessageDTO message) {
         log.debug("Sending WebSocket message to channel: {}", channelId);
-        messagingTemplate.convertAndSend("/topic/channel/" + channelId, message);
+        publish("channel", destinationCache.channel(channelId).topic(), message);
     }
 
     // Send message to a specific group
     public void sendToGroup(String groupId, WebSocketMessageDTO message) {
         log.debug("Sending WebSocket message to group: {}", groupId);
-        messagingTemplate.convertAndSend("/topic/group/" + groupId, message);
+        publish("group", destinationCache.group(groupId).topic(), message);
     }
 
     // Send private message to a specific user
     public void sendToUser(String userId, WebSocketMessageDTO message) {
         log.debug("Sending WebSocket message to user: {}", userId);
-        messagingTemplate.convertAndSendToUser(
-                userId,
-                "/queue/messages",
-                message
-        );
+        UserDestinations user = destinationCache.user(userId);
+        publishToUser("user", user, user.messages(), message);
     }
 
     // Send notification to a specific user
@@ -45,11 +65,8 @@ public class WebSocketService {
                 WebSocketMessageType.NOTIFICATION,
                 notification
         );
-        messagingTemplate.convertAndSendToUser(
-                userId,
-                "/queue/notifications",
-                message
-        );
+        UserDestinations user = destinationCache.user(userId);
+        publishToUser("notification", user, user.notifications(), message);
     }
 
     // Broadcast typing indicator to channel
@@ -61,7 +78,7 @@ public class WebSocketService {
                         : WebSocketMessageType.TYPING_STOP,
                 typingIndicator
         );
-        messagingTemplate.convertAndSend("/topic/channel/" + channelId + "/typing", message);
+        publish("channel-typing", destinationCache.channel(channelId).typing(), message);
     }
 
     // Broadcast typing indicator to group
@@ -73,7 +90,7 @@ public class WebSocketService {
                         : WebSocketMessageType.TYPING_STOP,
                 typingIndicator
         );
-        messagingTemplate.convertAndSend("/topic/group/" + groupId + "/typing", message);
+        publish("group-typing", destinationCache.group(groupId).typing(), message);
     }
 
     // Send typing indicator to specific user (for private chat)
@@ -85,11 +102,8 @@ public class WebSocketService {
                         : WebSocketMessageType.TYPING_STOP,
                 typingIndicator
         );
-        messagingTemplate.convertAndSendToUser(
-                userId,
-                "/queue/typing",
-                message
-        );
+        UserDestinations user = destinationCache.user(userId);
+        publishToUser("user-typing", user, user.typing(), message);
     }
 
     // Broadcast user status change
@@ -99,7 +113,7 @@ public class WebSocketService {
                 WebSocketMessageType.USER_STATUS_CHANGE,
                 new UserStatusChangePayload(userId, status)
         );
-        messagingTemplate.convertAndSend("/topic/user-status", message);
+        publish("user-status", USER_STATUS_DESTINATION, message);
     }
 
     // Broadcast user online status
@@ -109,7 +123,7 @@ public class WebSocketService {
                 WebSocketMessageType.USER_ONLINE,
                 new UserOnlinePayload(userId, username)
         );
-        messagingTemplate.convertAndSend("/topic/user-status", message);
+        publish("user-status", USER_STATUS_DESTINATION, message);
     }
 
     // Broadcast user offline status
@@ -119,21 +133,90 @@ public class WebSocketService {
                 WebSocketMessageType.USER_OFFLINE,
                 new UserOnlinePayload(userId, username)
         );
-        messagingTemplate.convertAndSend("/topic/user-status", message);
+        publish("user-status", USER_STATUS_DESTINATION, message);
     }
 
     // Broadcast channel event to all members
     public void broadcastChannelEvent(String channelId, WebSocketMessageType eventType, Object payload) {
         log.debug("Broadcasting channel event: {} to channel: {}", eventType, channelId);
         WebSocketMessageDTO message = WebSocketMessageDTO.typed(eventType, payload);
-        messagingTemplate.convertAndSend("/topic/channel/" + channelId, message);
+        publish("channel", destinationCache.channel(channelId).topic(), message);
     }
 
     // Broadcast group event to all members
     public void broadcastGroupEvent(String groupId, WebSocketMessageType eventType, Object payload) {
         log.debug("Broadcasting group event: {} to group: {}", eventType, groupId);
         WebSocketMessageDTO message = WebSocketMessageDTO.typed(eventType, payload);
-        messagingTemplate.convertAndSend("/topic/group/" + groupId, message);
+        publish("group", destinationCache.group(groupId).topic(), message);
+    }
+
+    // Local-only delivery for event sources that already run on every node (change streams)
+    public void deliverToChannel(String channelId, WebSocketMessageDTO message) {
+        publish("channel", destinationCache.channel(channelId).topic(), message, true, false);
+    }
+
+    public void deliverToGroup(String groupId, WebSocketMessageDTO message) {
+        publish("group", destinationCache.group(groupId).topic(), message, true, false);
+    }
+
+    public void deliverToUser(String userId, WebSocketMessageDTO message) {
+        UserDestinations user = destinationCache.user(userId);
+        if (destinationCache.hasLocalSessions(user)) {
+            publish("user", user.messages(), message, true, false);
+        }
+    }
+
+    // Users without a session on this node skip the local broker and its user destination resolution
+    private void publishToUser(String destinationType, UserDestinations user, String destination,
+                               WebSocketMessageDTO message) {
+        publish(destinationType, destination, message, destinationCache.hasLocalSessions(user), true);
+    }
+
+    private void publish(String destinationType, String destination, WebSocketMessageDTO message) {
+        publish(destinationType, destination, message, true, true);
+    }
+
+    // Serialize once here so the broadcast size can be recorded before handing off to the broker
+    private void publish(String destinationType, String destination, WebSocketMessageDTO message,
+                         boolean deliverLocally, boolean relayToCluster) {
+        Message<?> converted = messagingTemplate.getMessageConverter().toMessage(message, null);
+        if (converted == null) {
+            throw new MessageConversionException("Unable to convert WebSocket message for " + destination);
+        }
+        int size = converted.getPayload() instanceof byte[] bytes ? bytes.length : 0;
+        chatMetrics.recordBroadcast(destinationType, size);
+        if (deliverLocally) {
+            messagingTemplate.send(destination, withSender(converted, message));
+        }
+
+        if (relayToCluster && converted.getPayload() instanceof byte[] bytes) {
+            Object contentType = converted.getHeaders().get(MessageHeaders.CONTENT_TYPE);
+            clusterMessageBus.publish(new ClusterMessage(
+                    clusterMessageBus.getNodeId(),
+                    destination,
+                    contentType != null ? contentType.toString() : null,
+                    bytes));
+        }
+    }
+
+    // Tags message events with their sender so the outbound filter can drop them for users who blocked it.
+    // Message events reach each node through its own change stream, so cluster frames don't need the tag
+    private static Message<?> withSender(Message<?> converted, WebSocketMessageDTO message) {
+        if (!(message.getPayload() instanceof MessageDTO dto) || dto.getSenderId() == null) {
+            return converted;
+        }
+        return MessageBuilder.fromMessage(converted)
+                .setHeader(BlockedSenderInterceptor.SENDER_HEADER, dto.getSenderId())
+                .build();
+    }
+
+    // Messages relayed from other nodes go to the local broker only, never back onto the bus
+    private void deliverFromCluster(ClusterMessage clusterMessage) {
+        MessageBuilder<byte[]> builder = MessageBuilder.withPayload(clusterMessage.payload());
+        if (clusterMessage.contentType() != null) {
+            builder.setHeader(MessageHeaders.CONTENT_TYPE, MimeType.valueOf(clusterMessage.contentType()));
+        }
+        messagingTemplate.send(clusterMessage.destination(), builder.build());
     }
 
     // Helper payload classes
@@ -0,0 +1,25 @@
+package com.github.superz97.chat.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Storage backend for uploaded file contents. Keys are the relative paths recorded in
+ * {@code FileAttachment.filePath} (for example {@code images/<uuid>.png}).
+ */
+public interface BlobStore {
+
+    void put(String key, InputStream content, long size, String contentType) throws IOException;
+
+    /**
+     * @throws java.io.FileNotFoundException if no blob exists for the key
+     */
+    Resource load(String key) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+
+}
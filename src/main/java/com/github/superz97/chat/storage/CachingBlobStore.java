@@ -0,0 +1,260 @@
+package com.github.superz97.chat.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Read-through local disk cache in front of a remote {@link BlobStore}. Hot files are served
+ * from local disk; the least recently used entries are evicted once the cache exceeds its byte
+ * budget. Blob keys are immutable (UUID file names), so cached copies never go stale.
+ *
+ * <p>Admitting a download and deleting a key run under that key's lock, and a delete cancels any
+ * download in flight, so a blob deleted while it was being fetched is never cached again.
+ */
+@Slf4j
+public class CachingBlobStore implements BlobStore {
+
+    private final BlobStore delegate;
+    private final LocalBlobStore cache;
+    private final Path cacheDirectory;
+    private final long maxBytes;
+
+    // Access-ordered key -> size, guarded by its own monitor
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    private final Object[] keyLocks = new Object[64];
+    private long currentBytes;
+
+    public CachingBlobStore(BlobStore delegate, Path cacheDirectory, long maxBytes) throws IOException {
+        this.delegate = delegate;
+        this.cacheDirectory = cacheDirectory.toAbsolutePath().normalize();
+        this.cache = new LocalBlobStore(this.cacheDirectory);
+        this.maxBytes = maxBytes;
+        for (int i = 0; i < keyLocks.length; i++) {
+            keyLocks[i] = new Object();
+        }
+        clearCacheDirectory();
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size, String contentType) throws IOException {
+        // Stage locally first so the upload is read once and the fresh file is already hot
+        Path staged = Files.createTempFile(cacheDirectory, "upload-", ".tmp");
+        try {
+            Files.copy(content, staged, StandardCopyOption.REPLACE_EXISTING);
+            try (InputStream in = Files.newInputStream(staged)) {
+                delegate.put(key, in, size, contentType);
+            }
+            List<String> victims;
+            synchronized (lockFor(key)) {
+                victims = admit(key, staged);
+            }
+            deleteEvicted(victims);
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    @Override
+    public Resource load(String key) throws IOException {
+        Path cached = cache.resolve(key);
+        synchronized (entries) {
+            if (entries.get(key) != null && Files.exists(cached)) {
+                return new FileSystemResource(cached);
+            }
+        }
+        return fetch(key);
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        synchronized (entries) {
+            if (entries.containsKey(key)) {
+                return true;
+            }
+        }
+        return delegate.exists(key);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        delegate.delete(key);
+        synchronized (lockFor(key)) {
+            // A download that started before the delete must not put the blob back
+            inFlight.remove(key);
+            evict(key);
+        }
+    }
+
+    public long getCachedBytes() {
+        synchronized (entries) {
+            return currentBytes;
+        }
+    }
+
+    // Single-flight download so concurrent misses for the same key hit the remote store once
+    private Resource fetch(String key) throws IOException {
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            Path cached = await(existing);
+            return cached != null ? new FileSystemResource(cached) : delegate.load(key);
+        }
+
+        Path staged = null;
+        try {
+            staged = Files.createTempFile(cacheDirectory, "download-", ".tmp");
+            try (InputStream in = delegate.load(key).getInputStream()) {
+                Files.copy(in, staged, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Path cached = null;
+            List<String> victims = List.of();
+            synchronized (lockFor(key)) {
+                if (inFlight.get(key) == future) {
+                    victims = admit(key, staged);
+                    cached = victims != null ? cache.resolve(key) : null;
+                }
+            }
+            deleteEvicted(victims);
+            future.complete(cached);
+            if (cached == null) {
+                // Too large to ever fit, or deleted meanwhile; hand out the staged copy and drop it once read
+                Resource transientCopy = new TransientFileResource(staged);
+                staged = null;
+                return transientCopy;
+            }
+            return new FileSystemResource(cached);
+        } catch (IOException | RuntimeException ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, future);
+            if (staged != null) {
+                Files.deleteIfExists(staged);
+            }
+        }
+    }
+
+    // Caller holds the key's lock. Returns the keys evicted to make room, or null if the blob is
+    // larger than the whole cache and was not admitted
+    private List<String> admit(String key, Path staged) throws IOException {
+        long size = Files.size(staged);
+        if (size > maxBytes) {
+            return null;
+        }
+
+        Path target = cache.resolve(key);
+        Files.createDirectories(target.getParent());
+        Files.copy(staged, target, StandardCopyOption.REPLACE_EXISTING);
+
+        List<String> victims = new ArrayList<>();
+        synchronized (entries) {
+            Long previous = entries.put(key, size);
+            currentBytes += size - (previous != null ? previous : 0L);
+            Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+            while (currentBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                currentBytes -= eldest.getValue();
+                victims.add(eldest.getKey());
+                it.remove();
+            }
+        }
+        return victims;
+    }
+
+    // Outside the admitting key's lock, so two admissions never wait on each other's stripes
+    private void deleteEvicted(List<String> victims) throws IOException {
+        if (victims == null) {
+            return;
+        }
+        for (String victim : victims) {
+            synchronized (lockFor(victim)) {
+                boolean readmitted;
+                synchronized (entries) {
+                    readmitted = entries.containsKey(victim);
+                }
+                if (!readmitted) {
+                    cache.delete(victim);
+                }
+            }
+        }
+    }
+
+    private Object lockFor(String key) {
+        return keyLocks[Math.floorMod(key.hashCode(), keyLocks.length)];
+    }
+
+    private void evict(String key) throws IOException {
+        synchronized (entries) {
+            Long size = entries.remove(key);
+            if (size != null) {
+                currentBytes -= size;
+            }
+        }
+        cache.delete(key);
+    }
+
+    private void clearCacheDirectory() throws IOException {
+        Files.createDirectories(cacheDirectory);
+        try (var paths = Files.walk(cacheDirectory)) {
+            paths.sorted((a, b) -> b.getNameCount() - a.getNameCount())
+                    .filter(path -> !path.equals(cacheDirectory))
+                    .forEach(path -> {
+                        try {
+                            Files.deleteIfExists(path);
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                    });
+        }
+        log.info("Initialized blob cache at {} ({} bytes max)", cacheDirectory, maxBytes);
+    }
+
+    private static class TransientFileResource extends FileSystemResource {
+
+        TransientFileResource(Path path) {
+            super(path);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(getFile().toPath(), StandardOpenOption.DELETE_ON_CLOSE);
+        }
+
+    }
+
+    private static Path await(CompletableFuture<Path> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for blob download", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Blob download failed", ex.getCause());
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.github.superz97.chat.storage;
+
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * S3-compatible backend. Works against AWS S3 or any endpoint speaking the S3 API
+ * (MinIO, for local development) when the client is built with an endpoint override.
+ */
+public class S3BlobStore implements BlobStore {
+
+    private final S3Client s3Client;
+    private final String bucket;
+
+    public S3BlobStore(S3Client s3Client, String bucket) {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size, String contentType) throws IOException {
+        PutObjectRequest request = PutObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .contentType(contentType)
+                .contentLength(size)
+                .build();
+        try {
+            s3Client.putObject(request, RequestBody.fromInputStream(content, size));
+        } catch (SdkException ex) {
+            throw new IOException("Could not upload blob " + key, ex);
+        }
+    }
+
+    @Override
+    public Resource load(String key) throws IOException {
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .build();
+        try {
+            return new InputStreamResource(s3Client.getObject(request), key);
+        } catch (NoSuchKeyException ex) {
+            throw new FileNotFoundException(key);
+        } catch (SdkException ex) {
+            throw new IOException("Could not download blob " + key, ex);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        try {
+            s3Client.headObject(HeadObjectRequest.builder().bucket(bucket).key(key).build());
+            return true;
+        } catch (NoSuchKeyException ex) {
+            return false;
+        } catch (S3Exception ex) {
+            if (ex.statusCode() == 404) {
+                return false;
+            }
+            throw new IOException("Could not check blob " + key, ex);
+        } catch (SdkException ex) {
+            throw new IOException("Could not check blob " + key, ex);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            s3Client.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(key).build());
+        } catch (SdkException ex) {
+            throw new IOException("Could not delete blob " + key, ex);
+        }
+    }
+
+}
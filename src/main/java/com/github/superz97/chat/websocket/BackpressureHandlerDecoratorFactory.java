@@ -0,0 +1,108 @@
+package com.github.superz97.chat.websocket;
+
+import com.github.superz97.chat.metrics.ChatMetrics;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Installs {@link BackpressureSessionDecorator} on every WebSocket session so outbound frames
+ * are buffered per session under the configured slow-consumer policy.
+ */
+@Component
+@Getter
+public class BackpressureHandlerDecoratorFactory implements WebSocketHandlerDecoratorFactory {
+
+    static final List<String> SESSION_CLASSES = List.of("mobile", "desktop", "unknown");
+
+    private final ThreadPoolTaskExecutor drainExecutor;
+    private final ChatMetrics chatMetrics;
+    private final Map<String, BackpressureSessionDecorator> sessions = new ConcurrentHashMap<>();
+
+    @Value("${chat.websocket.outbound.drop-threshold}")
+    private int dropThreshold;
+
+    @Value("${chat.websocket.outbound.coalesce-threshold}")
+    private int coalesceThreshold;
+
+    @Value("${chat.websocket.outbound.queue-limit}")
+    private int queueLimit;
+
+    @Value("${chat.websocket.outbound.buffer-size-limit}")
+    private long bufferSizeLimit;
+
+    @Value("${chat.websocket.outbound.max-batch-bytes}")
+    private int maxBatchBytes;
+
+    public BackpressureHandlerDecoratorFactory(@Qualifier("outboundDrainExecutor") ThreadPoolTaskExecutor drainExecutor,
+                                               ChatMetrics chatMetrics) {
+        this.drainExecutor = drainExecutor;
+        this.chatMetrics = chatMetrics;
+        SESSION_CLASSES.forEach(sessionClass -> chatMetrics.registerOutboundQueueGauges(sessionClass, sessions,
+                all -> depths(all, sessionClass).sum(),
+                all -> depths(all, sessionClass).max().orElse(0)));
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                BackpressureSessionDecorator decorated = new BackpressureSessionDecorator(
+                        session, BackpressureHandlerDecoratorFactory.this, drainExecutor, sessionClass(session));
+                sessions.put(session.getId(), decorated);
+                super.afterConnectionEstablished(decorated);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                BackpressureSessionDecorator decorated = sessions.remove(session.getId());
+                if (decorated != null) {
+                    decorated.discard();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    void recordDrop(String sessionClass, String reason) {
+        chatMetrics.recordOutboundDrop(sessionClass, reason);
+    }
+
+    void recordCoalesced(String sessionClass, int frames) {
+        chatMetrics.recordOutboundCoalesced(sessionClass, frames);
+    }
+
+    void recordDisconnect(String sessionClass) {
+        chatMetrics.recordSlowConsumerDisconnect(sessionClass);
+    }
+
+    private static IntStream depths(Map<String, BackpressureSessionDecorator> all,
+                                                     String sessionClass) {
+        return all.values().stream()
+                .filter(session -> session.getSessionClass().equals(sessionClass))
+                .mapToInt(BackpressureSessionDecorator::getQueueDepth);
+    }
+
+    private static String sessionClass(WebSocketSession session) {
+        String userAgent = session.getHandshakeHeaders().getFirst("User-Agent");
+        if (userAgent == null) {
+            return "unknown";
+        }
+        return userAgent.contains("Mobile") || userAgent.contains("Android") || userAgent.contains("iPhone")
+                ? "mobile" : "desktop";
+    }
+
+}
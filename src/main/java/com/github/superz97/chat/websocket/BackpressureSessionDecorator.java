@@ -0,0 +1,240 @@
+package com.github.superz97.chat.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+
+/**
+ * Queues outbound frames per session and writes them from a drain executor, applying the
+ * slow-consumer policy as the queue grows: typing and presence frames are dropped first, then
+ * queued frames are coalesced into larger writes, and finally the session is closed.
+ */
+@Slf4j
+class BackpressureSessionDecorator extends WebSocketSessionDecorator {
+
+    // Cap on frames written per drain run so one busy session can't monopolize a drain thread
+    private static final int MAX_FRAMES_PER_RUN = 64;
+
+    private static final String DESTINATION_HEADER = "\ndestination:";
+    private static final int MAX_HEADER_SCAN = 1024;
+
+    enum FrameClass { REGULAR, TYPING, PRESENCE }
+
+    private final BackpressureHandlerDecoratorFactory policy;
+    private final Executor drainExecutor;
+    private final String sessionClass;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<QueuedFrame> queue = new ArrayDeque<>();
+    private long queuedBytes;
+    private boolean draining;
+    private boolean terminated;
+
+    BackpressureSessionDecorator(WebSocketSession delegate, BackpressureHandlerDecoratorFactory policy,
+                                 Executor drainExecutor, String sessionClass) {
+        super(delegate);
+        this.policy = policy;
+        this.drainExecutor = drainExecutor;
+        this.sessionClass = sessionClass;
+    }
+
+    String getSessionClass() {
+        return sessionClass;
+    }
+
+    int getQueueDepth() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        FrameClass frameClass = classify(message);
+        boolean startDrain;
+
+        synchronized (lock) {
+            if (terminated) {
+                return;
+            }
+
+            if (queue.size() >= policy.getDropThreshold()) {
+                if (frameClass != FrameClass.REGULAR) {
+                    policy.recordDrop(sessionClass, reason(frameClass));
+                    return;
+                }
+                purgeDroppable();
+            }
+
+            if (queue.size() >= policy.getQueueLimit()
+                    || queuedBytes + message.getPayloadLength() > policy.getBufferSizeLimit()) {
+                terminated = true;
+                queue.clear();
+                queuedBytes = 0;
+                policy.recordDisconnect(sessionClass);
+                throw new SessionLimitExceededException(
+                        "Slow consumer: outbound queue limit exceeded for session " + getId(),
+                        CloseStatus.SESSION_NOT_RELIABLE.withReason("Slow consumer: outbound buffer limit exceeded"));
+            }
+
+            queue.add(new QueuedFrame(message, frameClass));
+            queuedBytes += message.getPayloadLength();
+
+            startDrain = !draining;
+            draining = true;
+        }
+
+        if (startDrain) {
+            drainExecutor.execute(this::drain);
+        }
+    }
+
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        synchronized (lock) {
+            terminated = true;
+            queue.clear();
+            queuedBytes = 0;
+        }
+        super.close(status);
+    }
+
+    void discard() {
+        synchronized (lock) {
+            terminated = true;
+            queue.clear();
+            queuedBytes = 0;
+        }
+    }
+
+    private void drain() {
+        for (int written = 0; written < MAX_FRAMES_PER_RUN; written++) {
+            WebSocketMessage<?> next;
+            synchronized (lock) {
+                next = terminated ? null : pollNext();
+                if (next == null) {
+                    draining = false;
+                    return;
+                }
+            }
+            try {
+                getDelegate().sendMessage(next);
+            } catch (IOException | RuntimeException ex) {
+                log.debug("Failed to write to WebSocket session {}", getId(), ex);
+                discard();
+                synchronized (lock) {
+                    draining = false;
+                }
+                return;
+            }
+        }
+        // More work left; yield the thread and continue in a fresh task
+        drainExecutor.execute(this::drain);
+    }
+
+    // Must hold lock
+    private WebSocketMessage<?> pollNext() {
+        QueuedFrame head = queue.poll();
+        if (head == null) {
+            return null;
+        }
+        queuedBytes -= head.message().getPayloadLength();
+
+        // Far behind: batch consecutive STOMP text frames into one WebSocket message
+        if (queue.size() < policy.getCoalesceThreshold() || !(head.message() instanceof TextMessage first)) {
+            return head.message();
+        }
+
+        StringBuilder batch = new StringBuilder(first.getPayload());
+        int merged = 0;
+        while (!queue.isEmpty()
+                && queue.peek().message() instanceof TextMessage text
+                && batch.length() + text.getPayloadLength() <= policy.getMaxBatchBytes()) {
+            queue.poll();
+            queuedBytes -= text.getPayloadLength();
+            batch.append(text.getPayload());
+            merged++;
+        }
+
+        if (merged == 0) {
+            return head.message();
+        }
+        policy.recordCoalesced(sessionClass, merged);
+        return new TextMessage(batch.toString());
+    }
+
+    // Must hold lock
+    private void purgeDroppable() {
+        Iterator<QueuedFrame> it = queue.iterator();
+        while (it.hasNext()) {
+            QueuedFrame frame = it.next();
+            if (frame.frameClass() != FrameClass.REGULAR) {
+                it.remove();
+                queuedBytes -= frame.message().getPayloadLength();
+                policy.recordDrop(sessionClass, reason(frame.frameClass()));
+            }
+        }
+    }
+
+    private static String reason(FrameClass frameClass) {
+        return frameClass == FrameClass.TYPING ? "typing" : "presence";
+    }
+
+    // Reads the STOMP destination header without allocating; headers end at the first blank line
+    static FrameClass classify(WebSocketMessage<?> message) {
+        String payload;
+        if (message instanceof TextMessage text) {
+            payload = text.getPayload();
+        } else if (message instanceof BinaryMessage binary) {
+            payload = frameHeaders(binary.getPayload());
+        } else {
+            return FrameClass.REGULAR;
+        }
+        int headerEnd = payload.indexOf("\n\n");
+        int index = payload.indexOf(DESTINATION_HEADER);
+        if (index < 0 || (headerEnd >= 0 && index > headerEnd)) {
+            return FrameClass.REGULAR;
+        }
+        int start = index + DESTINATION_HEADER.length();
+        int end = payload.indexOf('\n', start);
+        if (end < 0) {
+            return FrameClass.REGULAR;
+        }
+        if (payload.startsWith("/typing", end - "/typing".length())) {
+            return FrameClass.TYPING;
+        }
+        if (payload.startsWith("/topic/user-status", start)) {
+            return FrameClass.PRESENCE;
+        }
+        return FrameClass.REGULAR;
+    }
+
+    // Binary (CBOR/Smile) frames still carry text STOMP headers ahead of the body
+    private static String frameHeaders(ByteBuffer buffer) {
+        int limit = Math.min(buffer.limit(), buffer.position() + MAX_HEADER_SCAN);
+        for (int i = buffer.position(); i < limit - 1; i++) {
+            if (buffer.get(i) == '\n' && buffer.get(i + 1) == '\n') {
+                limit = i + 2;
+                break;
+            }
+        }
+        byte[] headers = new byte[limit - buffer.position()];
+        buffer.duplicate().get(headers);
+        return new String(headers, StandardCharsets.UTF_8);
+    }
+
+    private record QueuedFrame(WebSocketMessage<?> message, FrameClass frameClass) {}
+
+}
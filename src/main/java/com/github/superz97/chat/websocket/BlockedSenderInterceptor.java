@@ -0,0 +1,58 @@
+package com.github.superz97.chat.websocket;
+
+import com.github.superz97.chat.metrics.ChatMetrics;
+import com.github.superz97.chat.service.BlockListService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Drops outbound message frames whose sender the receiving session's user has blocked. Runs once
+ * per subscriber after the broker's fan-out and checks the in-memory block list, so filtering a
+ * channel or group broadcast costs no database reads.
+ */
+@Component
+@RequiredArgsConstructor
+public class BlockedSenderInterceptor implements ChannelInterceptor {
+
+    // Broker-internal header set on message events; not a native header, so never written to the STOMP frame
+    public static final String SENDER_HEADER = "chatSenderId";
+
+    private final BlockListService blockListService;
+    private final ChatMetrics chatMetrics;
+    private final Map<String, String> sessionUsers = new ConcurrentHashMap<>();
+
+    public void registerSession(String sessionId, String userId) {
+        if (sessionId != null) {
+            sessionUsers.put(sessionId, userId);
+        }
+    }
+
+    @EventListener
+    public void handleDisconnect(SessionDisconnectEvent event) {
+        sessionUsers.remove(event.getSessionId());
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!blockListService.hasBlocks() || !(message.getHeaders().get(SENDER_HEADER) instanceof String senderId)) {
+            return message;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        String userId = sessionId != null ? sessionUsers.get(sessionId) : null;
+        if (userId != null && blockListService.isBlocked(userId, senderId)) {
+            chatMetrics.recordBlockedDelivery();
+            return null;
+        }
+        return message;
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.github.superz97.chat.websocket;
+
+import com.github.superz97.chat.metrics.ChatMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/**
+ * Tracks sessions that negotiated permessage-deflate and samples their outbound frames to measure
+ * compression ratio and CPU cost. The container does the actual compression.
+ */
+@Component
+public class CompressionMetricsDecoratorFactory implements WebSocketHandlerDecoratorFactory {
+
+    // Deflate state at window 15 / memLevel 8 plus the inflate window and the container's two frame buffers
+    static final long ESTIMATED_SESSION_BYTES = (1 << 17) + (1 << 17) + (1 << 15) + 2 * 8192;
+
+    private static final ThreadLocal<Deflater> SAMPLE_DEFLATER =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+    private final ChatMetrics chatMetrics;
+    private final Set<String> compressedSessions = ConcurrentHashMap.newKeySet();
+    private final AtomicLong frameCounter = new AtomicLong();
+
+    @Value("${chat.websocket.compression.sample-every}")
+    private int sampleEvery;
+
+    public CompressionMetricsDecoratorFactory(ChatMetrics chatMetrics) {
+        this.chatMetrics = chatMetrics;
+        chatMetrics.registerCompressionGauges(compressedSessions, Set::size,
+                sessions -> sessions.size() * (double) ESTIMATED_SESSION_BYTES);
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                boolean deflate = session.getExtensions().stream()
+                        .anyMatch(extension -> CompressionNegotiationFilter.PERMESSAGE_DEFLATE.equals(extension.getName()));
+                if (!deflate) {
+                    super.afterConnectionEstablished(session);
+                    return;
+                }
+                compressedSessions.add(session.getId());
+                super.afterConnectionEstablished(new WebSocketSessionDecorator(session) {
+                    @Override
+                    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+                        if (sampleEvery > 0 && frameCounter.incrementAndGet() % sampleEvery == 0) {
+                            sample(message);
+                        }
+                        super.sendMessage(message);
+                    }
+                });
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                compressedSessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    // Each sample is deflated on its own, so with context takeover the real ratio is at least this good
+    private void sample(WebSocketMessage<?> message) {
+        byte[] payload;
+        if (message instanceof TextMessage text) {
+            payload = text.getPayload().getBytes(StandardCharsets.UTF_8);
+        } else if (message instanceof BinaryMessage binary) {
+            ByteBuffer buffer = binary.getPayload().duplicate();
+            payload = new byte[buffer.remaining()];
+            buffer.get(payload);
+        } else {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Deflater deflater = SAMPLE_DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(payload);
+        deflater.finish();
+        byte[] buffer = new byte[4096];
+        int compressed = 0;
+        while (!deflater.finished()) {
+            compressed += deflater.deflate(buffer);
+        }
+        chatMetrics.recordFrameCompression(payload.length, compressed, System.nanoTime() - start);
+    }
+
+}
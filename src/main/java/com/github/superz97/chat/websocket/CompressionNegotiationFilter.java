@@ -0,0 +1,134 @@
+package com.github.superz97.chat.websocket;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Applies the server's permessage-deflate policy to WebSocket handshakes. The container negotiates
+ * the extension straight from the client's offer, so the offer is rewritten before it gets there.
+ */
+@Component
+public class CompressionNegotiationFilter extends OncePerRequestFilter {
+
+    static final String EXTENSIONS_HEADER = "Sec-WebSocket-Extensions";
+    static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    private static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+    private static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+    private static final String CLIENT_MAX_WINDOW_BITS = "client_max_window_bits";
+
+    @Value("${chat.websocket.compression.enabled}")
+    private boolean enabled;
+
+    @Value("${chat.websocket.compression.server-context-takeover}")
+    private boolean serverContextTakeover;
+
+    @Value("${chat.websocket.compression.client-context-takeover}")
+    private boolean clientContextTakeover;
+
+    @Value("${chat.websocket.compression.client-max-window-bits}")
+    private int clientMaxWindowBits;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(EXTENSIONS_HEADER) == null || !"websocket".equalsIgnoreCase(request.getHeader("Upgrade"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        List<String> offers = new ArrayList<>();
+        Enumeration<String> values = request.getHeaders(EXTENSIONS_HEADER);
+        while (values.hasMoreElements()) {
+            for (String offer : values.nextElement().split(",")) {
+                String rewritten = rewrite(offer.trim());
+                if (rewritten != null && !rewritten.isEmpty()) {
+                    offers.add(rewritten);
+                }
+            }
+        }
+        filterChain.doFilter(new ExtensionsRequestWrapper(request, offers), response);
+    }
+
+    // Returns null to drop the offer
+    String rewrite(String offer) {
+        String[] parts = offer.split(";");
+        if (!PERMESSAGE_DEFLATE.equalsIgnoreCase(parts[0].trim())) {
+            return offer;
+        }
+        if (!enabled) {
+            return null;
+        }
+
+        StringBuilder result = new StringBuilder(PERMESSAGE_DEFLATE);
+        boolean serverReset = false;
+        boolean clientReset = false;
+        for (int i = 1; i < parts.length; i++) {
+            String param = parts[i].trim();
+            String name = param.contains("=") ? param.substring(0, param.indexOf('=')).trim() : param;
+            if (name.equals(CLIENT_MAX_WINDOW_BITS) && clientMaxWindowBits < 15) {
+                // A bare offer means the client accepts a window size from us; an explicit one is only lowered
+                int offered = param.contains("=") ? parseBits(param.substring(param.indexOf('=') + 1)) : 15;
+                param = CLIENT_MAX_WINDOW_BITS + "=" + Math.min(offered, clientMaxWindowBits);
+            }
+            serverReset |= name.equals(SERVER_NO_CONTEXT_TAKEOVER);
+            clientReset |= name.equals(CLIENT_NO_CONTEXT_TAKEOVER);
+            result.append("; ").append(param);
+        }
+        if (!serverContextTakeover && !serverReset) {
+            result.append("; ").append(SERVER_NO_CONTEXT_TAKEOVER);
+        }
+        if (!clientContextTakeover && !clientReset) {
+            result.append("; ").append(CLIENT_NO_CONTEXT_TAKEOVER);
+        }
+        return result.toString();
+    }
+
+    private static int parseBits(String value) {
+        try {
+            return Integer.parseInt(value.trim().replace("\"", ""));
+        } catch (NumberFormatException e) {
+            return 15;
+        }
+    }
+
+    private static class ExtensionsRequestWrapper extends HttpServletRequestWrapper {
+
+        private final List<String> offers;
+
+        ExtensionsRequestWrapper(HttpServletRequest request, List<String> offers) {
+            super(request);
+            this.offers = offers;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (EXTENSIONS_HEADER.equalsIgnoreCase(name)) {
+                return offers.isEmpty() ? null : String.join(", ", offers);
+            }
+            return super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (EXTENSIONS_HEADER.equalsIgnoreCase(name)) {
+                return Collections.enumeration(offers.isEmpty() ? List.of() : List.of(String.join(", ", offers)));
+            }
+            return super.getHeaders(name);
+        }
+
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.github.superz97.chat.websocket;
+
+import com.github.superz97.chat.exception.ConnectionThrottledException;
+import com.github.superz97.chat.metrics.ChatMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admits STOMP CONNECT frames through a token bucket and a cap on handshakes in flight. Rejected
+ * clients get an ERROR frame with a jittered retry-after so a reconnect storm spreads out instead
+ * of hitting the JWT decoder and Mongo all at once.
+ */
+@Component
+public class ConnectAdmissionController implements ChannelInterceptor {
+
+    private final ChatMetrics chatMetrics;
+    // Sessions holding a handshake permit, released once the connect work is done
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    @Value("${chat.websocket.admission.enabled}")
+    private boolean enabled;
+
+    @Value("${chat.websocket.admission.connects-per-second}")
+    private double connectsPerSecond;
+
+    @Value("${chat.websocket.admission.retry-after-ms}")
+    private long retryAfterMs;
+
+    @Value("${chat.websocket.admission.retry-jitter-ms}")
+    private long retryJitterMs;
+
+    @Value("${chat.websocket.admission.storm-window-ms}")
+    private long stormWindowMs;
+
+    private final int burst;
+    private final Semaphore handshakes;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private volatile long lastThrottledNanos;
+
+    public ConnectAdmissionController(ChatMetrics chatMetrics,
+                                      @Value("${chat.websocket.admission.burst}") int burst,
+                                      @Value("${chat.websocket.admission.max-concurrent-handshakes}") int maxHandshakes) {
+        this.chatMetrics = chatMetrics;
+        this.burst = burst;
+        this.tokens = burst;
+        this.handshakes = new Semaphore(maxHandshakes);
+        this.lastThrottledNanos = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+        chatMetrics.registerHandshakeGauge(inFlight, Set::size);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (!enabled || accessor == null || !StompCommand.CONNECT.equals(accessor.getCommand())) {
+            return message;
+        }
+
+        if (!tryAcquireToken()) {
+            throw throttled("rate_limited", "Too many connection attempts, retry later");
+        }
+        if (!handshakes.tryAcquire()) {
+            throw throttled("overloaded", "Server is busy with other handshakes, retry later");
+        }
+        String sessionId = accessor.getSessionId();
+        if (sessionId == null || !inFlight.add(sessionId)) {
+            handshakes.release();
+        }
+        chatMetrics.recordConnectAdmission("admitted");
+        return message;
+    }
+
+    // Dropped or failed CONNECTs never reach the connect listener, so give the permit back here
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        if (!sent || ex != null) {
+            StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+            if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
+                complete(accessor.getSessionId());
+            }
+        }
+    }
+
+    public void complete(String sessionId) {
+        if (sessionId != null && inFlight.remove(sessionId)) {
+            handshakes.release();
+        }
+    }
+
+    // True while connects are being turned away; callers shed optional work such as presence fan-out
+    public boolean isUnderPressure() {
+        return enabled && System.nanoTime() - lastThrottledNanos < TimeUnit.MILLISECONDS.toNanos(stormWindowMs);
+    }
+
+    @EventListener
+    public void handleDisconnect(SessionDisconnectEvent event) {
+        complete(event.getSessionId());
+    }
+
+    private synchronized boolean tryAcquireToken() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) / 1e9 * connectsPerSecond);
+        lastRefillNanos = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    private ConnectionThrottledException throttled(String outcome, String reason) {
+        lastThrottledNanos = System.nanoTime();
+        chatMetrics.recordConnectAdmission(outcome);
+        long jitter = retryJitterMs > 0 ? ThreadLocalRandom.current().nextLong(retryJitterMs) : 0;
+        return new ConnectionThrottledException(reason, retryAfterMs + jitter);
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.github.superz97.chat.websocket;
+
+import com.github.superz97.chat.entity.User;
+import com.github.superz97.chat.repository.UserRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Pre-built destination strings per conversation and per user, so hot broadcast paths don't
+ * concatenate on every call. User destinations are keyed by user id but addressed by principal
+ * name, which is what STOMP sessions are registered under.
+ */
+@Component
+public class DestinationCache {
+
+    private final UserRepository userRepository;
+    private final ObjectProvider<SimpUserRegistry> simpUserRegistry;
+    private final Map<String, ConversationDestinations> channels = new ConcurrentHashMap<>();
+    private final Map<String, ConversationDestinations> groups = new ConcurrentHashMap<>();
+    private final Map<String, UserDestinations> users = new ConcurrentHashMap<>();
+
+    @Value("${chat.websocket.destination-cache-size}")
+    private int maxEntries;
+
+    public DestinationCache(UserRepository userRepository, ObjectProvider<SimpUserRegistry> simpUserRegistry) {
+        this.userRepository = userRepository;
+        this.simpUserRegistry = simpUserRegistry;
+    }
+
+    public ConversationDestinations channel(String channelId) {
+        return lookup(channels, channelId, id -> new ConversationDestinations(
+                "/topic/channel/" + id, "/topic/channel/" + id + "/typing"));
+    }
+
+    public ConversationDestinations group(String groupId) {
+        return lookup(groups, groupId, id -> new ConversationDestinations(
+                "/topic/group/" + id, "/topic/group/" + id + "/typing"));
+    }
+
+    // Falls back to the id itself for users that can't be resolved, matching the old behaviour
+    public UserDestinations user(String userId) {
+        return lookup(users, userId, id -> UserDestinations.of(userRepository.findUsernameById(id)
+                .map(User::getUsername)
+                .orElse(id)));
+    }
+
+    // Seeded on connect, where the user has already been loaded
+    public void registerUser(String userId, String username) {
+        lookup(users, userId, id -> UserDestinations.of(username));
+    }
+
+    // Map lookup in the local registry; users connected to other nodes are reached over the cluster bus
+    public boolean hasLocalSessions(UserDestinations destinations) {
+        SimpUserRegistry registry = simpUserRegistry.getIfAvailable();
+        return registry == null || registry.getUser(destinations.principal()) != null;
+    }
+
+    private <T> T lookup(Map<String, T> cache, String key, Function<String, T> factory) {
+        T cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        // Cheap bound: entries are tiny and rebuilt on demand, so a full reset beats tracking recency
+        if (cache.size() >= maxEntries) {
+            cache.clear();
+        }
+        return cache.computeIfAbsent(key, factory);
+    }
+
+    public record ConversationDestinations(String topic, String typing) {}
+
+    public record UserDestinations(String principal, String messages, String notifications, String typing) {
+
+        // Same layout as SimpMessagingTemplate.convertAndSendToUser with the default /user prefix
+        static UserDestinations of(String principal) {
+            String base = "/user/" + StringUtils.replace(principal, "/", "%2F");
+            return new UserDestinations(principal, base + "/queue/messages", base + "/queue/notifications",
+                    base + "/queue/typing");
+        }
+
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.github.superz97.chat.websocket;
+
+import com.github.superz97.chat.metrics.ChatMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor for clientInboundChannel that runs work for one STOMP session strictly in arrival order
+ * while different sessions run in parallel on the worker pool. Each session gets a bounded FIFO; a
+ * session whose queue is full has its frame rejected, which Spring turns into an ERROR frame.
+ */
+@Component
+@Slf4j
+public class KeyedInboundExecutor implements TaskExecutor {
+
+    // Tasks run per drain before yielding the worker, so one chatty session can't pin a thread
+    private static final int MAX_TASKS_PER_DRAIN = 32;
+
+    private final Executor workers;
+    private final ChatMetrics chatMetrics;
+    private final int maxQueuedPerSession;
+    private final Map<String, SerialQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    public KeyedInboundExecutor(@Qualifier("inboundWorkerExecutor") Executor workers, ChatMetrics chatMetrics,
+                                @Value("${chat.websocket.inbound.max-queued-per-session}") int maxQueuedPerSession) {
+        this.workers = workers;
+        this.chatMetrics = chatMetrics;
+        this.maxQueuedPerSession = maxQueuedPerSession;
+    }
+
+    // After construction, so the gauges never see a partially built executor
+    @PostConstruct
+    void registerGauges() {
+        chatMetrics.registerInboundQueueGauges(this, executor -> executor.queued.get(),
+                executor -> executor.queues.size());
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        String key = task instanceof MessageHandlingRunnable handling
+                ? SimpMessageHeaderAccessor.getSessionId(handling.getMessage().getHeaders())
+                : null;
+        if (key == null) {
+            workers.execute(task);
+            return;
+        }
+
+        while (true) {
+            SerialQueue queue = queues.computeIfAbsent(key, SerialQueue::new);
+            Boolean scheduled = queue.offer(task);
+            if (scheduled == null) {
+                // Lost a race with the queue being retired; a fresh one is created on retry
+                continue;
+            }
+            if (scheduled) {
+                workers.execute(queue);
+            }
+            return;
+        }
+    }
+
+    private final class SerialQueue implements Runnable {
+
+        private final String key;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private boolean running;
+        private boolean retired;
+
+        SerialQueue(String key) {
+            this.key = key;
+        }
+
+        // Returns true when the caller must schedule a drain, null when this queue is retired
+        synchronized Boolean offer(Runnable task) {
+            if (retired) {
+                return null;
+            }
+            if (tasks.size() >= maxQueuedPerSession) {
+                chatMetrics.recordInboundRejected();
+                throw new RejectedExecutionException("Inbound queue full for session " + key);
+            }
+            tasks.add(task);
+            queued.incrementAndGet();
+            if (running) {
+                return false;
+            }
+            running = true;
+            return true;
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < MAX_TASKS_PER_DRAIN; i++) {
+                Runnable task;
+                synchronized (this) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        running = false;
+                        retired = true;
+                        queues.remove(key, this);
+                        return;
+                    }
+                }
+                queued.decrementAndGet();
+                try {
+                    task.run();
+                } catch (Throwable ex) {
+                    // Handlers report their own failures; keep draining the session
+                    log.debug("Inbound task failed for session {}", key, ex);
+                }
+            }
+            // Still busy: requeue behind other sessions, order within this one is unchanged
+            workers.execute(this);
+        }
+
+    }
+
+}
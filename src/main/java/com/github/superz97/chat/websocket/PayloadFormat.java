@@ -0,0 +1,51 @@
+package com.github.superz97.chat.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.util.MimeType;
+
+/**
+ * Body encodings a STOMP client can negotiate on CONNECT via the {@value #HEADER} header.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum PayloadFormat {
+
+    JSON("json", new MimeType("application", "json")),
+    CBOR("cbor", new MimeType("application", "cbor")),
+    SMILE("smile", new MimeType("application", "x-jackson-smile"));
+
+    public static final String HEADER = "payload-format";
+
+    private final String headerValue;
+    private final MimeType mimeType;
+
+    public boolean isBinary() {
+        return this != JSON;
+    }
+
+    // Same modules and features as the JSON mapper, only the wire format differs
+    public ObjectMapper createMapper(ObjectMapper jsonMapper) {
+        return switch (this) {
+            case JSON -> jsonMapper;
+            case CBOR -> jsonMapper.copyWith(new CBORFactory());
+            case SMILE -> jsonMapper.copyWith(new SmileFactory());
+        };
+    }
+
+    // Unknown or missing values fall back to JSON so older clients keep working
+    public static PayloadFormat fromHeader(String value) {
+        if (value != null) {
+            for (PayloadFormat format : values()) {
+                if (format.headerValue.equalsIgnoreCase(value.trim())) {
+                    return format;
+                }
+            }
+        }
+        return JSON;
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.github.superz97.chat.websocket;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * Records the payload format requested on CONNECT and tags SEND frames from binary sessions
+ * with the negotiated content-type, so the matching converter decodes them.
+ */
+@Component
+@RequiredArgsConstructor
+public class PayloadFormatNegotiationInterceptor implements ChannelInterceptor {
+
+    private final PayloadFormatRegistry payloadFormatRegistry;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) {
+            return message;
+        }
+
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            payloadFormatRegistry.register(accessor.getSessionId(),
+                    PayloadFormat.fromHeader(accessor.getFirstNativeHeader(PayloadFormat.HEADER)));
+        } else if (StompCommand.SEND.equals(accessor.getCommand())) {
+            PayloadFormat format = payloadFormatRegistry.getFormat(accessor.getSessionId());
+            MimeType contentType = accessor.getContentType();
+            // Clients may send bare binary bodies; an explicit non-generic content-type wins
+            if (format.isBinary() && (contentType == null
+                    || MimeTypeUtils.APPLICATION_OCTET_STREAM.equalsTypeAndSubtype(contentType))) {
+                accessor.setContentType(format.getMimeType());
+            }
+        }
+        return message;
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.github.superz97.chat.websocket;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Negotiated payload format per STOMP session. Only binary sessions are tracked.
+ */
+@Component
+public class PayloadFormatRegistry {
+
+    private final Map<String, PayloadFormat> formats = new ConcurrentHashMap<>();
+
+    public void register(String sessionId, PayloadFormat format) {
+        if (sessionId == null) {
+            return;
+        }
+        if (format.isBinary()) {
+            formats.put(sessionId, format);
+        } else {
+            formats.remove(sessionId);
+        }
+    }
+
+    public PayloadFormat getFormat(String sessionId) {
+        return sessionId != null ? formats.getOrDefault(sessionId, PayloadFormat.JSON) : PayloadFormat.JSON;
+    }
+
+    public boolean hasBinarySessions() {
+        return !formats.isEmpty();
+    }
+
+    @EventListener
+    public void handleDisconnect(SessionDisconnectEvent event) {
+        formats.remove(event.getSessionId());
+    }
+
+}
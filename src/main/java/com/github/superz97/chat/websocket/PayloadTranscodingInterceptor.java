@@ -0,0 +1,134 @@
+package com.github.superz97.chat.websocket;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.superz97.chat.metrics.ChatMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Re-encodes outbound JSON MESSAGE frames for sessions that negotiated CBOR or Smile.
+ * JSON stays the canonical form on the broker and the cluster bus; conversion happens at the edge.
+ */
+@Component
+@Slf4j
+public class PayloadTranscodingInterceptor implements ChannelInterceptor {
+
+    // The simple broker hands the same payload array to every subscriber, so one fan-out encodes once
+    private static final int CACHE_SIZE = 256;
+
+    private final PayloadFormatRegistry payloadFormatRegistry;
+    private final ChatMetrics chatMetrics;
+    private final ObjectMapper jsonMapper;
+    private final Map<PayloadFormat, ObjectMapper> mappers = new EnumMap<>(PayloadFormat.class);
+    private final Map<TranscodeKey, byte[]> cache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TranscodeKey, byte[]> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    public PayloadTranscodingInterceptor(PayloadFormatRegistry payloadFormatRegistry, ChatMetrics chatMetrics,
+                                         ObjectMapper objectMapper) {
+        this.payloadFormatRegistry = payloadFormatRegistry;
+        this.chatMetrics = chatMetrics;
+        this.jsonMapper = objectMapper;
+        for (PayloadFormat format : PayloadFormat.values()) {
+            if (format.isBinary()) {
+                mappers.put(format, format.createMapper(objectMapper));
+            }
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!payloadFormatRegistry.hasBinarySessions()
+                || SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE
+                || !(message.getPayload() instanceof byte[] json)) {
+            return message;
+        }
+
+        PayloadFormat format = payloadFormatRegistry.getFormat(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+        if (!format.isBinary() || !isJson(message.getHeaders().get(MessageHeaders.CONTENT_TYPE))) {
+            return message;
+        }
+
+        byte[] encoded;
+        try {
+            encoded = transcode(json, format);
+        } catch (IOException e) {
+            log.warn("Failed to transcode outbound frame to {}, sending JSON", format, e);
+            return message;
+        }
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        // Spring only writes binary WebSocket frames for octet-stream compatible content types;
+        // the actual encoding travels in its own header
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        accessor.setNativeHeader(PayloadFormat.HEADER, format.getHeaderValue());
+        return MessageBuilder.createMessage(encoded, accessor.getMessageHeaders());
+    }
+
+    private static boolean isJson(Object contentType) {
+        MimeType mimeType = contentType instanceof String value ? MimeTypeUtils.parseMimeType(value) : (MimeType) contentType;
+        return mimeType != null && MimeTypeUtils.APPLICATION_JSON.equalsTypeAndSubtype(mimeType);
+    }
+
+    private byte[] transcode(byte[] json, PayloadFormat format) throws IOException {
+        TranscodeKey key = new TranscodeKey(json, format);
+        synchronized (cache) {
+            byte[] cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        long start = System.nanoTime();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        // Token-level copy, no intermediate tree
+        try (JsonParser parser = jsonMapper.getFactory().createParser(json);
+             JsonGenerator generator = mappers.get(format).getFactory().createGenerator(out)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+        byte[] encoded = out.toByteArray();
+        chatMetrics.recordPayloadTranscode(format.getHeaderValue(), json.length, encoded.length, System.nanoTime() - start);
+
+        synchronized (cache) {
+            cache.put(key, encoded);
+        }
+        return encoded;
+    }
+
+    // Identity on the payload array: equal content from different publishes is a different fan-out
+    private record TranscodeKey(byte[] payload, PayloadFormat format) {
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TranscodeKey other && other.payload == payload && other.format == format;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(payload) + format.ordinal();
+        }
+
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.github.superz97.chat.websocket;
+
+import com.github.superz97.chat.exception.ConnectionThrottledException;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.StompSubProtocolErrorHandler;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns known failures into ERROR frames with machine-readable headers; everything else keeps
+ * Spring's default ERROR frame.
+ */
+@Component
+public class StompErrorHandler extends StompSubProtocolErrorHandler {
+
+    public static final String RETRY_AFTER_HEADER = "retry-after";
+
+    @Override
+    public Message<byte[]> handleClientMessageProcessingError(Message<byte[]> clientMessage, Throwable ex) {
+        ConnectionThrottledException throttled = findCause(ex, ConnectionThrottledException.class);
+        if (throttled != null) {
+            StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.ERROR);
+            accessor.setMessage(throttled.getMessage());
+            // Milliseconds, already jittered per client
+            accessor.setNativeHeader(RETRY_AFTER_HEADER, Long.toString(throttled.getRetryAfterMillis()));
+            accessor.setLeaveMutable(true);
+            return MessageBuilder.createMessage(throttled.getMessage().getBytes(StandardCharsets.UTF_8),
+                    accessor.getMessageHeaders());
+        }
+        return super.handleClientMessageProcessingError(clientMessage, ex);
+    }
+
+    private static <T extends Throwable> T findCause(Throwable ex, Class<T> type) {
+        for (Throwable current = ex; current != null; current = current.getCause()) {
+            if (type.isInstance(current)) {
+                return type.cast(current);
+            }
+        }
+        return null;
+    }
+
+}
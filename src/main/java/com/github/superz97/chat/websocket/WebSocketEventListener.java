@@ -1,6 +1,7 @@
 package com.github.superz97.chat.websocket;
 
 import com.github.superz97.chat.entity.User;
+import com.github.superz97.chat.metrics.ChatMetrics;
 import com.github.superz97.chat.service.UserService;
 import com.github.superz97.chat.service.WebSocketService;
 import lombok.RequiredArgsConstructor;
@@ -20,6 +21,10 @@ public class WebSocketEventListener {
 
     private final UserService userService;
     private final WebSocketService webSocketService;
+    private final DestinationCache destinationCache;
+    private final ConnectAdmissionController connectAdmissionController;
+    private final ChatMetrics chatMetrics;
+    private final BlockedSenderInterceptor blockedSenderInterceptor;
 
     @EventListener
     public void handleWebSocketConnectListener(SessionConnectedEvent event) {
@@ -32,17 +37,24 @@ public class WebSocketEventListener {
                 User user = userService.getUserByUsername(username);
 
                 log.info("User connected: {} ({})", username, user.getId());
+                destinationCache.registerUser(user.getId(), username);
+                blockedSenderInterceptor.registerSession(headerAccessor.getSessionId(), user.getId());
 
                 // Set user status to online
                 userService.setUserOnline(user.getId());
 
-                // Broadcast user online status
-                webSocketService.broadcastUserOnline(user.getId(), username);
+                // Broadcast user online status, unless a reconnect storm is being shed
+                if (connectAdmissionController.isUnderPressure()) {
+                    chatMetrics.recordPresenceShed();
+                } else {
+                    webSocketService.broadcastUserOnline(user.getId(), username);
+                }
 
             } catch (Exception e) {
                 log.error("Error handling WebSocket connect event", e);
             }
         }
+        connectAdmissionController.complete(headerAccessor.getSessionId());
     }
 
     @EventListener
@@ -61,7 +73,11 @@ public class WebSocketEventListener {
                 userService.setUserOffline(user.getId());
 
                 // Broadcast user offline status
-                webSocketService.broadcastUserOffline(user.getId(), username);
+                if (connectAdmissionController.isUnderPressure()) {
+                    chatMetrics.recordPresenceShed();
+                } else {
+                    webSocketService.broadcastUserOffline(user.getId(), username);
+                }
 
             } catch (Exception e) {
                 log.error("Error handling WebSocket disconnect event", e);
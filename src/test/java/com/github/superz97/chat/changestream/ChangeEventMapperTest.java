@@ -0,0 +1,133 @@
+package com.github.superz97.chat.changestream;
+
+import com.github.superz97.chat.dto.response.MessageDTO;
+import com.github.superz97.chat.enums.WebSocketMessageType;
+import com.github.superz97.chat.service.ChannelService;
+import com.github.superz97.chat.service.GroupService;
+import com.github.superz97.chat.service.MessageService;
+import com.mongodb.client.model.changestream.OperationType;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChangeEventMapperTest {
+
+    private ChangeEventMapper mapper;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        MessageService messageService = mock(MessageService.class);
+        when(messageService.toDTO(any(), any(), anyBoolean())).thenAnswer(invocation -> new MessageDTO());
+
+        mapper = new ChangeEventMapper(converter, messageService, mock(ChannelService.class), mock(GroupService.class));
+    }
+
+    @Test
+    void routesContentUpdateAsEditToChannel() {
+        Document message = message().append("channelId", "c1").append("content", "edited").append("edited", true);
+
+        List<ChangeEvent> events = mapper.map(ChangeEventMapper.MESSAGES, OperationType.UPDATE,
+                message.getObjectId("_id").toHexString(), message, Set.of("content", "edited", "editedAt"));
+
+        assertThat(events).singleElement().satisfies(event -> {
+            assertThat(event.target()).isEqualTo(ChangeEvent.Target.CHANNEL);
+            assertThat(event.targetId()).isEqualTo("c1");
+            assertThat(event.type()).isEqualTo(WebSocketMessageType.MESSAGE_EDIT);
+        });
+    }
+
+    @Test
+    void routesCompressedEditAsEdit() {
+        Document message = message().append("groupId", "g1").append("contentCompressed", true)
+                .append("edited", true);
+        message.remove("content");
+
+        List<ChangeEvent> events = mapper.map(ChangeEventMapper.MESSAGES, OperationType.UPDATE,
+                message.getObjectId("_id").toHexString(), message,
+                Set.of("compressedContent", "contentCompressed", "edited", "editedAt"));
+
+        assertThat(events).singleElement().satisfies(event -> {
+            assertThat(event.target()).isEqualTo(ChangeEvent.Target.GROUP);
+            assertThat(event.type()).isEqualTo(WebSocketMessageType.MESSAGE_EDIT);
+        });
+    }
+
+    @Test
+    void routesPrivateDeleteToBothParticipants() {
+        Document message = message().append("recipientId", "u2").append("deleted", true);
+
+        List<ChangeEvent> events = mapper.map(ChangeEventMapper.MESSAGES, OperationType.UPDATE,
+                message.getObjectId("_id").toHexString(), message, Set.of("deleted"));
+
+        assertThat(events).extracting(ChangeEvent::targetId).containsExactly("u2", "u1");
+        assertThat(events).extracting(ChangeEvent::type).containsOnly(WebSocketMessageType.MESSAGE_DELETE);
+        assertThat(events).extracting(event -> ((MessageDTO) event.payload()).getContent()).containsOnlyNulls();
+    }
+
+    @Test
+    void ignoresReadReceiptUpdates() {
+        Document message = message().append("groupId", "g1");
+
+        assertThat(mapper.map(ChangeEventMapper.MESSAGES, OperationType.UPDATE,
+                message.getObjectId("_id").toHexString(), message, Set.of("readBy"))).isEmpty();
+    }
+
+    @Test
+    void mapsDeactivatedGroupAsDeleted() {
+        Document group = new Document("_id", new ObjectId()).append("name", "g").append("active", false);
+
+        List<ChangeEvent> events = mapper.map(ChangeEventMapper.GROUPS, OperationType.REPLACE,
+                group.getObjectId("_id").toHexString(), group, Set.of());
+
+        assertThat(events).singleElement()
+                .extracting(ChangeEvent::type).isEqualTo(WebSocketMessageType.GROUP_DELETED);
+    }
+
+    @Test
+    void sendsCompactChannelUpdatesOnlyWhenVisibleFieldsChange() {
+        Document channel = new Document("_id", new ObjectId()).append("name", "general")
+                .append("memberIds", List.of("u1", "u2"));
+        String channelId = channel.getObjectId("_id").toHexString();
+
+        List<ChangeEvent> joined = mapper.map(ChangeEventMapper.CHANNELS, OperationType.REPLACE, channelId, channel,
+                Set.of());
+        assertThat(joined).singleElement().satisfies(event -> {
+            assertThat(event.type()).isEqualTo(WebSocketMessageType.CHANNEL_UPDATED);
+            assertThat(event.payload()).isEqualTo(
+                    new ChangeEventMapper.ConversationPayload(channelId, "general", null, null, 2));
+        });
+
+        // A save that only moved retention settings looks the same to subscribers
+        assertThat(mapper.map(ChangeEventMapper.CHANNELS, OperationType.REPLACE, channelId,
+                channel.append("hotRetentionDays", 30), Set.of())).isEmpty();
+        assertThat(mapper.map(ChangeEventMapper.CHANNELS, OperationType.UPDATE, channelId, channel,
+                Set.of("hotRetentionDays", "updatedAt"))).isEmpty();
+        assertThat(ChangeEventMapper.needsDocument(ChangeEventMapper.CHANNELS, Set.of("updatedAt"))).isFalse();
+    }
+
+    private static Document message() {
+        return new Document("_id", new ObjectId()).append("senderId", "u1").append("content", "hi");
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.github.superz97.chat.changestream;
+
+import com.github.superz97.chat.entity.Message;
+import com.github.superz97.chat.enums.WebSocketMessageType;
+import com.github.superz97.chat.metrics.ChatMetrics;
+import com.github.superz97.chat.service.WebSocketService;
+import com.mongodb.client.model.changestream.OperationType;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DirectChangePublisherTest {
+
+    private final ChangeStreamEventRelay relay = mock(ChangeStreamEventRelay.class);
+    private final ChangeEventMapper mapper = mock(ChangeEventMapper.class);
+    private final WebSocketService webSocketService = mock(WebSocketService.class);
+    private DirectChangePublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        publisher = new DirectChangePublisher(relay, mapper, webSocketService, converter,
+                mock(ChatMetrics.class));
+        when(mapper.map(any(), any(), any(), any(), any())).thenReturn(List.of(
+                new ChangeEvent(ChangeEvent.Target.GROUP, "g1", WebSocketMessageType.MESSAGE_EDIT, "payload")));
+    }
+
+    @Test
+    void publishesUpdatesWhileTheRelayIsNotStreaming() {
+        Message message = Message.builder().id(new ObjectId().toHexString()).groupId("g1").content("edited").build();
+
+        publisher.onMessageUpdated(new MessageUpdatedEvent(message, Set.of("content", "editedAt")));
+
+        verify(mapper).map(eq(ChangeEventMapper.MESSAGES), eq(OperationType.UPDATE), eq(message.getId()), any(),
+                eq(Set.of("content", "editedAt")));
+        verify(webSocketService).sendToGroup(eq("g1"), any());
+    }
+
+    @Test
+    void publishesSavedMessagesAsInserts() {
+        Message message = Message.builder().groupId("g1").build();
+        Document document = new Document("_id", new ObjectId()).append("groupId", "g1");
+
+        publisher.onAfterSave(new AfterSaveEvent<>(message, document, ChangeEventMapper.MESSAGES));
+
+        verify(mapper).map(eq(ChangeEventMapper.MESSAGES), eq(OperationType.INSERT), anyString(), eq(document),
+                eq(Set.of()));
+    }
+
+    @Test
+    void staysQuietWhileTheRelayIsStreaming() {
+        when(relay.isStreaming()).thenReturn(true);
+
+        publisher.onMessageUpdated(new MessageUpdatedEvent(Message.builder().groupId("g1").build(), Set.of("deleted")));
+
+        verify(webSocketService, never()).sendToGroup(anyString(), any());
+    }
+
+}
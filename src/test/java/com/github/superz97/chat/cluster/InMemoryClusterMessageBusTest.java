@@ -0,0 +1,40 @@
+package com.github.superz97.chat.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryClusterMessageBusTest {
+
+    @Test
+    void forwardsOnlyToNodesWithInterest() {
+        InMemoryClusterHub hub = new InMemoryClusterHub();
+        InMemoryClusterMessageBus nodeA = hub.join("a");
+        InMemoryClusterMessageBus nodeB = hub.join("b");
+        InMemoryClusterMessageBus nodeC = hub.join("c");
+
+        List<ClusterMessage> receivedA = new ArrayList<>();
+        List<ClusterMessage> receivedB = new ArrayList<>();
+        List<ClusterMessage> receivedC = new ArrayList<>();
+        nodeA.onMessage(receivedA::add);
+        nodeB.onMessage(receivedB::add);
+        nodeC.onMessage(receivedC::add);
+
+        nodeA.updateLocalInterest(Set.of("/topic/channel/1"));
+        nodeB.updateLocalInterest(Set.of("/topic/channel/1", "/user/alice"));
+        nodeC.updateLocalInterest(Set.of("/topic/group/9"));
+
+        nodeA.publish(new ClusterMessage("a", "/topic/channel/1", "application/json", new byte[]{1}));
+        nodeA.publish(new ClusterMessage("a", "/user/alice/queue/messages", "application/json", new byte[]{2}));
+
+        assertThat(receivedA).isEmpty();
+        assertThat(receivedB).extracting(ClusterMessage::destination)
+                .containsExactly("/topic/channel/1", "/user/alice/queue/messages");
+        assertThat(receivedC).isEmpty();
+    }
+
+}
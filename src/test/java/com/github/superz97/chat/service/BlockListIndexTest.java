@@ -0,0 +1,64 @@
+package com.github.superz97.chat.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BlockListIndexTest {
+
+    @Test
+    void blocksAreDirectional() {
+        BlockListIndex index = new BlockListIndex();
+        index.block("alice", "bob");
+        index.block("alice", "bob");
+
+        assertThat(index.isBlocked("alice", "bob")).isTrue();
+        assertThat(index.isBlocked("bob", "alice")).isFalse();
+        assertThat(index.isBlocked("alice", "carol")).isFalse();
+        assertThat(index.relationships()).isEqualTo(1);
+
+        index.unblock("alice", "bob");
+        assertThat(index.isBlocked("alice", "bob")).isFalse();
+        assertThat(index.isEmpty()).isTrue();
+    }
+
+    @Test
+    void matchesSetsAcrossGrowthReplacesAndUnblocks() {
+        BlockListIndex index = new BlockListIndex();
+        Set<String> expected = new HashSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            String user = "u" + random.nextInt(500);
+            String target = "u" + random.nextInt(500);
+            switch (random.nextInt(10)) {
+                case 0 -> {
+                    index.replace(user, List.of(target));
+                    expected.removeIf(pair -> pair.startsWith(user + ">"));
+                    expected.add(user + ">" + target);
+                }
+                case 1, 2, 3 -> {
+                    index.unblock(user, target);
+                    expected.remove(user + ">" + target);
+                }
+                default -> {
+                    index.block(user, target);
+                    expected.add(user + ">" + target);
+                }
+            }
+        }
+
+        assertThat(index.relationships()).isEqualTo(expected.size());
+        for (int user = 0; user < 500; user++) {
+            for (int target = 0; target < 500; target++) {
+                String pair = "u" + user + ">u" + target;
+                assertThat(index.isBlocked("u" + user, "u" + target)).as(pair).isEqualTo(expected.contains(pair));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.metrics.ChatMetrics;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BlockListServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BlockListService service = new BlockListService(mongoTemplate, mock(ChatMetrics.class));
+
+    @Test
+    void changesMadeDuringReloadSurviveStaleDocuments() {
+        // The cursor returns alice's document as read before she unblocked bob and blocked carol
+        when(mongoTemplate.stream(any(Query.class), eq(Document.class), any())).thenAnswer(invocation -> Stream
+                .of(new Document("_id", "alice").append("blockedUserIds", List.of("bob")))
+                .peek(user -> {
+                    service.unblock("alice", "bob");
+                    service.block("alice", "carol");
+                }));
+
+        service.rebuild();
+
+        assertThat(service.isBlocked("alice", "bob")).isFalse();
+        assertThat(service.isBlocked("alice", "carol")).isTrue();
+    }
+
+    @Test
+    void changesAfterReloadApplyToTheLoadedIndex() {
+        when(mongoTemplate.stream(any(Query.class), eq(Document.class), any())).thenAnswer(invocation -> Stream.empty());
+        assertThat(service.isLoaded()).isFalse();
+
+        service.rebuild();
+        service.block("alice", "bob");
+
+        assertThat(service.hasBlocks()).isTrue();
+        assertThat(service.isBlocked("alice", "bob")).isTrue();
+        assertThat(service.isBlocked("bob", "alice")).isFalse();
+    }
+
+}
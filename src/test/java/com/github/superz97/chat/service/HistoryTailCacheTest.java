@@ -0,0 +1,155 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.entity.Message;
+import com.github.superz97.chat.metrics.ChatMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class HistoryTailCacheTest {
+
+    private static final String KEY = HistoryTailCache.channelKey("c1");
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private final HistoryTailCache cache = new HistoryTailCache(mock(ChatMetrics.class));
+    private final List<Message> stored = new ArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "capacity", 3);
+        ReflectionTestUtils.setField(cache, "maxConversations", 10);
+        ReflectionTestUtils.setField(cache, "memoryBudget", 1L << 20);
+    }
+
+    @Test
+    void localWritesAndTheirChangeStreamEchoesApplyOnce() {
+        stored.add(message("m1", 1));
+        stored.add(message("m2", 2));
+        firstPage(3);
+
+        Message m3 = message("m3", 3);
+        cache.applyInsert(m3);
+        cache.applyInsert(m3);
+        assertThat(ids(firstPage(3))).containsExactly("m3", "m2", "m1");
+        assertThat(firstPage(3).getTotalElements()).isEqualTo(3);
+
+        Message edited = message("m2", 2);
+        edited.setContent("edited");
+        cache.applyUpdate(edited);
+        cache.applyUpdate(edited);
+        assertThat(firstPage(3).getContent().get(1).getContent()).isEqualTo("edited");
+        assertThat(firstPage(3).getTotalElements()).isEqualTo(3);
+
+        Message deleted = message("m1", 1);
+        deleted.setDeleted(true);
+        cache.applyUpdate(deleted);
+        cache.applyUpdate(deleted);
+        assertThat(ids(firstPage(3))).containsExactly("m3", "m2");
+        assertThat(firstPage(3).getTotalElements()).isEqualTo(2);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void insertsPastCapacityDropTheOldestButKeepCounting() {
+        stored.add(message("m1", 1));
+        stored.add(message("m2", 2));
+        stored.add(message("m3", 3));
+        firstPage(3);
+
+        cache.applyInsert(message("m4", 4));
+
+        Page<Message> page = firstPage(3);
+        assertThat(ids(page)).containsExactly("m4", "m3", "m2");
+        assertThat(page.getTotalElements()).isEqualTo(4);
+    }
+
+    @Test
+    void loadRacingAWriteIsServedButNotCached() {
+        stored.add(message("m1", 1));
+        cache.getFirstPage(KEY, 0, 3, size -> {
+            Page<Message> page = load(size);
+            // Lands after the loader read the collection
+            cache.applyInsert(message("m2", 2));
+            return page;
+        });
+
+        stored.add(message("m2", 2));
+        assertThat(ids(firstPage(3))).containsExactly("m2", "m1");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void sinceIsOnlyAnsweredWhenTheTailReachesBackFarEnough() {
+        for (int i = 1; i <= 5; i++) {
+            stored.add(message("m" + i, i));
+        }
+        firstPage(3);
+
+        // Tail holds m5..m3 of five messages
+        assertThat(cache.getSince(KEY, T0.plusMinutes(3))).hasValueSatisfying(newer ->
+                assertThat(newer).extracting(Message::getId).containsExactly("m4", "m5"));
+        assertThat(cache.getSince(KEY, T0.plusMinutes(1))).isEmpty();
+
+    }
+
+    @Test
+    void aTailHoldingTheWholeConversationAnswersAnySince() {
+        stored.add(message("m1", 1));
+        stored.add(message("m2", 2));
+        firstPage(3);
+
+        assertThat(cache.getSince(KEY, T0.minusDays(30))).hasValueSatisfying(newer ->
+                assertThat(newer).extracting(Message::getId).containsExactly("m1", "m2"));
+    }
+
+    @Test
+    void localReadReceiptsCopyTheReaderSet() {
+        stored.add(message("m1", 1));
+        Message cached = firstPage(3).getContent().get(0);
+        Set<String> before = cached.getReadBy();
+
+        cache.applyRead(List.of(message("m1", 1)), "u2");
+        cache.applyRead(List.of(message("m1", 1)), "u2");
+
+        assertThat(firstPage(3).getContent().get(0).getReadBy()).containsExactly("u2");
+        assertThat(before).isEmpty();
+    }
+
+    private Page<Message> firstPage(int size) {
+        return cache.getFirstPage(KEY, 0, size, this::load);
+    }
+
+    private Page<Message> load(int size) {
+        loads.incrementAndGet();
+        List<Message> newestFirst = stored.stream()
+                .sorted(Comparator.comparing(Message::getTimestamp).reversed())
+                .limit(size)
+                .toList();
+        return new PageImpl<>(newestFirst, PageRequest.of(0, size), stored.size());
+    }
+
+    private static List<String> ids(Page<Message> page) {
+        return page.getContent().stream().map(Message::getId).toList();
+    }
+
+    private static Message message(String id, int minute) {
+        return Message.builder().id(id).channelId("c1").senderId("u1").content("hi " + id)
+                .timestamp(T0.plusMinutes(minute)).build();
+    }
+
+}
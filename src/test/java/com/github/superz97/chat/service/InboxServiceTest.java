@@ -0,0 +1,112 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.entity.InboxEntry;
+import com.github.superz97.chat.entity.Message;
+import com.github.superz97.chat.enums.ConversationType;
+import com.github.superz97.chat.metrics.ChatMetrics;
+import com.github.superz97.chat.repository.InboxEntryRepository;
+import com.github.superz97.chat.repository.UserRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class InboxServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BulkOperations bulk = mock(BulkOperations.class);
+    private final InboxService service = new InboxService(mongoTemplate, mock(InboxEntryRepository.class),
+            mock(UserRepository.class), mock(ChatMetrics.class));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "previewLength", 5);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(InboxEntry.class))).thenReturn(bulk);
+    }
+
+    @Test
+    void flushCountsEverySendOnceAndNotForItsSender() {
+        service.recordMessage(channelMessage("m1", "u1", 1), "hello there");
+        service.recordMessage(channelMessage("m3", "u2", 3), "newest");
+        service.recordMessage(channelMessage("m2", "u1", 2), "middle");
+
+        service.flushAll();
+        service.flushAll();
+
+        // One flush: +3 for every member, then each sender's own sends taken back off their row
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(2)).updateMulti(query.capture(), update.capture());
+        assertThat(update.getAllValues().get(0).getUpdateObject())
+                .isEqualTo(new Document("$inc", new Document("unreadCount", 3)));
+        Document last = update.getAllValues().get(1).getUpdateObject().get("$set", Document.class);
+        assertThat(last.getString("lastMessageId")).isEqualTo("m3");
+        assertThat(last.getString("lastMessagePreview")).isEqualTo("newes");
+
+        ArgumentCaptor<Query> own = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> ownUpdate = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(2)).updateOne(own.capture(), ownUpdate.capture());
+        Map<String, Object> takenBack = IntStream.range(0, 2).boxed().collect(Collectors.toMap(
+                i -> own.getAllValues().get(i).getQueryObject().getString("userId"),
+                i -> ownUpdate.getAllValues().get(i).getUpdateObject().get("$inc", Document.class).get("unreadCount")));
+        assertThat(takenBack).containsExactlyInAnyOrderEntriesOf(Map.of("u1", -2, "u2", -1));
+        verify(bulk, times(1)).execute();
+    }
+
+    @Test
+    void markReadSubtractsPerConversationAndSkipsOwnMessages() {
+        service.markRead("u1", List.of(
+                channelMessage("m1", "u2", 1),
+                channelMessage("m2", "u3", 2),
+                channelMessage("m3", "u1", 3),
+                Message.builder().id("d1").senderId("u4").recipientId("u1").timestamp(T0).build()));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<AggregationUpdate> update = ArgumentCaptor.forClass(AggregationUpdate.class);
+        verify(bulk, times(2)).updateOne(query.capture(), update.capture());
+        Map<String, String> decrements = IntStream.range(0, 2).boxed().collect(Collectors.toMap(
+                i -> query.getAllValues().get(i).getQueryObject().get("conversationType") + ":"
+                        + query.getAllValues().get(i).getQueryObject().getString("conversationId"),
+                i -> update.getAllValues().get(i).toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).toJson()));
+        assertThat(decrements).containsOnlyKeys(ConversationType.CHANNEL + ":c1", ConversationType.DIRECT + ":u4");
+        assertThat(decrements.get(ConversationType.CHANNEL + ":c1")).contains("\"$subtract\": [\"$unreadCount\", 2]");
+        assertThat(decrements.get(ConversationType.DIRECT + ":u4")).contains("\"$subtract\": [\"$unreadCount\", 1]");
+    }
+
+    @Test
+    void readingOnlyOwnMessagesWritesNothing() {
+        service.markRead("u1", List.of(channelMessage("m1", "u1", 1)));
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    private static Message channelMessage(String id, String senderId, int minute) {
+        return Message.builder().id(id).channelId("c1").senderId(senderId).senderUsername(senderId)
+                .timestamp(T0.plusMinutes(minute)).build();
+    }
+
+}
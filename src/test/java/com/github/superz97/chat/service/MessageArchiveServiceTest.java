@@ -0,0 +1,163 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.entity.Message;
+import com.github.superz97.chat.entity.MessageArchiveSegment;
+import com.github.superz97.chat.repository.MessageArchiveSegmentRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageArchiveServiceTest {
+
+    private static final String KEY = "channel:c1";
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final MessageArchiveSegmentRepository segmentRepository = mock(MessageArchiveSegmentRepository.class);
+    private MessageArchiveService archiveService;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+
+        archiveService = new MessageArchiveService(mongoTemplate, segmentRepository);
+    }
+
+    @Test
+    void getRangeCountsOffsetsAcrossSegmentsNewestFirst() {
+        // m1..m3 in the older segment, m4..m6 in the newer one
+        MessageArchiveSegment older = segment("s1", 1, 3);
+        MessageArchiveSegment newer = segment("s2", 4, 3);
+        givenSegments(newer, older);
+
+        assertThat(ids(archiveService.getRange(KEY, 0, 2))).containsExactly("m6", "m5");
+        assertThat(ids(archiveService.getRange(KEY, 2, 3))).containsExactly("m4", "m3", "m2");
+        assertThat(ids(archiveService.getRange(KEY, 4, 10))).containsExactly("m2", "m1");
+        assertThat(archiveService.getRange(KEY, 6, 10)).isEmpty();
+    }
+
+    @Test
+    void getRangeOnlyReadsSegmentsOverlappingTheRange() {
+        MessageArchiveSegment older = segment("s1", 1, 3);
+        MessageArchiveSegment newer = segment("s2", 4, 3);
+        givenSegments(newer, older);
+
+        archiveService.getRange(KEY, 0, 3);
+        verify(segmentRepository).findById("s2");
+        verify(segmentRepository, never()).findById("s1");
+
+        archiveService.getRange(KEY, 3, 3);
+        verify(segmentRepository).findById("s1");
+    }
+
+    @Test
+    void archiveWritesOneSegmentAndRemovesItsMessages() {
+        List<Document> messages = documents(1, 3);
+
+        assertThat(archiveService.archive(KEY, messages)).isEqualTo(3);
+
+        ArgumentCaptor<MessageArchiveSegment> segment = ArgumentCaptor.forClass(MessageArchiveSegment.class);
+        verify(segmentRepository).insert(segment.capture());
+        assertThat(segment.getValue().getId()).isEqualTo(KEY + ":m1");
+        assertThat(segment.getValue().getCount()).isEqualTo(3);
+        assertThat(MessageArchiveService.decode(segment.getValue().getData())).isEqualTo(messages);
+        assertThat(removedIds()).containsExactly("m1", "m2", "m3");
+    }
+
+    @Test
+    void archiveResumingADuplicateSegmentOnlyRemovesWhatThatSegmentHolds() {
+        // An interrupted pass stored m1..m2; m3 arrived afterwards and is not in the segment
+        MessageArchiveSegment existing = segment("ignored", 1, 2);
+        existing.setId(KEY + ":m1");
+        when(segmentRepository.insert(any(MessageArchiveSegment.class))).thenThrow(new DuplicateKeyException("dup"));
+        when(segmentRepository.findById(KEY + ":m1")).thenReturn(Optional.of(existing));
+
+        assertThat(archiveService.archive(KEY, documents(1, 3))).isEqualTo(2);
+        assertThat(removedIds()).containsExactly("m1", "m2");
+    }
+
+    @Test
+    void countMessagesSumsSegmentsAndIsClearedByArchive() {
+        givenSegments(segment("s2", 4, 3), segment("s1", 1, 3));
+        assertThat(archiveService.countMessages(KEY)).isEqualTo(6);
+
+        givenSegments(segment("s3", 7, 2), segment("s2", 4, 3), segment("s1", 1, 3));
+        assertThat(archiveService.countMessages(KEY)).isEqualTo(6);
+
+        archiveService.archive(KEY, documents(7, 2));
+        assertThat(archiveService.countMessages(KEY)).isEqualTo(8);
+    }
+
+    private void givenSegments(MessageArchiveSegment... segments) {
+        List<MessageArchiveSegment> summaries = new ArrayList<>();
+        for (MessageArchiveSegment segment : segments) {
+            summaries.add(MessageArchiveSegment.builder()
+                    .id(segment.getId())
+                    .count(segment.getCount())
+                    .startTimestamp(segment.getStartTimestamp())
+                    .build());
+            when(segmentRepository.findById(segment.getId())).thenReturn(Optional.of(segment));
+        }
+        when(segmentRepository.findSummariesByConversationKey(KEY)).thenReturn(summaries);
+    }
+
+    private List<Object> removedIds() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(query.capture(), eq(Message.class));
+        return query.getValue().getQueryObject().get("_id", Document.class).getList("$in", Object.class);
+    }
+
+    // Messages m{first}..m{first + count - 1}, oldest first, one minute apart
+    private static List<Document> documents(int first, int count) {
+        return IntStream.range(first, first + count)
+                .mapToObj(n -> new Document("_id", "m" + n)
+                        .append("channelId", "c1")
+                        .append("content", "message " + n)
+                        .append("timestamp", MessageArchiveService.toDate(T0.plusMinutes(n))))
+                .toList();
+    }
+
+    private static MessageArchiveSegment segment(String id, int first, int count) {
+        return MessageArchiveSegment.builder()
+                .id(id)
+                .conversationKey(KEY)
+                .count(count)
+                .startTimestamp(T0.plusMinutes(first))
+                .endTimestamp(T0.plusMinutes(first + count - 1))
+                .data(MessageArchiveService.encode(documents(first, count)))
+                .build();
+    }
+
+    private static List<String> ids(List<Message> messages) {
+        return messages.stream().map(Message::getId).toList();
+    }
+
+}
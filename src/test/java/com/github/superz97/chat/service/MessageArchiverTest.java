@@ -0,0 +1,84 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.entity.Channel;
+import com.github.superz97.chat.entity.Group;
+import com.github.superz97.chat.entity.Message;
+import com.mongodb.client.result.DeleteResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageArchiverTest {
+
+    private static final String KEY = MessageBucketService.channelKey("c1");
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final MessageArchiveService messageArchiveService = mock(MessageArchiveService.class);
+    private final HistoryTailCache historyTailCache = mock(HistoryTailCache.class);
+    private MessageArchiver archiver;
+
+    @BeforeEach
+    void setUp() {
+        archiver = new MessageArchiver(mongoTemplate, messageArchiveService, mock(MessageBucketService.class),
+                historyTailCache);
+        ReflectionTestUtils.setField(archiver, "enabled", true);
+        ReflectionTestUtils.setField(archiver, "defaultHotRetentionDays", 30);
+        ReflectionTestUtils.setField(archiver, "defaultArchiveRetentionDays", 0);
+        ReflectionTestUtils.setField(archiver, "segmentSize", 2);
+        ReflectionTestUtils.setField(archiver, "purgeDeletedAfterHours", 24);
+
+        when(mongoTemplate.getCollectionName(Channel.class)).thenReturn("channels");
+        when(mongoTemplate.getCollectionName(Group.class)).thenReturn("groups");
+        when(mongoTemplate.getCollectionName(Message.class)).thenReturn("messages");
+        when(mongoTemplate.stream(any(Query.class), eq(Document.class), eq("channels")))
+                .thenAnswer(invocation -> Stream.of(new Document("_id", "c1")));
+        when(mongoTemplate.stream(any(Query.class), eq(Document.class), eq("groups")))
+                .thenAnswer(invocation -> Stream.empty());
+        when(mongoTemplate.remove(any(Query.class), eq(Message.class))).thenReturn(DeleteResult.acknowledged(0));
+    }
+
+    @Test
+    void archivesChunksUntilNothingIsLeftAndDropsTheTail() {
+        List<Document> first = List.of(new Document("_id", "m1"), new Document("_id", "m2"));
+        List<Document> second = List.of(new Document("_id", "m3"));
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("messages")))
+                .thenReturn(first).thenReturn(second).thenReturn(List.of());
+        when(messageArchiveService.archive(KEY, first)).thenReturn(2);
+        when(messageArchiveService.archive(KEY, second)).thenReturn(1);
+
+        archiver.runArchivePass();
+
+        verify(messageArchiveService).archive(KEY, first);
+        verify(messageArchiveService).archive(KEY, second);
+        verify(historyTailCache).invalidate(KEY);
+    }
+
+    @Test
+    void stopsWhenAResumedSegmentMakesNoProgress() {
+        // A duplicate segment that no longer covers the oldest messages removes nothing; retrying would spin
+        List<Document> stuck = List.of(new Document("_id", "m1"));
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("messages"))).thenReturn(stuck);
+        when(messageArchiveService.archive(KEY, stuck)).thenReturn(0);
+
+        archiver.runArchivePass();
+
+        verify(messageArchiveService, times(1)).archive(eq(KEY), anyList());
+        verify(historyTailCache, never()).invalidate(any());
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.github.superz97.chat.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageContentCompressorTest {
+
+    @Test
+    void searchTokensAreBounded() {
+        assertThat(MessageContentCompressor.searchTokens("Deploy to ci.example.com at 10:42 — OK?"))
+                .containsExactly("deploy", "example", "com");
+
+        String longWord = "x".repeat(100);
+        assertThat(MessageContentCompressor.searchTokens(longWord))
+                .containsExactly("x".repeat(MessageContentCompressor.MAX_TOKEN_LENGTH));
+
+        // A pasted log: hundreds of distinct words, only the first few dozen are indexed
+        String log = IntStream.range(0, 500).mapToObj(i -> "line" + i).collect(Collectors.joining(" "));
+        assertThat(MessageContentCompressor.searchTokens(log))
+                .hasSize(MessageContentCompressor.MAX_TOKENS)
+                .startsWith("line0", "line1");
+    }
+
+}
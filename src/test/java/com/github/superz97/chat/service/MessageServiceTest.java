@@ -0,0 +1,111 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.entity.Message;
+import com.github.superz97.chat.repository.MessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageServiceTest {
+
+    private static final String ARCHIVE_KEY = MessageBucketService.channelKey("c1");
+    private static final long HOT_TOTAL = 5;
+
+    private final HistoryTailCache historyTailCache = mock(HistoryTailCache.class);
+    private final MessageArchiveService messageArchiveService = mock(MessageArchiveService.class);
+    private MessageService messageService;
+
+    @BeforeEach
+    void setUp() {
+        messageService = new MessageService(mock(MessageRepository.class), mock(UserService.class),
+                mock(FileService.class), mock(MongoTemplate.class), mock(MessageBucketService.class),
+                historyTailCache, messageArchiveService, mock(MessageContentCompressor.class),
+                mock(InboxService.class), mock(DirectConversationMigration.class),
+                mock(ApplicationEventPublisher.class));
+
+        // Hot messages h1 (newest) .. h5, archived a1 (newest) .. a4
+        when(historyTailCache.getFirstPage(eq(HistoryTailCache.channelKey("c1")), anyInt(), anyInt(), any()))
+                .thenAnswer(invocation -> hotPage(invocation.getArgument(1), invocation.getArgument(2)));
+        when(messageArchiveService.countMessages(ARCHIVE_KEY)).thenReturn(4L);
+        when(messageArchiveService.getRange(eq(ARCHIVE_KEY), anyLong(), anyInt()))
+                .thenAnswer(invocation -> archived(invocation.getArgument(1), invocation.getArgument(2)));
+    }
+
+    @Test
+    void pageInsideTheHotWindowDoesNotReadTheArchive() {
+        Page<Message> page = messageService.getChannelMessages("c1", 0, 3);
+
+        assertThat(ids(page)).containsExactly("h1", "h2", "h3");
+        assertThat(page.getTotalElements()).isEqualTo(9);
+        verify(messageArchiveService, never()).getRange(any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void pageStraddlingTheBoundaryIsFilledFromTheNewestArchivedMessages() {
+        Page<Message> page = messageService.getChannelMessages("c1", 1, 3);
+
+        assertThat(ids(page)).containsExactly("h4", "h5", "a1");
+        verify(messageArchiveService).getRange(ARCHIVE_KEY, 0, 1);
+    }
+
+    @Test
+    void pagesPastTheHotWindowContinueAtTheMatchingArchiveOffset() {
+        assertThat(ids(messageService.getChannelMessages("c1", 2, 3))).containsExactly("a2", "a3", "a4");
+        verify(messageArchiveService).getRange(ARCHIVE_KEY, 1, 3);
+
+        Page<Message> last = messageService.getChannelMessages("c1", 3, 3);
+        assertThat(last.getContent()).isEmpty();
+        assertThat(last.getTotalPages()).isEqualTo(3);
+    }
+
+    @Test
+    void withoutArchivedMessagesTheHotPageIsReturnedAsIs() {
+        when(messageArchiveService.countMessages(ARCHIVE_KEY)).thenReturn(0L);
+
+        Page<Message> page = messageService.getChannelMessages("c1", 1, 3);
+
+        assertThat(ids(page)).containsExactly("h4", "h5");
+        assertThat(page.getTotalElements()).isEqualTo(HOT_TOTAL);
+    }
+
+    private static Page<Message> hotPage(int page, int size) {
+        List<Message> content = IntStream.range(page * size, (int) Math.min(HOT_TOTAL, (long) (page + 1) * size))
+                .mapToObj(i -> message("h" + (i + 1)))
+                .toList();
+        return new PageImpl<>(content, PageRequest.of(page, size), HOT_TOTAL);
+    }
+
+    private static List<Message> archived(long offset, int limit) {
+        return IntStream.range((int) offset, (int) Math.min(4, offset + limit))
+                .mapToObj(i -> message("a" + (i + 1)))
+                .toList();
+    }
+
+    private static Message message(String id) {
+        Message message = new Message();
+        message.setId(id);
+        return message;
+    }
+
+    private static List<String> ids(Page<Message> page) {
+        return page.getContent().stream().map(Message::getId).toList();
+    }
+
+}
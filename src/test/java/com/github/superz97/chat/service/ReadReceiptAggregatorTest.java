@@ -0,0 +1,124 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.dto.response.ReadReceiptDTO;
+import com.github.superz97.chat.dto.response.WebSocketMessageDTO;
+import com.github.superz97.chat.entity.Message;
+import com.github.superz97.chat.enums.WebSocketMessageType;
+import com.github.superz97.chat.metrics.ChatMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.InstanceOfAssertFactories.list;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReadReceiptAggregatorTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private final MessageService messageService = mock(MessageService.class);
+    private final WebSocketService webSocketService = mock(WebSocketService.class);
+    private final List<List<String>> flushed = Collections.synchronizedList(new ArrayList<>());
+    private ReadReceiptAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        aggregator = new ReadReceiptAggregator(messageService, webSocketService, mock(ChatMetrics.class));
+        ReflectionTestUtils.setField(aggregator, "maxBatch", 3);
+
+        // Every message is sent by "sender" in channel c1 and newly read
+        when(messageService.markAsReadBatch(anyList(), eq("reader"))).thenAnswer(invocation -> {
+            List<String> ids = invocation.getArgument(0);
+            flushed.add(ids);
+            return ids.stream().map(ReadReceiptAggregatorTest::message).toList();
+        });
+    }
+
+    @Test
+    void fullBatchFlushesEarlyOnTheRecordingThread() {
+        aggregator.record("reader", "m1");
+        aggregator.record("reader", "m2");
+        verify(messageService, never()).markAsReadBatch(anyList(), any());
+
+        aggregator.record("reader", "m3");
+
+        assertThat(flushed).singleElement().satisfies(ids -> assertThat(ids).containsExactlyInAnyOrder("m1", "m2", "m3"));
+        ArgumentCaptor<WebSocketMessageDTO> frame = ArgumentCaptor.forClass(WebSocketMessageDTO.class);
+        verify(webSocketService).sendToUser(eq("sender"), frame.capture());
+        assertThat(frame.getValue().getType()).isEqualTo(WebSocketMessageType.MESSAGE_READ);
+        assertThat(frame.getValue().getPayload()).asInstanceOf(list(ReadReceiptDTO.class))
+                .singleElement().satisfies(receipt -> {
+                    assertThat(receipt.getChannelId()).isEqualTo("c1");
+                    assertThat(receipt.getMessageIds()).containsExactlyInAnyOrder("m1", "m2", "m3");
+                });
+    }
+
+    @Test
+    void earlyFlushedIdsAreNotFlushedAgainByTheWindow() {
+        aggregator.record("reader", "m1");
+        aggregator.record("reader", "m2");
+        aggregator.record("reader", "m3");
+        aggregator.record("reader", "m4");
+
+        aggregator.flushAll();
+        aggregator.flushAll();
+
+        assertThat(flushed).hasSize(2);
+        assertThat(flushed.get(1)).containsExactly("m4");
+        verify(messageService, times(2)).markAsReadBatch(anyList(), eq("reader"));
+    }
+
+    @Test
+    void concurrentRecordsFlushEveryIdExactlyOnce() throws InterruptedException {
+        int threads = 8;
+        int perThread = 250;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    aggregator.record("reader", "m" + thread + "-" + i);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        aggregator.flushAll();
+
+        List<String> all = new ArrayList<>();
+        flushed.forEach(all::addAll);
+        assertThat(all).hasSize(threads * perThread).doesNotHaveDuplicates();
+    }
+
+    private static Message message(String id) {
+        Message message = new Message();
+        message.setId(id);
+        message.setSenderId("sender");
+        message.setChannelId("c1");
+        message.setTimestamp(T0);
+        return message;
+    }
+
+}
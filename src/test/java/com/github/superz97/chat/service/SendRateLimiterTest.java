@@ -0,0 +1,68 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.dto.response.MessageDTO;
+import com.github.superz97.chat.exception.RateLimitExceededException;
+import com.github.superz97.chat.exception.UnauthorizedException;
+import com.github.superz97.chat.metrics.ChatMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class SendRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void allowsBurstThenRefillsAtRate() {
+        SendRateLimiter.Bucket bucket = new SendRateLimiter.Bucket(1, 3);
+        long now = 1_000 * SECOND;
+
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isEqualTo(SECOND);
+
+        assertThat(bucket.tryAcquire(now + SECOND)).isZero();
+        assertThat(bucket.tryAcquire(now + SECOND)).isPositive();
+        assertThat(bucket.isFull(now + 4 * SECOND)).isTrue();
+    }
+
+    @Test
+    void picksTheTierOnEverySendAndRejectsMissingSubjects() {
+        SendRateLimiter limiter = limiter();
+        List<GrantedAuthority> admin = List.of(new SimpleGrantedAuthority("ROLE_admin"));
+        MessageDTO.SendMessageRequest request = new MessageDTO.SendMessageRequest();
+
+        limiter.acquire("sub-1", List.of(), request);
+        assertThatThrownBy(() -> limiter.acquire("sub-1", List.of(), request))
+                .isInstanceOf(RateLimitExceededException.class);
+        // Granted the role after the first bucket was created
+        limiter.acquire("sub-1", admin, request);
+        limiter.acquire("sub-1", admin, request);
+
+        assertThatThrownBy(() -> limiter.acquire(null, admin, request))
+                .isInstanceOf(UnauthorizedException.class);
+    }
+
+    private static SendRateLimiter limiter() {
+        SendRateLimiter limiter = new SendRateLimiter(new ChatMetrics(new SimpleMeterRegistry(), mock(ApplicationContext.class)));
+        ReflectionTestUtils.setField(limiter, "enabled", true);
+        ReflectionTestUtils.setField(limiter, "userRate", 1);
+        ReflectionTestUtils.setField(limiter, "userBurst", 1);
+        ReflectionTestUtils.setField(limiter, "elevatedRole", "admin");
+        ReflectionTestUtils.setField(limiter, "elevatedRate", 1);
+        ReflectionTestUtils.setField(limiter, "elevatedBurst", 5);
+        return limiter;
+    }
+
+}
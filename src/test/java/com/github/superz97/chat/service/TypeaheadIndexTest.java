@@ -0,0 +1,60 @@
+package com.github.superz97.chat.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TypeaheadIndexTest {
+
+    @Test
+    void ranksByScoreAndIgnoresCaseAndAccents() {
+        TypeaheadIndex index = new TypeaheadIndex(5, 4);
+        index.put("1", "Général", 10);
+        index.put("2", "general-chat", 50);
+        index.put("3", "gen z", 5);
+        index.put("4", "random", 100);
+
+        assertThat(index.search("GEN", 10)).extracting(TypeaheadIndex.Match::id).containsExactly("2", "1", "3");
+        assertThat(index.search("gené", 10)).extracting(TypeaheadIndex.Match::id).containsExactly("2", "1");
+        assertThat(index.search("x", 10)).isEmpty();
+    }
+
+    @Test
+    void matchesBruteForceAcrossBurstsUpdatesAndRemovals() {
+        TypeaheadIndex index = new TypeaheadIndex(10, 8);
+        Map<String, TypeaheadIndex.Match> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5_000; i++) {
+            String id = "id" + random.nextInt(2_000);
+            if (random.nextInt(5) == 0) {
+                index.remove(id);
+                expected.remove(id);
+                continue;
+            }
+            String name = "u" + Integer.toString(random.nextInt(50_000), 7);
+            long score = random.nextInt(1_000);
+            index.put(id, name, score);
+            expected.put(id, new TypeaheadIndex.Match(id, name, score));
+        }
+
+        assertThat(index.size()).isEqualTo(expected.size());
+        for (String prefix : List.of("u", "u1", "u23", "u605", "u0")) {
+            List<String> bruteForce = expected.values().stream()
+                    .filter(m -> m.name().startsWith(prefix))
+                    .sorted(Comparator.comparingLong(TypeaheadIndex.Match::score).reversed()
+                            .thenComparing(TypeaheadIndex.Match::name)
+                            .thenComparing(TypeaheadIndex.Match::id))
+                    .limit(10)
+                    .map(TypeaheadIndex.Match::id)
+                    .toList();
+            assertThat(index.search(prefix, 10)).extracting(TypeaheadIndex.Match::id).isEqualTo(bruteForce);
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.github.superz97.chat.service;
+
+import com.github.superz97.chat.entity.User;
+import com.github.superz97.chat.metrics.ChatMetrics;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TypeaheadServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final SummaryQueryService summaryQueryService = mock(SummaryQueryService.class);
+    private final TypeaheadService service = new TypeaheadService(mongoTemplate, summaryQueryService,
+            mock(ChatMetrics.class));
+
+    @Test
+    void changesMadeDuringReloadSurviveStaleDocuments() {
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "topK", 10);
+        ReflectionTestUtils.setField(service, "burstSize", 4);
+        when(mongoTemplate.getCollectionName(any())).thenReturn("users");
+        when(mongoTemplate.aggregateStream(any(Aggregation.class), anyString(), eq(Document.class)))
+                .thenAnswer(invocation -> Stream.empty());
+        // The cursor returns alice under her old name, read before she was renamed and bob was deactivated
+        when(mongoTemplate.stream(any(Query.class), eq(Document.class), anyString())).thenAnswer(invocation -> Stream
+                .of(new Document("_id", "u1").append("username", "alice"),
+                        new Document("_id", "u2").append("username", "albert"))
+                .peek(user -> {
+                    if (user.get("_id").equals("u1")) {
+                        service.indexUser(User.builder().id("u1").username("zoe").build());
+                        service.indexUser(User.builder().id("u2").username("albert").active(false).build());
+                    }
+                }));
+
+        service.rebuild();
+        service.suggestUsers("al", 10);
+        service.suggestUsers("zo", 10);
+
+        verify(summaryQueryService).usersByIds(List.of());
+        verify(summaryQueryService).usersByIds(List.of("u1"));
+    }
+
+}
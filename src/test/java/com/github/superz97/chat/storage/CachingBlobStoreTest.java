@@ -0,0 +1,172 @@
+package com.github.superz97.chat.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CachingBlobStoreTest {
+
+    @TempDir
+    Path remoteDirectory;
+
+    @TempDir
+    Path cacheDirectory;
+
+    private CountingBlobStore remote;
+
+    @BeforeEach
+    void setUp() {
+        remote = new CountingBlobStore(new LocalBlobStore(remoteDirectory));
+    }
+
+    @Test
+    void servesRepeatReadsFromTheCache() throws IOException {
+        remote.put("images/a.png", stream("aaaa"), 4, "image/png");
+        CachingBlobStore store = new CachingBlobStore(remote, cacheDirectory, 100);
+
+        assertThat(read(store.load("images/a.png"))).isEqualTo("aaaa");
+        assertThat(read(store.load("images/a.png"))).isEqualTo("aaaa");
+
+        assertThat(remote.loads.get()).isEqualTo(1);
+        assertThat(store.getCachedBytes()).isEqualTo(4);
+    }
+
+    @Test
+    void uploadsAreHotAndMissesGoToTheRemoteStore() throws IOException {
+        CachingBlobStore store = new CachingBlobStore(remote, cacheDirectory, 100);
+        store.put("a", stream("aaaa"), 4, "text/plain");
+
+        assertThat(read(store.load("a"))).isEqualTo("aaaa");
+        assertThat(remote.loads.get()).isZero();
+        assertThatThrownBy(() -> store.load("missing")).isInstanceOf(FileNotFoundException.class);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedOverBudget() throws IOException {
+        CachingBlobStore store = new CachingBlobStore(remote, cacheDirectory, 10);
+        store.put("a", stream("aaaa"), 4, "text/plain");
+        store.put("b", stream("bbbb"), 4, "text/plain");
+        store.load("a");
+        store.put("c", stream("cccc"), 4, "text/plain");
+
+        assertThat(store.getCachedBytes()).isEqualTo(8);
+        store.load("a");
+        assertThat(remote.loads.get()).isZero();
+        assertThat(read(store.load("b"))).isEqualTo("bbbb");
+        assertThat(remote.loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void deleteRemovesCachedCopy() throws IOException {
+        CachingBlobStore store = new CachingBlobStore(remote, cacheDirectory, 100);
+        store.put("a", stream("aaaa"), 4, "text/plain");
+
+        store.delete("a");
+
+        assertThat(store.getCachedBytes()).isZero();
+        assertThat(store.exists("a")).isFalse();
+        assertThatThrownBy(() -> store.load("a")).isInstanceOf(FileNotFoundException.class);
+    }
+
+    @Test
+    void deleteDuringDownloadKeepsTheBlobOutOfTheCache() throws Exception {
+        remote.put("a", stream("aaaa"), 4, "text/plain");
+        CachingBlobStore store = new CachingBlobStore(remote, cacheDirectory, 100);
+        remote.blockLoads();
+
+        CompletableFuture<String> download = CompletableFuture.supplyAsync(() -> {
+            try {
+                return read(store.load("a"));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertThat(remote.loadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        store.delete("a");
+        remote.releaseLoads.countDown();
+
+        assertThat(download.get(5, TimeUnit.SECONDS)).isEqualTo("aaaa");
+        assertThat(store.getCachedBytes()).isZero();
+        assertThat(store.exists("a")).isFalse();
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes());
+    }
+
+    private static String read(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            return new String(in.readAllBytes());
+        }
+    }
+
+    // Counts remote reads; can hold a read open after the content has been fetched
+    private static class CountingBlobStore implements BlobStore {
+
+        private final BlobStore delegate;
+        private final AtomicInteger loads = new AtomicInteger();
+        private final CountDownLatch loadStarted = new CountDownLatch(1);
+        private final CountDownLatch releaseLoads = new CountDownLatch(1);
+        private volatile boolean blocking;
+
+        CountingBlobStore(BlobStore delegate) {
+            this.delegate = delegate;
+        }
+
+        void blockLoads() {
+            blocking = true;
+        }
+
+        @Override
+        public void put(String key, InputStream content, long size, String contentType) throws IOException {
+            delegate.put(key, content, size, contentType);
+        }
+
+        @Override
+        public Resource load(String key) throws IOException {
+            loads.incrementAndGet();
+            Resource resource = delegate.load(key);
+            if (blocking) {
+                byte[] content;
+                try (InputStream in = resource.getInputStream()) {
+                    content = in.readAllBytes();
+                }
+                loadStarted.countDown();
+                try {
+                    releaseLoads.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new ByteArrayResource(content);
+            }
+            return resource;
+        }
+
+        @Override
+        public boolean exists(String key) throws IOException {
+            return delegate.exists(key);
+        }
+
+        @Override
+        public void delete(String key) throws IOException {
+            delegate.delete(key);
+        }
+
+    }
+
+}
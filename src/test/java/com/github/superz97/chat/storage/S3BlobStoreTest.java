@@ -0,0 +1,85 @@
+package com.github.superz97.chat.storage;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class S3BlobStoreTest {
+
+    private final S3Client s3Client = mock(S3Client.class);
+    private final S3BlobStore store = new S3BlobStore(s3Client, "chat-files");
+
+    @Test
+    void putsWithBucketKeyAndMetadata() throws IOException {
+        store.put("images/a.png", new ByteArrayInputStream(new byte[]{1, 2, 3}), 3, "image/png");
+
+        ArgumentCaptor<PutObjectRequest> request = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3Client).putObject(request.capture(), any(RequestBody.class));
+        assertThat(request.getValue().bucket()).isEqualTo("chat-files");
+        assertThat(request.getValue().key()).isEqualTo("images/a.png");
+        assertThat(request.getValue().contentType()).isEqualTo("image/png");
+        assertThat(request.getValue().contentLength()).isEqualTo(3);
+    }
+
+    @Test
+    void loadsContentAndMapsMissingKeys() throws IOException {
+        when(s3Client.getObject(GetObjectRequest.builder().bucket("chat-files").key("a").build()))
+                .thenReturn(new ResponseInputStream<>(GetObjectResponse.builder().build(),
+                        AbortableInputStream.create(new ByteArrayInputStream("aaaa".getBytes()))));
+        when(s3Client.getObject(GetObjectRequest.builder().bucket("chat-files").key("missing").build()))
+                .thenThrow(NoSuchKeyException.builder().build());
+
+        try (InputStream in = store.load("a").getInputStream()) {
+            assertThat(new String(in.readAllBytes())).isEqualTo("aaaa");
+        }
+        assertThatThrownBy(() -> store.load("missing")).isInstanceOf(FileNotFoundException.class);
+    }
+
+    @Test
+    void existsTreatsNotFoundAsAbsentAndOtherFailuresAsErrors() throws IOException {
+        when(s3Client.headObject(HeadObjectRequest.builder().bucket("chat-files").key("a").build()))
+                .thenReturn(HeadObjectResponse.builder().build());
+        when(s3Client.headObject(HeadObjectRequest.builder().bucket("chat-files").key("gone").build()))
+                .thenThrow(S3Exception.builder().statusCode(404).build());
+        when(s3Client.headObject(HeadObjectRequest.builder().bucket("chat-files").key("denied").build()))
+                .thenThrow(S3Exception.builder().statusCode(403).build());
+
+        assertThat(store.exists("a")).isTrue();
+        assertThat(store.exists("gone")).isFalse();
+        assertThatThrownBy(() -> store.exists("denied")).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void deleteWrapsClientFailures() throws IOException {
+        store.delete("a");
+        verify(s3Client).deleteObject(DeleteObjectRequest.builder().bucket("chat-files").key("a").build());
+
+        when(s3Client.deleteObject(any(DeleteObjectRequest.class))).thenThrow(SdkClientException.create("down"));
+        assertThatThrownBy(() -> store.delete("b")).isInstanceOf(IOException.class);
+    }
+
+}
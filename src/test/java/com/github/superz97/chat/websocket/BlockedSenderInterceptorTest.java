@@ -0,0 +1,69 @@
+package com.github.superz97.chat.websocket;
+
+import com.github.superz97.chat.metrics.ChatMetrics;
+import com.github.superz97.chat.service.BlockListService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BlockedSenderInterceptorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BlockListService blockListService = mock(BlockListService.class);
+    private final BlockedSenderInterceptor interceptor = new BlockedSenderInterceptor(
+            blockListService, new ChatMetrics(meterRegistry, mock(ApplicationContext.class)));
+
+    @Test
+    void dropsFramesFromBlockedSendersPerSession() {
+        when(blockListService.hasBlocks()).thenReturn(true);
+        when(blockListService.isBlocked("alice", "mallory")).thenReturn(true);
+        interceptor.registerSession("alice-1", "alice");
+        interceptor.registerSession("bob-1", "bob");
+
+        assertThat(interceptor.preSend(frame("alice-1", "mallory"), null)).isNull();
+        assertThat(interceptor.preSend(frame("bob-1", "mallory"), null)).isNotNull();
+        assertThat(interceptor.preSend(frame("alice-1", "bob"), null)).isNotNull();
+        assertThat(interceptor.preSend(frame("alice-1", null), null)).isNotNull();
+        assertThat(meterRegistry.counter("chat.websocket.blocked.dropped").count()).isEqualTo(1);
+    }
+
+    @Test
+    void forgetsSessionsOnDisconnect() {
+        when(blockListService.hasBlocks()).thenReturn(true);
+        when(blockListService.isBlocked("alice", "mallory")).thenReturn(true);
+        interceptor.registerSession("alice-1", "alice");
+
+        interceptor.handleDisconnect(new SessionDisconnectEvent(this, frame("alice-1", null), "alice-1",
+                CloseStatus.NORMAL));
+
+        assertThat(interceptor.preSend(frame("alice-1", "mallory"), null)).isNotNull();
+    }
+
+    @Test
+    void passesEverythingWhileNobodyBlocksAnyone() {
+        interceptor.registerSession("alice-1", "alice");
+
+        assertThat(interceptor.preSend(frame("alice-1", "mallory"), null)).isNotNull();
+    }
+
+    private static Message<byte[]> frame(String sessionId, String senderId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        if (senderId != null) {
+            accessor.setHeader(BlockedSenderInterceptor.SENDER_HEADER, senderId);
+        }
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[]{1}, accessor.getMessageHeaders());
+    }
+
+}
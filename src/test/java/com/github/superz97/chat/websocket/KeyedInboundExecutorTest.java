@@ -0,0 +1,89 @@
+package com.github.superz97.chat.websocket;
+
+import com.github.superz97.chat.metrics.ChatMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class KeyedInboundExecutorTest {
+
+    private static final int SESSIONS = 16;
+    private static final int MESSAGES_PER_SESSION = 200;
+
+    @Test
+    void preservesPerSessionOrderWhileRunningSessionsInParallel() throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(8);
+        KeyedInboundExecutor executor = new KeyedInboundExecutor(workers,
+                new ChatMetrics(new SimpleMeterRegistry(), mock(ApplicationContext.class)), MESSAGES_PER_SESSION);
+        ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(executor);
+
+        Map<String, List<Integer>> handled = new ConcurrentHashMap<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(SESSIONS * MESSAGES_PER_SESSION);
+        channel.subscribe(message -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+            handled.computeIfAbsent(sessionId, key -> Collections.synchronizedList(new ArrayList<>()))
+                    .add((Integer) message.getPayload());
+            // Uneven handler latency, like a slow Mongo call
+            if (ThreadLocalRandom.current().nextInt(10) == 0) {
+                sleep();
+            }
+            running.decrementAndGet();
+            done.countDown();
+        });
+
+        ExecutorService senders = Executors.newFixedThreadPool(SESSIONS);
+        for (int s = 0; s < SESSIONS; s++) {
+            String sessionId = "session-" + s;
+            senders.execute(() -> {
+                for (int i = 0; i < MESSAGES_PER_SESSION; i++) {
+                    SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+                    accessor.setSessionId(sessionId);
+                    channel.send(MessageBuilder.createMessage(i, accessor.getMessageHeaders()));
+                }
+            });
+        }
+
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        senders.shutdown();
+        workers.shutdown();
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < MESSAGES_PER_SESSION; i++) {
+            expected.add(i);
+        }
+        assertThat(handled).hasSize(SESSIONS);
+        handled.values().forEach(order -> assertThat(order).containsExactlyElementsOf(expected));
+        assertThat(maxRunning.get()).isGreaterThan(1);
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
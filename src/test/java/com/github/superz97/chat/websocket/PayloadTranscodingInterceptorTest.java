@@ -0,0 +1,56 @@
+package com.github.superz97.chat.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.superz97.chat.metrics.ChatMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class PayloadTranscodingInterceptorTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PayloadFormatRegistry registry = new PayloadFormatRegistry();
+    private final PayloadTranscodingInterceptor interceptor = new PayloadTranscodingInterceptor(
+            registry, new ChatMetrics(new SimpleMeterRegistry(), mock(ApplicationContext.class)),
+            objectMapper);
+
+    @Test
+    void encodesOnceForBinarySessionsAndLeavesJsonSessionsAlone() throws Exception {
+        registry.register("cbor-1", PayloadFormat.CBOR);
+        registry.register("cbor-2", PayloadFormat.CBOR);
+        byte[] json = "{\"type\":\"MESSAGE\",\"payload\":{\"content\":\"hi\"}}".getBytes(StandardCharsets.UTF_8);
+
+        Message<?> first = interceptor.preSend(frame("cbor-1", json), null);
+        Message<?> second = interceptor.preSend(frame("cbor-2", json), null);
+        Message<?> plain = interceptor.preSend(frame("json-1", json), null);
+
+        assertThat(first.getHeaders().get(MessageHeaders.CONTENT_TYPE)).isEqualTo(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        assertThat(SimpMessageHeaderAccessor.wrap(first).getFirstNativeHeader(PayloadFormat.HEADER)).isEqualTo("cbor");
+        assertThat(second.getPayload()).isSameAs(first.getPayload());
+        assertThat(plain.getPayload()).isSameAs(json);
+
+        JsonNode decoded = PayloadFormat.CBOR.createMapper(objectMapper).readTree((byte[]) first.getPayload());
+        assertThat(decoded).isEqualTo(objectMapper.readTree(json));
+    }
+
+    private static Message<byte[]> frame(String sessionId, byte[] payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+
+}